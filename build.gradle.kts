@@ -3,6 +3,7 @@ plugins {
     jacoco
     id("org.springframework.boot") version "3.4.2"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "id.ac.ui.cs.advprog"
@@ -28,11 +29,16 @@ val seleniumJavaVersion = "4.14.1"
 val seleniumJupiterVersion = "5.0.1"
 val webdrivermanagerVersion = "5.6.3"
 val junitJupiterVersion = "5.9.1"
+val hdrHistogramVersion = "2.2.2"
 
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
     implementation("org.springframework.boot:spring-boot-starter-web")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("org.springframework.boot:spring-boot-starter-aop")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     compileOnly("org.projectlombok:lombok")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
     annotationProcessor("org.projectlombok:lombok")
@@ -42,6 +48,7 @@ dependencies {
     testImplementation("io.github.bonigarcia:selenium-jupiter:$seleniumJupiterVersion")
     testImplementation("io.github.bonigarcia:webdrivermanager:$webdrivermanagerVersion")
     testImplementation("org.junit.jupiter:junit-jupiter:$junitJupiterVersion")
+    testImplementation("org.hdrhistogram:HdrHistogram:$hdrHistogramVersion")
 }
 
 tasks.register<Test>(name = "unitTest") {
@@ -50,6 +57,7 @@ tasks.register<Test>(name = "unitTest") {
 
     filter {
         excludeTestsMatching("*FunctionalTest")
+        excludeTestsMatching("*LoadTest")
     }
 }
 
@@ -62,6 +70,34 @@ tasks.register<Test>(name = "functionalTest") {
     }
 }
 
+// Boots the app on a random port and drives it; pick one test with --tests, e.g. --tests '*EndpointMixLoadTest'.
+// -PloadConnections=<n> and -PloadMix=create=2,list=5,edit=2,delete=1 shape the endpoint mix, which fails once an
+// operation's latency exceeds -PloadThresholds=p50=PT0.05S,p99=PT0.5S. -PloadWarmup and -PloadMeasurement take
+// ISO-8601 durations.
+val loadTestProperties = mapOf(
+    "loadWarmup" to "loadtest.warmup",
+    "loadMeasurement" to "loadtest.measurement",
+    "loadConnections" to "loadtest.connections",
+    "loadMix" to "loadtest.mix",
+    "loadThresholds" to "loadtest.thresholds",
+)
+
+tasks.register<Test>(name = "loadTest") {
+    description = "Runs load tests."
+    group = "verification"
+
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    filter {
+        includeTestsMatching("*LoadTest")
+    }
+    loadTestProperties.forEach { (gradleName, systemName) ->
+        providers.gradleProperty(gradleName).orNull?.let { systemProperty(systemName, it) }
+    }
+    testLogging.showStandardStreams = true
+    outputs.upToDateWhen { false }
+}
+
 tasks.withType<Test>().configureEach {
     useJUnitPlatform()
 }
@@ -69,6 +105,7 @@ tasks.withType<Test>().configureEach {
 tasks.test{
     filter{
         excludeTestsMatching("*FunctionalTest")
+        excludeTestsMatching("*LoadTest")
     }
 
     finalizedBy(tasks.jacocoTestReport)
@@ -76,4 +113,49 @@ tasks.test{
 
 tasks.jacocoTestReport{
     dependsOn(tasks.test)
+}
+
+// Benchmarks live in src/jmh. Narrow a run with -PjmhIncludes=<regex>, override the thread
+// count with -PjmhThreads=<n>, and label the JSON output with -PjmhLabel=<name>.
+val jmhLabel = providers.gradleProperty("jmhLabel").orElse("latest")
+
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file(jmhLabel.map { "results/jmh/$it.json" })
+    humanOutputFile = layout.buildDirectory.file(jmhLabel.map { "results/jmh/$it.txt" })
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+    providers.gradleProperty("jmhThreads").orNull?.let { threads = it.toInt() }
+}
+
+// Compares two JSON result files: ./gradlew jmhCompare -Pbaseline=<file> -Pcandidate=<file>
+tasks.register("jmhCompare") {
+    description = "Prints the score change of every benchmark between two JMH JSON result files."
+    group = "benchmark"
+
+    val baseline = providers.gradleProperty("baseline")
+    val candidate = providers.gradleProperty("candidate")
+    doLast {
+        fun scores(path: String): Map<String, Pair<Double, String>> {
+            @Suppress("UNCHECKED_CAST")
+            val runs = groovy.json.JsonSlurper().parse(file(path)) as List<Map<String, Any>>
+            return runs.associate { run ->
+                @Suppress("UNCHECKED_CAST")
+                val params = (run["params"] as Map<String, Any>?).orEmpty()
+                    .entries.joinToString(",") { "${it.key}=${it.value}" }
+                @Suppress("UNCHECKED_CAST")
+                val metric = run["primaryMetric"] as Map<String, Any>
+                "${run["benchmark"]} [t=${run["threads"]} $params]" to
+                    ((metric["score"] as Number).toDouble() to metric["scoreUnit"].toString())
+            }
+        }
+
+        val before = scores(baseline.get())
+        val after = scores(candidate.get())
+        after.toSortedMap().forEach { (name, score) ->
+            val old = before[name]
+            val change = if (old == null) "new" else "%+.1f%%".format((score.first - old.first) / old.first * 100)
+            println("%-100s %14.3f %-8s %s".format(name, score.first, score.second, change))
+        }
+    }
 }
\ No newline at end of file
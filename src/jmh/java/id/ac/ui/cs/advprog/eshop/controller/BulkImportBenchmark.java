@@ -0,0 +1,103 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.service.ProductServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import 1M products through {@code POST /api/products/import} as NDJSON and as CSV, and to
+ * export them again. The heap is capped so that an import that buffers the whole body would fail.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkImportBenchmark {
+    private static final int PRODUCTS = 1_000_000;
+
+    @Param({"ndjson", "csv"})
+    String format;
+
+    private byte[] body;
+    private ProductRestController controller;
+
+    @Setup(Level.Trial)
+    public void createBody() {
+        StringBuilder text = new StringBuilder();
+        if (format.equals(BulkFormat.CSV)) {
+            text.append("productName,productQuantity\n");
+        }
+        for (int i = 0; i < PRODUCTS; i++) {
+            if (format.equals(BulkFormat.CSV)) {
+                text.append("Product ").append(i).append(',').append(i).append('\n');
+            } else {
+                text.append("{\"productName\":\"Product ").append(i).append("\",\"productQuantity\":").append(i).append("}\n");
+            }
+        }
+        body = text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void createController() throws ReflectiveOperationException {
+        ProductServiceImpl service = new ProductServiceImpl();
+        inject(service, "productRepository", new ProductRepository());
+        controller = new ProductRestController();
+        inject(controller, "service", service);
+        inject(controller, "objectMapper", new ObjectMapper());
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        var field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Benchmark
+    public ImportReport importAll() throws IOException {
+        return controller.importProducts(format, new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public long importThenExport() throws IOException {
+        controller.importProducts(format, new ByteArrayInputStream(body));
+        CountingOutputStream out = new CountingOutputStream();
+        controller.exportProducts(format).getBody().writeTo(out);
+        return out.count;
+    }
+
+    // Discards the export while counting it, so the benchmark does not hold the output in memory
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
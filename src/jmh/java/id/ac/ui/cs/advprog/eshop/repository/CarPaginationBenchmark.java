@@ -0,0 +1,99 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyset page latency of {@link CarRepository#findPage} at the start, middle and end of the
+ * listing. With keyset pagination all three should stay flat as the car count grows to 1M, and so should
+ * a page filtered by color and the per-color counts served by the facet index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarPaginationBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final String[] COLORS = {"Black", "White", "Silver", "Red", "Blue", "Grey", "Green", "Yellow"};
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private CarRepository repository;
+    private Long middleCursor;
+    private Long lastCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new CarRepository();
+        for (int i = 0; i < size; i++) {
+            Car car = new Car();
+            car.setCarName("Car " + i);
+            car.setCarColor(COLORS[i % COLORS.length]);
+            car.setCarQuantity(i);
+            repository.create(car);
+        }
+        middleCursor = cursorAt(size / 2);
+        lastCursor = cursorAt(size - PAGE_SIZE);
+    }
+
+    // Walk forward in large pages to find the cursor sitting right before the given position
+    private Long cursorAt(int position) {
+        Long cursor = null;
+        int seen = 0;
+        while (seen < position) {
+            int step = Math.min(10_000, position - seen);
+            Page<Car> page = repository.findPage(cursor, null, step);
+            cursor = page.getNextCursor();
+            seen += page.getContent().size();
+        }
+        return cursor;
+    }
+
+    @Benchmark
+    public Page<Car> firstPage() {
+        return repository.findPage(null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Car> middlePage() {
+        return repository.findPage(middleCursor, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Car> lastPage() {
+        return repository.findPage(lastCursor, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Car> previousPageFromEnd() {
+        return repository.findPage(null, lastCursor, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<Car> colorPage() {
+        return repository.findPageByColor("Yellow", null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public SortedMap<String, Integer> colorCounts() {
+        return repository.countByColor();
+    }
+}
@@ -0,0 +1,89 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link CarRepository} with 8 threads mixing reads and atomic updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class CarRepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private CarRepository repository;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new CarRepository();
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            repository.create(car(ids[i], "Car " + i, i));
+        }
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    private static Car car(String id, String name, int quantity) {
+        Car car = new Car();
+        car.setCarId(id);
+        car.setCarName(name);
+        car.setCarColor("Black");
+        car.setCarQuantity(quantity);
+        return car;
+    }
+
+    // Read the current version first, as the edit form does, so the update is not a conflict
+    private UpdateResult<Car> updateLatest(String id) {
+        Car car = car(null, "Updated", 1);
+        car.setVersion(repository.findById(id).getVersion());
+        return repository.update(id, car);
+    }
+
+    @Benchmark
+    public Car findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public UpdateResult<Car> update() {
+        return updateLatest(randomId());
+    }
+
+    @Benchmark
+    public Car readMostly() {
+        // 9 reads for every write, roughly what the list and edit pages generate
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            return updateLatest(randomId()).getEntity();
+        }
+        return repository.findById(randomId());
+    }
+}
@@ -0,0 +1,52 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ID generation under burst create traffic: the {@code random} version 4 UUIDs that all threads draw from
+ * one shared SecureRandom, against the {@code time-ordered} UUIDv7s built from thread-local state, on one
+ * thread and on 64.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "time-ordered"})
+    String generator;
+
+    private IdGenerator ids;
+
+    @Setup
+    public void setUp() {
+        ids = generator.equals("random") ? IdGenerator.randomUuid() : IdGenerator.timeOrderedUuid();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String nextId_1thread() {
+        return ids.nextId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String nextId_64threads() {
+        return ids.nextId();
+    }
+}
@@ -0,0 +1,167 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hash-indexed {@link ProductRepository} with the linear-scan
+ * {@code ArrayList} storage it replaced, at 1k, 100k and 1M products. The low-stock pair compares
+ * the quantity index with filtering a full scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRepositoryBenchmark {
+    private static final int LOW_STOCK = 10;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private ProductRepository repository;
+    private ListScanProductStore baseline;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new ProductRepository();
+        baseline = new ListScanProductStore();
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            repository.create(product(ids[i], "Product " + i, i));
+            baseline.create(product(ids[i], "Product " + i, i));
+        }
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    private static Product product(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    @Benchmark
+    public Product findById_indexed() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public Product findById_listScan() {
+        return baseline.findById(randomId());
+    }
+
+    @Benchmark
+    public UpdateResult<Product> update_indexed() {
+        // Read the current version first, as the edit form does, so the update is not a conflict
+        Product product = product(randomId(), "Updated", 1);
+        product.setVersion(repository.findById(product.getProductId()).getVersion());
+        return repository.update(product);
+    }
+
+    @Benchmark
+    public Product update_listScan() {
+        return baseline.update(product(randomId(), "Updated", 1));
+    }
+
+    @Benchmark
+    public Product deleteAndRecreate_indexed() {
+        String id = randomId();
+        Product product = repository.findById(id);
+        repository.delete(id);
+        return repository.create(product);
+    }
+
+    @Benchmark
+    public Product deleteAndRecreate_listScan() {
+        String id = randomId();
+        Product product = baseline.findById(id);
+        baseline.delete(id);
+        return baseline.create(product);
+    }
+
+    @Benchmark
+    public List<Product> lowStock_indexed() {
+        return repository.findByQuantityRange(0, LOW_STOCK, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<Product> lowStock_fullScan() {
+        List<Product> products = new ArrayList<>();
+        Iterator<Product> iterator = repository.findAll();
+        while (iterator.hasNext()) {
+            Product product = iterator.next();
+            if (product.getProductQuantity() <= LOW_STOCK) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // The original ArrayList-backed storage, kept here only as the comparison baseline
+    static class ListScanProductStore {
+        private final List<Product> productData = new ArrayList<>();
+
+        Product create(Product product) {
+            productData.add(product);
+            return product;
+        }
+
+        Product findById(String productId) {
+            for (Product product : productData) {
+                if (product.getProductId().equals(productId)) {
+                    return product;
+                }
+            }
+            return null;
+        }
+
+        Product update(Product updatedProduct) {
+            for (Product product : productData) {
+                if (product.getProductId().equals(updatedProduct.getProductId())) {
+                    product.setProductName(updatedProduct.getProductName());
+                    product.setProductQuantity(updatedProduct.getProductQuantity());
+                    return product;
+                }
+            }
+            return null;
+        }
+
+        boolean delete(String productId) {
+            Iterator<Product> iterator = productData.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getProductId().equals(productId)) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link ProductRepository#search} and the cost of building the name index from
+ * scratch. Query benchmarks are sampled so the JSON result carries p99 next to the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+    private static final int LIMIT = 20;
+    private static final String[] WORDS = {
+            "sampo", "sabun", "cap", "bambang", "usep", "botol", "minum", "kopi", "teh", "gula",
+            "beras", "minyak", "goreng", "susu", "kental", "manis", "roti", "tawar", "mie", "instan",
+            "kecap", "saus", "sambal", "garam", "tepung", "terigu", "mentega", "keju", "coklat", "permen"
+    };
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private List<Product> products;
+    private ProductRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        products = new ArrayList<>(size);
+        repository = new ProductRepository();
+        for (int i = 0; i < size; i++) {
+            Product product = new Product();
+            product.setProductId("product-" + i);
+            product.setProductName(WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i);
+            product.setProductQuantity(i);
+            products.add(product);
+            repository.create(product);
+        }
+    }
+
+    @Benchmark
+    public List<Product> singleWord() {
+        return repository.search("bambang", LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> shortPrefix() {
+        return repository.search("s", LIMIT);
+    }
+
+    // Every product has a number token, so one digit is a prefix of a large share of the dictionary
+    @Benchmark
+    public List<Product> numericPrefix() {
+        return repository.search("1", LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> wordAndNumericPrefix() {
+        return repository.search("kopi 1", LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> twoWords() {
+        return repository.search("kopi susu", LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> rareCombination() {
+        return repository.search("permen " + (size - 1), LIMIT);
+    }
+
+    @Benchmark
+    public List<Product> noMatch() {
+        return repository.search("xylophone", LIMIT);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public ProductNameIndex buildIndex() {
+        ProductNameIndex index = new ProductNameIndex();
+        for (int i = 0; i < products.size(); i++) {
+            index.onPut(products.get(i).getProductId(), i + 1, null, products.get(i));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,101 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@code eshop.repository} timers: the same lookups on a plain {@link ProductRepository} and on
+ * one proxied with Micrometer's {@link TimedAspect}, the way Spring wires it. With {@code histogram} the timers
+ * also keep the p50/p99 and bucket counts configured in application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryMetricsBenchmark {
+    private static final int SIZE = 10_000;
+
+    @Param({"false", "true"})
+    boolean histogram;
+
+    private ProductRepository plain;
+    private ProductRepository timed;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plain = new ProductRepository();
+        ids = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            ids[i] = plain.create(product).getProductId();
+        }
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        if (histogram) {
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .percentiles(0.5, 0.99)
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+            });
+        }
+        AspectJProxyFactory factory = new AspectJProxyFactory(plain);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new TimedAspect(registry));
+        timed = factory.getProxy();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(SIZE)];
+    }
+
+    @Benchmark
+    public Product findById_plain() {
+        return plain.findById(randomId());
+    }
+
+    @Benchmark
+    public Product findById_timed() {
+        return timed.findById(randomId());
+    }
+
+    @Benchmark
+    public Page<Product> findPage_plain() {
+        return plain.findPage(0, 20, null, null);
+    }
+
+    @Benchmark
+    public Page<Product> findPage_timed() {
+        return timed.findPage(0, 20, null, null);
+    }
+}
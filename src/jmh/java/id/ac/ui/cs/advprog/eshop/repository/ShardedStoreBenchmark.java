@@ -0,0 +1,99 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of one store against the same products sharded 8 and 32 ways, from 1 to 32 threads;
+ * plotting ops/ms over the thread count of each method gives the scaling curve of each configuration.
+ * Every write replaces one of 1M products picked at random, so what the writers share is the store itself:
+ * its write counter, its ordered index and their cache lines, rather than the same product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShardedStoreBenchmark {
+    private static final int PRODUCTS = 1_000_000;
+
+    @Param({"1", "8", "32"})
+    int shards;
+
+    private EntityStore<Product> store;
+    private String[] ids;
+    private Product[] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = (shards == 1) ? new InsertionOrderedStore<>() : new ShardedStore<>(shards, InsertionOrderedStore::new);
+        IdGenerator generator = IdGenerator.timeOrderedUuid();
+        ids = new String[PRODUCTS];
+        values = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            ids[i] = generator.nextId();
+            values[i] = new Product();
+            values[i].setProductId(ids[i]);
+            values[i].setProductName("Product " + i);
+            values[i].setProductQuantity(i);
+            store.put(ids[i], values[i]);
+        }
+    }
+
+    private void write() {
+        int i = ThreadLocalRandom.current().nextInt(PRODUCTS);
+        store.put(ids[i], values[i]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put_01threads() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void put_02threads() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void put_04threads() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void put_08threads() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void put_16threads() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void put_32threads() {
+        write();
+    }
+}
@@ -0,0 +1,93 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout contention: 64 threads reserving stock, either all on one hot SKU or spread over many.
+ * {@code reserve} is {@link ProductRepository#reserve}, which checks and decrements under the SKU's own
+ * lock in a single pass; {@code reserve_casRetry} is the read, then compare-and-set on the version, then
+ * retry loop that {@link ProductRepository#update} would need, which wastes work on every lost race.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class StockReservationBenchmark {
+
+    @Param({"1", "1024"})
+    int skus;
+
+    private ProductRepository repository;
+    private String[] ids;
+
+    // Refilled before every iteration so that no run ever sells out
+    @Setup(Level.Iteration)
+    public void setUp() {
+        repository = new ProductRepository();
+        ids = new String[skus];
+        for (int i = 0; i < skus; i++) {
+            ids[i] = "sku-" + i;
+            Product product = new Product();
+            product.setProductId(ids[i]);
+            product.setProductName("Product " + i);
+            product.setProductQuantity(Integer.MAX_VALUE);
+            repository.create(product);
+        }
+    }
+
+    private String randomId() {
+        return (skus == 1) ? ids[0] : ids[ThreadLocalRandom.current().nextInt(skus)];
+    }
+
+    @Benchmark
+    public Product reserve() {
+        return repository.reserve(randomId(), 1);
+    }
+
+    @Benchmark
+    public Product reserve_casRetry() {
+        String id = randomId();
+        while (true) {
+            Product current = repository.findById(id);
+            if (current.getProductQuantity() < 1) {
+                return null;
+            }
+            Product next = new Product();
+            next.setProductId(id);
+            next.setProductName(current.getProductName());
+            next.setProductQuantity(current.getProductQuantity() - 1);
+            next.setVersion(current.getVersion());
+            UpdateResult<Product> result = repository.update(next);
+            if (!result.isConflict()) {
+                return result.getEntity();
+            }
+        }
+    }
+
+    @Benchmark
+    public Product reserveThenRelease() {
+        String id = randomId();
+        repository.reserve(id, 1);
+        return repository.release(id, 1);
+    }
+}
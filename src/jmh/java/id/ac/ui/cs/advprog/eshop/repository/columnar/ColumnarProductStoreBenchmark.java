@@ -0,0 +1,79 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The product repository on the heap store and on the columnar store, at 1M and 10M products.
+ * Run with {@code -prof gc} to see the other half of the trade-off: the heap store keeps a {@link Product} and
+ * its strings on the heap for every product, the columnar store keeps them off it. The name and quantity
+ * indexes of the repository stay on the heap with either store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+public class ColumnarProductStoreBenchmark {
+
+    @Param({"heap", "columnar"})
+    String store;
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    private ProductRepository repository;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new ProductRepository(store.equals("columnar") ? new ColumnarProductStore() : new InsertionOrderedStore<>());
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = UUID.randomUUID().toString();
+            Product product = new Product();
+            product.setProductId(ids[i]);
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            repository.create(product);
+        }
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    @Benchmark
+    public int findById_quantity() {
+        return repository.findById(randomId()).getProductQuantity();
+    }
+
+    @Benchmark
+    public String findById_name() {
+        return repository.findById(randomId()).getProductName();
+    }
+
+    @Benchmark
+    public Page<Product> findPage_deep() {
+        return repository.findPage(ThreadLocalRandom.current().nextInt(size / 20), 20, null, null);
+    }
+}
@@ -0,0 +1,103 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory held per product once 1M products with generated IDs are stored, on the heap and in direct
+ * buffers, reported as the {@code heapBytesPerProduct} and {@code directBytesPerProduct} counters next to
+ * the time the load took. The heap store keeps a {@link Product}, its ID {@link String} and a map entry
+ * per product; the columnar store keeps the ID as two {@code long} columns.
+ * The direct figure includes the columnar store's unused capacity, so it is only meaningful at this size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:+UseParallelGC"})
+public class ProductFootprintBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Param({"heap", "columnar"})
+    String store;
+
+    private String[] ids;
+    private EntityStore<Product> products; // Kept reachable until the footprint is measured
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long heapBytesPerProduct;
+        public long directBytesPerProduct;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ids = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            ids[i] = UUID.randomUUID().toString();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        products = null;
+        settle();
+    }
+
+    @Benchmark
+    public void load(Footprint footprint) {
+        long heapBefore = heapUsed();
+        long directBefore = directUsed();
+        products = store.equals("columnar") ? new ColumnarProductStore() : new InsertionOrderedStore<>();
+        for (int i = 0; i < SIZE; i++) {
+            // Copies, so the heap store does not get to share the benchmark's own ID strings
+            String id = new String(ids[i]);
+            Product product = new Product();
+            product.setProductId(id);
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            products.put(id, product);
+        }
+        settle();
+        footprint.heapBytesPerProduct = (heapUsed() - heapBefore) / SIZE;
+        footprint.directBytesPerProduct = (directUsed() - directBefore) / SIZE;
+    }
+
+    private static void settle() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directUsed() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
@@ -0,0 +1,80 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CompactId;
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup by ID among 1M products. With {@code compact} IDs, generated UUIDs, the columnar store finds a
+ * product by comparing two {@code long} columns; {@code text} IDs, the same UUIDs in upper case, take its
+ * string path instead and are compared byte by byte against the arena. The heap store compares
+ * {@link String}s either way and serves as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductIdLookupBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    @Param({"heap", "columnar"})
+    String store;
+
+    @Param({"compact", "text"})
+    String ids;
+
+    private EntityStore<Product> products;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = store.equals("columnar") ? new ColumnarProductStore() : new InsertionOrderedStore<>();
+        keys = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            String id = UUID.randomUUID().toString();
+            keys[i] = ids.equals("compact") ? id : id.toUpperCase();
+            Product product = new Product();
+            product.setProductId(keys[i]);
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            products.put(keys[i], product);
+        }
+        if (ids.equals("compact") != CompactId.isCompact(keys[0])) {
+            throw new IllegalStateException("IDs are not in the " + ids + " form.");
+        }
+    }
+
+    // A fresh copy of the ID, like one parsed from a request, so no cached String hash code helps the lookup
+    private String randomId() {
+        return new String(keys[ThreadLocalRandom.current().nextInt(SIZE)]);
+    }
+
+    @Benchmark
+    public int get() {
+        return products.get(randomId()).getProductQuantity();
+    }
+
+    @Benchmark
+    public boolean contains_missing() {
+        return products.contains(UUID.randomUUID().toString());
+    }
+}
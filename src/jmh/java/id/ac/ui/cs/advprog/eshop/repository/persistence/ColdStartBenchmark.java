@@ -0,0 +1,111 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cold-start time of a persistent {@link ProductRepository} holding 1M products that were each
+ * created and then updated twice, recovered from the log alone versus from a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ColdStartBenchmark {
+    private static final int PRODUCTS = 1_000_000;
+    private static final int UPDATES_PER_PRODUCT = 2;
+    private static final int WRITERS = 128;
+
+    @Param({"false", "true"})
+    boolean snapshot;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("cold-start-benchmark");
+        OperationLog<Product> operationLog = OperationLog.open(directory, "products", new ProductCodec(), true);
+        ProductRepository repository = new ProductRepository();
+        repository.enablePersistence(operationLog);
+
+        // Many concurrent writers let group commit batch the fsyncs while the log is built
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int i = writer; i < PRODUCTS; i += WRITERS) {
+                    String id = "product-" + i;
+                    repository.create(product(id, "Product " + i, 0));
+                    for (int u = 1; u <= UPDATES_PER_PRODUCT; u++) {
+                        Product updated = product(id, "Product " + i, u);
+                        updated.setVersion(u - 1);
+                        repository.update(updated);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        if (snapshot) {
+            operationLog.snapshot();
+        }
+        operationLog.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static Product product(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    @Benchmark
+    public ProductRepository coldStart() throws IOException {
+        ProductRepository repository = new ProductRepository();
+        OperationLog<Product> operationLog = OperationLog.open(directory, "products", new ProductCodec(), true);
+        repository.enablePersistence(operationLog);
+        operationLog.close();
+        return repository;
+    }
+}
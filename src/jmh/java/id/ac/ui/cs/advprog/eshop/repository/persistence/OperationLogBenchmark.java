@@ -0,0 +1,111 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable write throughput of a persistent {@link ProductRepository}: one fsync per operation
+ * versus group commit, with 16 concurrent writers, and for single updates versus batches of 100. Set -Djava.io.tmpdir to put the log on the
+ * disk you want to measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class OperationLogBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"false", "true"})
+    boolean groupCommit;
+
+    private Path directory;
+    private OperationLog<Product> operationLog;
+    private ProductRepository repository;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("operation-log-benchmark");
+        operationLog = OperationLog.open(directory, "products", new ProductCodec(), groupCommit);
+        repository = new ProductRepository();
+        repository.enablePersistence(operationLog);
+
+        ids = new String[1_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = repository.create(product(null, "Product " + i, i)).getProductId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        operationLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // An edit read at the product's current version, so it is a real write rather than a conflict
+    private Product latest(String id, String name, int quantity) {
+        Product product = product(id, name, quantity);
+        product.setVersion(repository.findById(id).getVersion());
+        return product;
+    }
+
+    private static Product product(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    @Benchmark
+    public UpdateResult<Product> update() {
+        String id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        return repository.update(latest(id, "Updated", ThreadLocalRandom.current().nextInt(100)));
+    }
+
+    // Same updates applied 100 at a time, so throughput stays per product and the fsync wait is paid per batch
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchResult<Product> updateBatch() {
+        List<Product> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+            batch.add(latest(id, "Updated", ThreadLocalRandom.current().nextInt(100)));
+        }
+        return repository.updateAll(batch);
+    }
+}
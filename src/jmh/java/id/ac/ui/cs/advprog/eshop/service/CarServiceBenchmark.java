@@ -0,0 +1,97 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link CarServiceImpl} over a pre-filled repository.
+ * Run with -PjmhThreads=N to measure them under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private CarServiceImpl service;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        service = new CarServiceImpl();
+        var field = CarServiceImpl.class.getDeclaredField("carRepository");
+        field.setAccessible(true);
+        field.set(service, new CarRepository());
+
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = service.create(car("Car " + i, i)).getCarId();
+        }
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    private static Car car(String name, int quantity) {
+        Car car = new Car();
+        car.setCarName(name);
+        car.setCarColor("Black");
+        car.setCarQuantity(quantity);
+        return car;
+    }
+
+    // Create and delete are measured as a pair so the inventory keeps its size during the run
+    @Benchmark
+    public Car createAndDelete() {
+        Car car = service.create(car("Transient", 1));
+        service.deleteCarById(car.getCarId());
+        return car;
+    }
+
+    @Benchmark
+    public Car findById() {
+        return service.findById(randomId());
+    }
+
+    @Benchmark
+    public void update() {
+        // Read the current version first, as the edit form does, so the update is not a conflict
+        String id = randomId();
+        Car car = car("Updated", 1);
+        car.setVersion(service.findById(id).getVersion());
+        service.update(id, car);
+    }
+
+    @Benchmark
+    public List<Car> findAll() {
+        return service.findAll();
+    }
+
+    @Benchmark
+    public Page<Car> findFirstPage() {
+        return service.findPage(null, null, 20);
+    }
+}
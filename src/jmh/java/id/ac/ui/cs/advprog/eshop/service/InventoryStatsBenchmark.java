@@ -0,0 +1,118 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.InventoryStats;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.ShardedStore;
+import id.ac.ui.cs.advprog.eshop.repository.columnar.ColumnarProductStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory figures of {@link InventoryStatsServiceImpl}: read from the running totals, recounted in a parallel
+ * scan over the stores, and the serial {@code findAll()} copy the dashboard used before, as the baseline.
+ * The parallel scan scales with the cores of the common fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryStatsBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"heap", "sharded", "columnar"})
+    String store;
+
+    private InventoryStatsServiceImpl service;
+    private ProductServiceImpl productService;
+    private CarServiceImpl carService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        ProductRepository products = new ProductRepository(switch (store) {
+            case "sharded" -> new ShardedStore<>(Runtime.getRuntime().availableProcessors(), InsertionOrderedStore::new);
+            case "columnar" -> new ColumnarProductStore();
+            default -> new InsertionOrderedStore<>();
+        });
+        CarRepository cars = new CarRepository();
+        for (int i = 0; i < size; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setProductQuantity((int) ((i * 2654435761L) % 100_000));
+            products.create(product);
+        }
+        String[] colors = {"Red", "Blue", "Green", "Black", "White"};
+        for (int i = 0; i < size / 10; i++) {
+            Car car = new Car();
+            car.setCarName("Car " + i);
+            car.setCarColor(colors[i % colors.length]);
+            car.setCarQuantity(i % 50);
+            cars.create(car);
+        }
+
+        service = new InventoryStatsServiceImpl();
+        inject(service, "productRepository", products);
+        inject(service, "carRepository", cars);
+        productService = new ProductServiceImpl();
+        inject(productService, "productRepository", products);
+        carService = new CarServiceImpl();
+        inject(carService, "carRepository", cars);
+    }
+
+    private static void inject(Object target, String name, Object value) throws ReflectiveOperationException {
+        var field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    @Benchmark
+    public InventoryStats runningTotals() {
+        return service.stats(10);
+    }
+
+    @Benchmark
+    public InventoryStats parallelRecount() {
+        return service.recount(10);
+    }
+
+    // Copies both catalogs through the services and aggregates them on one thread
+    @Benchmark
+    public Object serialCopy() {
+        List<Product> products = productService.findAll();
+        long productStock = 0;
+        for (Product product : products) {
+            productStock += product.getProductQuantity();
+        }
+        List<Product> top = new ArrayList<>(products);
+        top.sort(Comparator.comparingInt(Product::getProductQuantity).reversed());
+        Map<String, Long> byColor = new TreeMap<>();
+        for (Car car : carService.findAll()) {
+            byColor.merge(car.getCarColor(), (long) car.getCarQuantity(), Long::sum);
+        }
+        return List.of(productStock, top.subList(0, Math.min(10, top.size())), byColor);
+    }
+}
@@ -0,0 +1,97 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link ProductServiceImpl} over a pre-filled repository.
+ * Run with -PjmhThreads=N to measure them under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private ProductServiceImpl service;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        service = new ProductServiceImpl();
+        var field = ProductServiceImpl.class.getDeclaredField("productRepository");
+        field.setAccessible(true);
+        field.set(service, new ProductRepository());
+
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = service.create(product(null, "Product " + i, i)).getProductId();
+        }
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    private static Product product(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    // Create and delete are measured as a pair so the catalog keeps its size during the run
+    @Benchmark
+    public Product createAndDelete() {
+        Product product = service.create(product(null, "Transient", 1));
+        service.delete(product.getProductId());
+        return product;
+    }
+
+    @Benchmark
+    public Product findById() {
+        return service.findById(randomId());
+    }
+
+    @Benchmark
+    public UpdateResult<Product> update() {
+        // Read the current version first, as the edit form does, so the update is not a conflict
+        Product product = product(randomId(), "Updated", 1);
+        product.setVersion(service.findById(product.getProductId()).getVersion());
+        return service.update(product);
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return service.findAll();
+    }
+
+    @Benchmark
+    public Page<Product> findFirstPage() {
+        return service.findPage(0, 20, null, null);
+    }
+}
@@ -0,0 +1,56 @@
+package id.ac.ui.cs.advprog.eshop.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import id.ac.ui.cs.advprog.eshop.service.CachingCarService;
+import id.ac.ui.cs.advprog.eshop.service.CachingProductService;
+import id.ac.ui.cs.advprog.eshop.service.CarServiceImpl;
+import id.ac.ui.cs.advprog.eshop.service.ProductServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Optional lookup cache, enabled with {@code eshop.cache.enabled=true}. The caching services are primary,
+ * so the controllers get them in place of the plain services. Each cache holds at most
+ * {@code eshop.cache.maximum-size} entities and drops them {@code eshop.cache.expire-after-write} after
+ * they were loaded; within that bound Caffeine's W-TinyLFU policy keeps the most frequently used ones.
+ * Their statistics are also published as {@code cache.*} meters, tagged with the cache name.
+ */
+@Configuration
+@ConditionalOnProperty(name = "eshop.cache.enabled", havingValue = "true")
+public class CacheConfiguration {
+
+    @Value("${eshop.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${eshop.cache.expire-after-write:PT10M}")
+    private Duration expireAfterWrite;
+
+    @Bean
+    @Primary
+    public CachingProductService cachingProductService(ProductServiceImpl productService, MeterRegistry registry) {
+        return new CachingProductService(productService, newCache(registry, "products"));
+    }
+
+    @Bean
+    @Primary
+    public CachingCarService cachingCarService(CarServiceImpl carService, MeterRegistry registry) {
+        return new CachingCarService(carService, newCache(registry, "cars"));
+    }
+
+    private <V> Cache<String, V> newCache(MeterRegistry registry, String name) {
+        Cache<String, V> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+}
@@ -0,0 +1,64 @@
+package id.ac.ui.cs.advprog.eshop.config;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.ShardedStore;
+import id.ac.ui.cs.advprog.eshop.repository.columnar.ColumnarProductStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repository size gauges. Together with the {@code eshop.repository} timers on every repository method and
+ * the {@code http.server.requests} timers Spring keeps for every controller endpoint, they are scraped from
+ * {@code /actuator/prometheus}. The percentiles and histogram buckets of both timers are set in
+ * application.properties. The columnar product store also reports the direct memory it holds.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MeterBinder repositorySizeMetrics(ProductRepository productRepository, CarRepository carRepository) {
+        return registry -> {
+            Gauge.builder("eshop.repository.size", productRepository, ProductRepository::count)
+                    .tag("repository", "products")
+                    .description("Number of stored products")
+                    .register(registry);
+            Gauge.builder("eshop.repository.size", carRepository, CarRepository::count)
+                    .tag("repository", "cars")
+                    .description("Number of stored cars")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder productStoreMetrics(EntityStore<Product> productStore) {
+        List<ColumnarProductStore> columnar = new ArrayList<>();
+        List<EntityStore<Product>> stores = (productStore instanceof ShardedStore<Product> sharded) ? sharded.shards() : List.of(productStore);
+        stores.forEach(store -> {
+            if (store instanceof ColumnarProductStore shard) {
+                columnar.add(shard);
+            }
+        });
+        return registry -> {
+            if (!columnar.isEmpty()) {
+                Gauge.builder("eshop.repository.offheap", columnar, shards -> shards.stream().mapToLong(ColumnarProductStore::offHeapBytes).sum())
+                        .tag("area", "allocated")
+                        .baseUnit("bytes")
+                        .description("Direct memory held by the columnar product store")
+                        .register(registry);
+                Gauge.builder("eshop.repository.offheap", columnar, shards -> shards.stream().mapToLong(ColumnarProductStore::garbageBytes).sum())
+                        .tag("area", "garbage")
+                        .baseUnit("bytes")
+                        .description("Arena space of replaced or deleted names and IDs, reclaimed only when the store is rebuilt")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package id.ac.ui.cs.advprog.eshop.config;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.CarCodec;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.OperationLog;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.ProductCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Optional on-disk persistence, enabled with {@code eshop.persistence.enabled=true}.
+ * The snapshots and logs are loaded while the context starts, before any request is served,
+ * and {@link SnapshotScheduler} compacts them in the background.
+ * With {@code spring.threads.virtual.enabled=true} the log writers run on virtual threads, like the request
+ * threads and the scheduler that Spring Boot switches over with the same property.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "eshop.persistence.enabled", havingValue = "true")
+public class PersistenceConfiguration {
+
+    @Value("${eshop.persistence.directory:data}")
+    private String directory;
+
+    @Value("${eshop.persistence.group-commit:true}")
+    private boolean groupCommit;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean(destroyMethod = "close")
+    public OperationLog<Product> productOperationLog(ProductRepository productRepository) throws IOException {
+        OperationLog<Product> operationLog = OperationLog.open(Path.of(directory), "products", new ProductCodec(), groupCommit, writerThread());
+        productRepository.enablePersistence(operationLog);
+        return operationLog;
+    }
+
+    @Bean(destroyMethod = "close")
+    public OperationLog<Car> carOperationLog(CarRepository carRepository) throws IOException {
+        OperationLog<Car> operationLog = OperationLog.open(Path.of(directory), "cars", new CarCodec(), groupCommit, writerThread());
+        carRepository.enablePersistence(operationLog);
+        return operationLog;
+    }
+
+    private Thread.Builder writerThread() {
+        return virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+    }
+
+    @Bean
+    public SnapshotScheduler snapshotScheduler(OperationLog<Product> productOperationLog, OperationLog<Car> carOperationLog) {
+        return new SnapshotScheduler(List.of(productOperationLog, carOperationLog));
+    }
+}
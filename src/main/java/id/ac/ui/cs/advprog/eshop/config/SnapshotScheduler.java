@@ -0,0 +1,35 @@
+package id.ac.ui.cs.advprog.eshop.config;
+
+import id.ac.ui.cs.advprog.eshop.repository.persistence.OperationLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Periodically snapshots every operation log so that restart time stays bounded by the data size
+ * rather than by the number of writes ever made.
+ */
+public class SnapshotScheduler {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+    private final List<OperationLog<?>> operationLogs;
+
+    public SnapshotScheduler(List<OperationLog<?>> operationLogs) {
+        this.operationLogs = operationLogs;
+    }
+
+    @Scheduled(initialDelayString = "${eshop.persistence.snapshot-interval:PT5M}",
+            fixedDelayString = "${eshop.persistence.snapshot-interval:PT5M}")
+    public void snapshotAll() {
+        for (OperationLog<?> operationLog : operationLogs) {
+            try {
+                operationLog.snapshot();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Snapshot failed; the operation log is kept and will be retried.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package id.ac.ui.cs.advprog.eshop.config;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.IdGenerator;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import id.ac.ui.cs.advprog.eshop.repository.ShardedStore;
+import id.ac.ui.cs.advprog.eshop.repository.columnar.ColumnarProductStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Supplier;
+
+/**
+ * Storage engine behind the product repository, chosen with {@code eshop.repository.product-store}:
+ * {@code heap} keeps one {@link Product} object per product in an {@link InsertionOrderedStore};
+ * {@code columnar} keeps the catalog off the heap in a {@link ColumnarProductStore}, which is meant for
+ * catalogs of millions of products and is published as the {@code eshop.repository.offheap} gauges.
+ * With {@code eshop.repository.shards} above 1, products and cars are each partitioned by ID over that many
+ * independent stores of the chosen kind (see {@link ShardedStore}), so concurrent writers spread over them.
+ * New IDs come from the generator chosen with {@code eshop.repository.id-generator}: {@code time-ordered}
+ * UUIDv7s built from thread-local state, or {@code random} version 4 UUIDs from the shared SecureRandom.
+ */
+@Configuration
+public class StoreConfiguration {
+
+    @Value("${eshop.repository.product-store:heap}")
+    private String productStore;
+
+    @Value("${eshop.repository.shards:1}")
+    private int shards;
+
+    @Value("${eshop.repository.id-generator:time-ordered}")
+    private String idGenerator;
+
+    @Bean
+    public EntityStore<Product> productStore() {
+        Supplier<EntityStore<Product>> engine = switch (productStore) {
+            case "heap" -> InsertionOrderedStore::new;
+            case "columnar" -> ColumnarProductStore::new;
+            default -> throw new IllegalArgumentException("Unknown product store: " + productStore + ".");
+        };
+        return sharded(engine);
+    }
+
+    @Bean
+    public EntityStore<Car> carStore() {
+        return sharded(InsertionOrderedStore::new);
+    }
+
+    private <T> EntityStore<T> sharded(Supplier<EntityStore<T>> engine) {
+        return (shards > 1) ? new ShardedStore<>(shards, engine) : engine.get();
+    }
+
+    @Bean
+    public IdGenerator idGenerator() {
+        return switch (idGenerator) {
+            case "time-ordered" -> IdGenerator.timeOrderedUuid();
+            case "random" -> IdGenerator.randomUuid();
+            default -> throw new IllegalArgumentException("Unknown ID generator: " + idGenerator + ".");
+        };
+    }
+}
@@ -0,0 +1,232 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Streaming readers and writers for the bulk import and export endpoints. Both formats are handled one
+ * record at a time: NDJSON holds one JSON object per line, and CSV starts with a header row naming the
+ * columns and follows RFC 4180 quoting. Malformed records surface as {@link IllegalArgumentException}s
+ * carrying the record number, and reading carries on with the next record.
+ */
+final class BulkFormat {
+    static final String NDJSON = "ndjson";
+    static final String CSV = "csv";
+    static final MediaType NDJSON_TYPE = MediaType.parseMediaType("application/x-ndjson");
+    static final MediaType CSV_TYPE = MediaType.parseMediaType("text/csv");
+
+    private BulkFormat() {
+    }
+
+    static IllegalArgumentException unsupported(String format) {
+        return new IllegalArgumentException("Unsupported format " + format + ", expected ndjson or csv.");
+    }
+
+    static MediaType mediaType(String format) {
+        return switch (format) {
+            case NDJSON -> NDJSON_TYPE;
+            case CSV -> CSV_TYPE;
+            default -> throw unsupported(format);
+        };
+    }
+
+    // Read line by line, so a malformed record is skipped and the records after it can still be read
+    static <T> Iterator<T> readNdjson(ObjectMapper objectMapper, InputStream in, Class<T> type) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Iterator<>() {
+            private String line;
+            private long record;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null) {
+                        line = reader.readLine();
+                        if (line == null) {
+                            return false;
+                        }
+                        if (line.isBlank()) {
+                            line = null;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String json = line;
+                line = null;
+                record++;
+                try {
+                    return objectMapper.readValue(json, type);
+                } catch (IOException | RuntimeException e) {
+                    throw malformed(record, e);
+                }
+            }
+        };
+    }
+
+    // Each record is handed to the mapper as a column name to value map
+    static <T> Iterator<T> readCsv(InputStream in, Function<Map<String, String>, T> mapper) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = readRecord(reader);
+        if (header == null) {
+            return new ArrayList<T>().iterator();
+        }
+
+        return new Iterator<>() {
+            private List<String> fields = readRecord(reader);
+            private long record;
+
+            @Override
+            public boolean hasNext() {
+                return fields != null;
+            }
+
+            @Override
+            public T next() {
+                if (fields == null) {
+                    throw new NoSuchElementException();
+                }
+                record++;
+                Map<String, String> row = new HashMap<>();
+                for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                    row.put(header.get(i), fields.get(i));
+                }
+                // Moves past the record before mapping it, so a malformed one is skipped
+                try {
+                    fields = readRecord(reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                try {
+                    return mapper.apply(row);
+                } catch (RuntimeException e) {
+                    throw malformed(record, e);
+                }
+            }
+        };
+    }
+
+    private static IllegalArgumentException malformed(long record, Exception cause) {
+        return new IllegalArgumentException("Record " + record + " is malformed: " + cause.getMessage(), cause);
+    }
+
+    // One CSV record, or null at the end of the input; blank lines are skipped
+    private static List<String> readRecord(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAnything = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                sawAnything = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                sawAnything = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                if (sawAnything) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+            } else {
+                field.append((char) c);
+                sawAnything = true;
+            }
+        }
+        if (!sawAnything) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static StreamingResponseBody writeNdjson(ObjectMapper objectMapper, Iterator<?> items) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.setRootValueSeparator(null);
+                while (items.hasNext()) {
+                    generator.writeObject(items.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+    }
+
+    static <T> StreamingResponseBody writeCsv(List<String> header, Iterator<T> items, Function<T, List<?>> columns) {
+        return out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeRecord(writer, header);
+            while (items.hasNext()) {
+                writeRecord(writer, columns.apply(items.next()));
+            }
+            writer.flush();
+        };
+    }
+
+    private static void writeRecord(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            String text = (value == null) ? "" : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
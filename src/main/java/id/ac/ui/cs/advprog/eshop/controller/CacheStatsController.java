@@ -0,0 +1,42 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import id.ac.ui.cs.advprog.eshop.service.CachingCarService;
+import id.ac.ui.cs.advprog.eshop.service.CachingProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Hit and miss counts of the lookup caches; only present while they are enabled
+@RestController
+@ConditionalOnProperty(name = "eshop.cache.enabled", havingValue = "true")
+public class CacheStatsController {
+
+    @Autowired
+    private CachingProductService productService;
+
+    @Autowired
+    private CachingCarService carService;
+
+    @GetMapping("/api/cache")
+    public Map<String, Map<String, Object>> cacheStats() {
+        Map<String, Map<String, Object>> caches = new LinkedHashMap<>();
+        caches.put("products", describe(productService.stats(), productService.size()));
+        caches.put("cars", describe(carService.stats(), carService.size()));
+        return caches;
+    }
+
+    private static Map<String, Object> describe(CacheStats stats, long size) {
+        Map<String, Object> described = new LinkedHashMap<>();
+        described.put("hits", stats.hitCount());
+        described.put("misses", stats.missCount());
+        described.put("hitRate", stats.hitRate());
+        described.put("evictions", stats.evictionCount());
+        described.put("size", size);
+        return described;
+    }
+}
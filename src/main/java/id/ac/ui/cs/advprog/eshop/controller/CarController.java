@@ -1,13 +1,14 @@
 package id.ac.ui.cs.advprog.eshop.controller;
 
 import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.service.CarService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @Controller
 @RequestMapping("/car")
@@ -29,10 +30,23 @@ public class CarController {
         return "redirect:listCar";
     }
 
+    // An unchanged list is answered with 304 Not Modified; returning null tells Spring the response is complete
     @GetMapping("/listCar")
-    public String carListPage(Model model) {
-        List<Car> allCars = carService.findAll();
-        model.addAttribute("cars", allCars);
+    public String carListPage(@RequestParam(value = "after", required = false) Long after,
+                              @RequestParam(value = "before", required = false) Long before,
+                              @RequestParam(value = "size", defaultValue = "20") int size,
+                              @RequestParam(value = "color", required = false) String color,
+                              WebRequest request, Model model) {
+        if (ListETag.notModified(request, carService.modificationCount())) {
+            return null;
+        }
+        Page<Car> carPage = (color == null || color.isEmpty())
+                ? carService.findPage(after, before, size)
+                : carService.findPageByColor(color, after, before, size);
+        model.addAttribute("cars", carPage.getContent());
+        model.addAttribute("page", carPage);
+        model.addAttribute("color", color);
+        model.addAttribute("colorCounts", carService.countByColor());
         return "CarList";
     }
 
@@ -43,9 +57,15 @@ public class CarController {
         return "EditCar";
     }
 
+    // A stale form is shown again with the current car, so the user can redo the edit on top of it
     @PostMapping("/editCar")
-    public String editCarPost(@ModelAttribute Car car) {
-        carService.update(car.getCarId(), car);
+    public String editCarPost(@ModelAttribute Car car, Model model) {
+        UpdateResult<Car> result = carService.update(car.getCarId(), car);
+        if (result != null && result.isConflict()) {
+            model.addAttribute("car", result.getEntity());
+            model.addAttribute("conflict", true);
+            return "EditCar";
+        }
         return "redirect:listCar";
     }
 
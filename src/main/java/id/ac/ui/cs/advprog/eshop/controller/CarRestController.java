@@ -0,0 +1,135 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.service.CarService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cars")
+public class CarRestController {
+    private static final List<String> CSV_HEADER = List.of("carId", "carName", "carColor", "carQuantity");
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> listCars() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStream.of(objectMapper, carService.iterateAll()));
+    }
+
+    @PostMapping("/import")
+    public ImportReport importCars(@RequestParam(value = "format", defaultValue = BulkFormat.NDJSON) String format,
+                                   InputStream body) throws IOException {
+        Iterator<Car> cars = switch (format) {
+            case BulkFormat.NDJSON -> BulkFormat.readNdjson(objectMapper, body, Car.class);
+            case BulkFormat.CSV -> BulkFormat.readCsv(body, CarRestController::fromCsv);
+            default -> throw BulkFormat.unsupported(format);
+        };
+        return carService.importCars(cars);
+    }
+
+    @PostMapping("/batch")
+    public BatchResult<Car> createAll(@RequestBody List<Car> cars) {
+        return carService.createAll(cars);
+    }
+
+    @PutMapping("/batch")
+    public BatchResult<Car> updateAll(@RequestBody List<Car> cars) {
+        return carService.updateAll(cars);
+    }
+
+    // Takes the IDs in the body, which DELETE requests are not guaranteed to carry
+    @PostMapping("/batch/delete")
+    public BatchResult<Car> deleteAll(@RequestBody List<String> carIds) {
+        return carService.deleteAll(carIds);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCars(
+            @RequestParam(value = "format", defaultValue = BulkFormat.NDJSON) String format) {
+        MediaType mediaType = BulkFormat.mediaType(format);
+        StreamingResponseBody body = format.equals(BulkFormat.CSV)
+                ? BulkFormat.writeCsv(CSV_HEADER, carService.iterateAll(), CarRestController::toCsv)
+                : BulkFormat.writeNdjson(objectMapper, carService.iterateAll());
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    private static Car fromCsv(Map<String, String> row) {
+        Car car = new Car();
+        String carId = row.get("carId");
+        car.setCarId((carId == null || carId.isEmpty()) ? null : carId);
+        car.setCarName(row.get("carName"));
+        car.setCarColor(row.get("carColor"));
+        String quantity = row.get("carQuantity");
+        car.setCarQuantity((quantity == null || quantity.isEmpty()) ? 0 : Integer.parseInt(quantity.trim()));
+        return car;
+    }
+
+    private static List<?> toCsv(Car car) {
+        return Arrays.asList(car.getCarId(), car.getCarName(), car.getCarColor(), car.getCarQuantity());
+    }
+
+    @GetMapping("/{carId}")
+    public Car getCar(@PathVariable String carId) {
+        Car car = carService.findById(carId);
+        if (car == null) {
+            throw notFound(carId);
+        }
+        return car;
+    }
+
+    @PostMapping
+    public ResponseEntity<Car> createCar(@RequestBody Car car) {
+        Car created = carService.create(car);
+        return ResponseEntity.created(URI.create("/api/cars/" + created.getCarId())).body(created);
+    }
+
+    // The body carries the version it was read at; a stale version is answered with 409 Conflict
+    @PutMapping("/{carId}")
+    public Car updateCar(@PathVariable String carId, @RequestBody Car car) {
+        UpdateResult<Car> result = carService.update(carId, car);
+        if (result == null) {
+            throw notFound(carId);
+        }
+        if (result.isConflict()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Car with ID " + carId
+                    + " has been changed since version " + car.getVersion() + ".");
+        }
+        return result.getEntity();
+    }
+
+    @DeleteMapping("/{carId}")
+    public ResponseEntity<Void> deleteCar(@PathVariable String carId) {
+        if (!carService.deleteCarById(carId)) {
+            throw notFound(carId);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseStatusException notFound(String carId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Car with ID " + carId + " not found.");
+    }
+}
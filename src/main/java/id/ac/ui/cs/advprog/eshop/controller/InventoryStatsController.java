@@ -0,0 +1,22 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.model.InventoryStats;
+import id.ac.ui.cs.advprog.eshop.service.InventoryStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// Inventory figures for the dashboard; recount=true scans the data instead of reading the running totals
+@RestController
+public class InventoryStatsController {
+
+    @Autowired
+    private InventoryStatsService inventoryStatsService;
+
+    @GetMapping("/api/stats")
+    public InventoryStats stats(@RequestParam(value = "top", defaultValue = "10") int top,
+                                @RequestParam(value = "recount", defaultValue = "false") boolean recount) {
+        return recount ? inventoryStatsService.recount(top) : inventoryStatsService.stats(top);
+    }
+}
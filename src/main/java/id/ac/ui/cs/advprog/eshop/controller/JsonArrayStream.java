@@ -0,0 +1,30 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+
+/**
+ * Writes a JSON array one element at a time straight to the response, so a large listing is never
+ * held in memory as a list or as a single serialized string.
+ */
+final class JsonArrayStream {
+    private JsonArrayStream() {
+    }
+
+    static StreamingResponseBody of(ObjectMapper objectMapper, Iterator<?> items) {
+        return out -> {
+            // The servlet container owns the stream, so closing the generator only flushes it
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                while (items.hasNext()) {
+                    generator.writeObject(items.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+}
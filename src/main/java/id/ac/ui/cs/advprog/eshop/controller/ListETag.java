@@ -0,0 +1,21 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GET for the list pages, tagged with the modification count of the store behind them. A browser
+ * revalidating an unchanged list gets 304 Not Modified before anything is read or rendered, and any write
+ * changes the tag. The count starts over on every restart, so the tag also carries the startup time and a
+ * page rendered by an earlier run, possibly from an older template, never matches.
+ */
+final class ListETag {
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private ListETag() {
+    }
+
+    // Weak, since it stands for the listed entities rather than the exact bytes of the page
+    static boolean notModified(WebRequest request, long modificationCount) {
+        return request.checkNotModified("W/\"" + EPOCH + "-" + modificationCount + "\"");
+    }
+}
@@ -1,7 +1,9 @@
 package id.ac.ui.cs.advprog.eshop.controller;
 
 import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Page;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.service.CarServiceImpl;
 import id.ac.ui.cs.advprog.eshop.service.ProductService;
 
@@ -9,8 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 @Controller
 @RequestMapping("/product")
@@ -37,10 +38,28 @@ public class ProductController {
         return "redirect:list";
     }
 
+    // An unchanged list is answered with 304 Not Modified; returning null tells Spring the response is complete
     @GetMapping("/list")
-    public String productListPage(Model model) {
-        List<Product> allProducts = service.findAll();
-        model.addAttribute("products", allProducts);
+    public String productListPage(@RequestParam(value = "page", defaultValue = "0") int page,
+                                  @RequestParam(value = "size", defaultValue = "20") int size,
+                                  @RequestParam(value = "cursor", required = false) Long cursor,
+                                  @RequestParam(value = "before", required = false) Long before,
+                                  WebRequest request, Model model) {
+        if (ListETag.notModified(request, service.modificationCount())) {
+            return null;
+        }
+        Page<Product> productPage = service.findPage(page, size, cursor, before);
+        model.addAttribute("products", productPage.getContent());
+        model.addAttribute("page", productPage);
+        return "ProductList";
+    }
+
+    @GetMapping("/search")
+    public String searchProductPage(@RequestParam(value = "q", defaultValue = "") String query,
+                                    @RequestParam(value = "size", defaultValue = "20") int size,
+                                    Model model) {
+        model.addAttribute("products", service.search(query, size));
+        model.addAttribute("query", query);
         return "ProductList";
     }
 
@@ -51,15 +70,21 @@ public class ProductController {
         return "EditProduct";
     }
 
+    // A stale form is shown again with the current product, so the user can redo the edit on top of it
     @PostMapping("/edit")
     public String editProductPost(@ModelAttribute Product product, Model model) {
-        service.update(product);
+        UpdateResult<Product> result = service.update(product);
+        if (result.isConflict()) {
+            model.addAttribute("product", result.getEntity());
+            model.addAttribute("conflict", true);
+            return "EditProduct";
+        }
         return "redirect:list";
     }
 
     @GetMapping("/delete/{id}")
     public String deleteProduct(@PathVariable("id") String productId) {
         service.delete(productId);
-        return "ProductList";
+        return "redirect:/product/list";
     }
 }
\ No newline at end of file
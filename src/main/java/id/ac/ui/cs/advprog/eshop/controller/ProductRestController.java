@@ -0,0 +1,145 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/products")
+public class ProductRestController {
+    private static final List<String> CSV_HEADER = List.of("productId", "productName", "productQuantity");
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> listProducts() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonArrayStream.of(objectMapper, service.iterateAll()));
+    }
+
+    // At most limit products, capped like a page; a range with min above max is a 400
+    @GetMapping("/quantity")
+    public List<Product> findByQuantityRange(@RequestParam(value = "min", defaultValue = "0") int min,
+                                             @RequestParam(value = "max", defaultValue = "" + Integer.MAX_VALUE) int max,
+                                             @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return service.findByQuantityRange(min, max, limit);
+    }
+
+    @PostMapping("/import")
+    public ImportReport importProducts(@RequestParam(value = "format", defaultValue = BulkFormat.NDJSON) String format,
+                                       InputStream body) throws IOException {
+        Iterator<Product> products = switch (format) {
+            case BulkFormat.NDJSON -> BulkFormat.readNdjson(objectMapper, body, Product.class);
+            case BulkFormat.CSV -> BulkFormat.readCsv(body, ProductRestController::fromCsv);
+            default -> throw BulkFormat.unsupported(format);
+        };
+        return service.importProducts(products);
+    }
+
+    @PostMapping("/batch")
+    public BatchResult<Product> createAll(@RequestBody List<Product> products) {
+        return service.createAll(products);
+    }
+
+    @PutMapping("/batch")
+    public BatchResult<Product> updateAll(@RequestBody List<Product> products) {
+        return service.updateAll(products);
+    }
+
+    // Takes the IDs in the body, which DELETE requests are not guaranteed to carry
+    @PostMapping("/batch/delete")
+    public BatchResult<Product> deleteAll(@RequestBody List<String> productIds) {
+        return service.deleteAll(productIds);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", defaultValue = BulkFormat.NDJSON) String format) {
+        MediaType mediaType = BulkFormat.mediaType(format);
+        StreamingResponseBody body = format.equals(BulkFormat.CSV)
+                ? BulkFormat.writeCsv(CSV_HEADER, service.iterateAll(), ProductRestController::toCsv)
+                : BulkFormat.writeNdjson(objectMapper, service.iterateAll());
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    private static Product fromCsv(Map<String, String> row) {
+        Product product = new Product();
+        product.setProductId(row.get("productId"));
+        product.setProductName(row.get("productName"));
+        String quantity = row.get("productQuantity");
+        product.setProductQuantity((quantity == null || quantity.isEmpty()) ? 0 : Integer.parseInt(quantity.trim()));
+        return product;
+    }
+
+    private static List<?> toCsv(Product product) {
+        return Arrays.asList(product.getProductId(), product.getProductName(), product.getProductQuantity());
+    }
+
+    @GetMapping("/{id}")
+    public Product getProduct(@PathVariable("id") String productId) {
+        return service.findById(productId);
+    }
+
+    @PostMapping
+    public ResponseEntity<Product> createProduct(@RequestBody Product product) {
+        Product created = service.create(product);
+        return ResponseEntity.created(URI.create("/api/products/" + created.getProductId())).body(created);
+    }
+
+    // The body carries the version it was read at; a stale version is answered with 409 Conflict
+    @PutMapping("/{id}")
+    public Product updateProduct(@PathVariable("id") String productId, @RequestBody Product product) {
+        product.setProductId(productId);
+        UpdateResult<Product> result = service.update(product);
+        if (result.isConflict()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Product with ID " + productId
+                    + " has been changed since version " + product.getVersion() + ".");
+        }
+        return result.getEntity();
+    }
+
+    // Not enough stock is a conflict with the current state of the product, not a malformed request
+    @PostMapping("/{id}/reserve")
+    public Product reserveProduct(@PathVariable("id") String productId, @RequestParam("quantity") int quantity) {
+        Product reserved = service.reserve(productId, quantity);
+        if (reserved == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Not enough stock to reserve " + quantity
+                    + " of product " + productId + ".");
+        }
+        return reserved;
+    }
+
+    @PostMapping("/{id}/release")
+    public Product releaseProduct(@PathVariable("id") String productId, @RequestParam("quantity") int quantity) {
+        return service.release(productId, quantity);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProduct(@PathVariable("id") String productId) {
+        service.delete(productId);
+        return ResponseEntity.noContent().build();
+    }
+}
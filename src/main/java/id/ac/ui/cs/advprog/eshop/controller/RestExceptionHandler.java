@@ -0,0 +1,44 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import id.ac.ui.cs.advprog.eshop.repository.DuplicateIdException;
+import id.ac.ui.cs.advprog.eshop.repository.ProductNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Turns the exceptions thrown behind the JSON API into problem details with a matching status code.
+ * It only applies to the REST controllers; the Thymeleaf pages keep their own error handling.
+ */
+@RestControllerAdvice(assignableTypes = {ProductRestController.class, CarRestController.class})
+public class RestExceptionHandler {
+
+    @ExceptionHandler(ProductNotFoundException.class)
+    public ResponseEntity<ProblemDetail> handleNotFound(ProductNotFoundException exception) {
+        return problem(HttpStatus.NOT_FOUND, exception.getMessage());
+    }
+
+    // A create that names an ID already in use is refused rather than replacing that resource
+    @ExceptionHandler(DuplicateIdException.class)
+    public ResponseEntity<ProblemDetail> handleDuplicate(DuplicateIdException exception) {
+        return problem(HttpStatus.CONFLICT, exception.getMessage());
+    }
+
+    // Every other IllegalArgumentException from the services is a validation failure
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleInvalidInput(IllegalArgumentException exception) {
+        return problem(HttpStatus.BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ProblemDetail> handleStatus(ResponseStatusException exception) {
+        return ResponseEntity.status(exception.getStatusCode()).body(exception.getBody());
+    }
+
+    private static ResponseEntity<ProblemDetail> problem(HttpStatus status, String detail) {
+        return ResponseEntity.status(status).body(ProblemDetail.forStatusAndDetail(status, detail));
+    }
+}
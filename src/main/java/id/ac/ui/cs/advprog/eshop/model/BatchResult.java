@@ -0,0 +1,28 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch write: the items that were applied, in request order, and one failure per item
+ * that was rejected. A rejected item never stops the rest of the batch.
+ */
+@Getter
+public class BatchResult<T> {
+    private final List<T> succeeded;
+    private final List<Failure> failures;
+
+    // index is the item's position in the request
+    public record Failure(int index, String message) {
+    }
+
+    public BatchResult(List<T> succeeded, List<Failure> failures) {
+        this.succeeded = succeeded;
+        this.failures = failures;
+    }
+
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+}
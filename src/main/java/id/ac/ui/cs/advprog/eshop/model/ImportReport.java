@@ -0,0 +1,39 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a bulk import. Only the first {@link #MAX_REPORTED_FAILURES} rejected records are kept,
+ * so the report stays small however many records are rejected; their index counts from the first record.
+ */
+@Getter
+public class ImportReport {
+    public static final int MAX_REPORTED_FAILURES = 100;
+
+    private long imported;
+    private long rejected;
+    private final List<BatchResult.Failure> failures = new ArrayList<>();
+
+    // Adds the outcome of one batch whose first item was record number offset
+    public void add(BatchResult<?> batch, long offset) {
+        imported += batch.getSucceeded().size();
+        rejected += batch.getFailures().size();
+        for (BatchResult.Failure failure : batch.getFailures()) {
+            if (failures.size() == MAX_REPORTED_FAILURES) {
+                break;
+            }
+            failures.add(new BatchResult.Failure((int) (offset + failure.index()), failure.message()));
+        }
+    }
+
+    // Counts a record that could not even be read, such as a malformed line
+    public void reject(long index, String message) {
+        rejected++;
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+            failures.add(new BatchResult.Failure((int) index, message));
+        }
+    }
+}
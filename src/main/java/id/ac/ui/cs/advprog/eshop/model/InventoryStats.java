@@ -0,0 +1,37 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Dashboard figures of the whole inventory: product and car counts, their total stock, the stock of cars per
+ * color, how the product quantities are distributed, and the products with the most stock.
+ */
+@Getter
+public class InventoryStats {
+    private final long productCount;
+    private final long productStock;
+    private final List<QuantityBucket> quantityHistogram;
+    private final List<Product> topProducts;
+    private final long carCount;
+    private final long carStock;
+    private final SortedMap<String, Long> carStockByColor;
+
+    // Number of products with a quantity in [min, max]
+    public record QuantityBucket(int min, int max, long products) {
+    }
+
+    public InventoryStats(long productCount, long productStock, List<QuantityBucket> quantityHistogram,
+                          List<Product> topProducts, long carCount, long carStock,
+                          SortedMap<String, Long> carStockByColor) {
+        this.productCount = productCount;
+        this.productStock = productStock;
+        this.quantityHistogram = quantityHistogram;
+        this.topProducts = topProducts;
+        this.carCount = carCount;
+        this.carStock = carStock;
+        this.carStockByColor = carStockByColor;
+    }
+}
@@ -0,0 +1,38 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a listing. {@code nextCursor} and {@code previousCursor} are opaque keyset
+ * positions that can be passed back to continue right after the last item or right before
+ * the first one; each is null when there is nothing further in that direction.
+ * A cursor never repeats or skips an item that existed when it was handed out. An item created later can
+ * still land before it, in a lagging shard of a {@code ShardedStore} or in a reused row of the columnar
+ * store, and is then only seen by paging from the start again.
+ */
+@Getter
+public class Page<T> {
+    private final List<T> content;
+    private final int page;
+    private final int size;
+    private final Long nextCursor;
+    private final Long previousCursor;
+
+    public Page(List<T> content, int page, int size, Long nextCursor, Long previousCursor) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.nextCursor = nextCursor;
+        this.previousCursor = previousCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isHasPrevious() {
+        return previousCursor != null;
+    }
+}
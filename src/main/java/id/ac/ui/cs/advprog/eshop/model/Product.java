@@ -8,5 +8,6 @@ public class Product {
     private String productId;
     private String productName;
     private int productQuantity;
+    private long version; // Bumped by every update, so a stale edit can be detected
 }
 
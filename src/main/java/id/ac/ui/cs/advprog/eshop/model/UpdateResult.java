@@ -0,0 +1,27 @@
+package id.ac.ui.cs.advprog.eshop.model;
+
+import lombok.Getter;
+
+/**
+ * Outcome of an optimistic update. On success {@code entity} is the stored entity with its new version;
+ * on a conflict the update was not applied and {@code entity} is the current one, which someone else
+ * changed after the caller read it.
+ */
+@Getter
+public class UpdateResult<T> {
+    private final T entity;
+    private final boolean conflict;
+
+    private UpdateResult(T entity, boolean conflict) {
+        this.entity = entity;
+        this.conflict = conflict;
+    }
+
+    public static <T> UpdateResult<T> updated(T entity) {
+        return new UpdateResult<>(entity, false);
+    }
+
+    public static <T> UpdateResult<T> conflict(T current) {
+        return new UpdateResult<>(current, true);
+    }
+}
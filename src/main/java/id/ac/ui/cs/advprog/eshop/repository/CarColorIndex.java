@@ -0,0 +1,134 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Facet index of cars by {@code carColor}, kept up to date as a {@link StoreListener}.
+ * Every color holds its car IDs keyed by store position, so a filtered listing pages with the same
+ * cursors as the unfiltered one, and a running count, so the facet counts never need a scan.
+ * Colors are matched exactly; cars without a color are left out. A color's facet is dropped with its
+ * last car, so free-text colors that come and go do not pile up.
+ */
+public class CarColorIndex implements StoreListener<Car> {
+    private static class Facet {
+        private final ConcurrentNavigableMap<Long, String> members = new ConcurrentSkipListMap<>();
+        private final AtomicInteger count = new AtomicInteger();
+    }
+
+    // Facets are only created and dropped inside compute calls on their color, so a car joining a facet
+    // never lands in one that is being dropped at the same time
+    private final ConcurrentHashMap<String, Facet> facets = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPut(String id, long position, Car previous, Car current) {
+        String previousColor = (previous == null) ? null : previous.getCarColor();
+        if (previous != null && Objects.equals(previousColor, current.getCarColor())) {
+            return;
+        }
+        leave(previousColor, position);
+        join(current.getCarColor(), position, id);
+    }
+
+    @Override
+    public void onRemove(String id, long position, Car removed) {
+        leave(removed.getCarColor(), position);
+    }
+
+    private void join(String color, long position, String id) {
+        if (color == null) {
+            return;
+        }
+        facets.compute(color, (key, facet) -> {
+            Facet joined = (facet == null) ? new Facet() : facet;
+            if (joined.members.put(position, id) == null) {
+                joined.count.incrementAndGet();
+            }
+            return joined;
+        });
+    }
+
+    private void leave(String color, long position) {
+        if (color == null) {
+            return;
+        }
+        facets.computeIfPresent(color, (key, facet) -> {
+            if (facet.members.remove(position) != null) {
+                facet.count.decrementAndGet();
+            }
+            return (facet.count.get() == 0) ? null : facet;
+        });
+    }
+
+    // Number of cars per color, in color order
+    public SortedMap<String, Integer> counts() {
+        SortedMap<String, Integer> counts = new TreeMap<>();
+        facets.forEach((color, facet) -> {
+            int count = facet.count.get();
+            if (count > 0) {
+                counts.put(color, count);
+            }
+        });
+        return counts;
+    }
+
+    // Number of colors that currently have a facet
+    int colors() {
+        return facets.size();
+    }
+
+    public int count(String color) {
+        Facet facet = facets.get(color);
+        return (facet == null) ? 0 : facet.count.get();
+    }
+
+    // Keyset page over one color: cars after the given cursor, or before it when {@code backwards} is set
+    public EntityStore.Slice<Car> slice(String color, long cursor, boolean backwards, int limit,
+                                                  Function<String, Car> lookup) {
+        Facet facet = facets.get(color);
+        if (facet == null) {
+            return new EntityStore.Slice<>(List.of(), null, null);
+        }
+
+        Iterator<Map.Entry<Long, String>> source = backwards
+                ? facet.members.headMap(cursor, false).descendingMap().entrySet().iterator()
+                : facet.members.tailMap(cursor, false).entrySet().iterator();
+        List<Long> positions = new ArrayList<>(limit);
+        List<Car> cars = new ArrayList<>(limit);
+        while (cars.size() < limit && source.hasNext()) {
+            Map.Entry<Long, String> entry = source.next();
+            // The index is updated just before the store, so skip a car that is mid-way through a recolor
+            Car car = lookup.apply(entry.getValue());
+            if (car != null && color.equals(car.getCarColor())) {
+                positions.add(entry.getKey());
+                cars.add(car);
+            }
+        }
+        if (cars.isEmpty()) {
+            return new EntityStore.Slice<>(List.of(), null, null);
+        }
+        if (backwards) {
+            Collections.reverse(positions);
+            Collections.reverse(cars);
+        }
+
+        long first = positions.get(0);
+        long last = positions.get(positions.size() - 1);
+        return new EntityStore.Slice<>(cars,
+                facet.members.lowerKey(first) != null ? first : null,
+                facet.members.higherKey(last) != null ? last : null);
+    }
+}
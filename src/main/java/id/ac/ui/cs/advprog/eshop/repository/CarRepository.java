@@ -1,54 +1,296 @@
 package id.ac.ui.cs.advprog.eshop.repository;
 
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
 import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.EntityCodec;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.OperationLog;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Repository
+@Timed("eshop.repository")
 public class CarRepository {
-    static int id = 0;
-    private List<Car> carData = new ArrayList<>();
+    private final EntityStore<Car> carData;
+    private final CarColorIndex colorIndex = new CarColorIndex();
+    private final CarStockStats stockStats = new CarStockStats();
+    private final IdGenerator idGenerator;
+
+    public CarRepository() {
+        this(new InsertionOrderedStore<>());
+    }
+
+    public CarRepository(EntityStore<Car> carData) {
+        this(carData, IdGenerator.timeOrderedUuid());
+    }
+
+    // Keeps the cars in the given, still empty store instead of the default one
+    // The index and stock figures are registered before any data is loaded so that log replay fills them too
+    @Autowired
+    public CarRepository(EntityStore<Car> carData, IdGenerator idGenerator) {
+        this.carData = carData;
+        this.idGenerator = idGenerator;
+        carData.addListener(colorIndex);
+        carData.addListener(stockStats);
+    }
+
+    // Rebuild the data from the log, then persist every later write to it
+    public void enablePersistence(OperationLog<Car> operationLog) throws IOException {
+        operationLog.attach(carData);
+    }
 
+    // An ID that is already stored is refused, never replaced
     public Car create(Car car) {
-        if (car.getCarId() == null) {
-            UUID uuid = UUID.randomUUID();
-            car.setCarId(uuid.toString());
+        validateLengths(car);
+        assignId(car);
+        car.setVersion(0);
+        if (carData.putIfAbsent(car.getCarId(), car) != null) {
+            throw new DuplicateIdException(alreadyExists(car.getCarId()));
         }
-        carData.add(car);
         return car;
     }
 
+    // Create many cars at once; null entries and taken or repeated IDs are reported and the other cars are still stored
+    public BatchResult<Car> createAll(List<Car> cars) {
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        Map<Integer, Car> valid = new LinkedHashMap<>();
+        Map<String, Car> entries = new LinkedHashMap<>();
+        for (int i = 0; i < cars.size(); i++) {
+            Car car = cars.get(i);
+            if (car == null) {
+                failures.add(new BatchResult.Failure(i, "Car cannot be null."));
+                continue;
+            }
+            try {
+                validateLengths(car);
+            } catch (IllegalArgumentException e) {
+                failures.add(new BatchResult.Failure(i, e.getMessage()));
+                continue;
+            }
+            assignId(car);
+            car.setVersion(0);
+            // Of two creates with one ID only the first can apply
+            if (entries.putIfAbsent(car.getCarId(), car) != null) {
+                failures.add(new BatchResult.Failure(i, alreadyExists(car.getCarId())));
+                continue;
+            }
+            valid.put(i, car);
+        }
+
+        Map<String, Car> rejected = carData.putAllIfAbsent(entries);
+        List<Car> created = new ArrayList<>(valid.size());
+        valid.forEach((i, car) -> {
+            if (rejected.containsKey(car.getCarId())) {
+                failures.add(new BatchResult.Failure(i, alreadyExists(car.getCarId())));
+            } else {
+                created.add(car);
+            }
+        });
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::index));
+        return new BatchResult<>(created, failures);
+    }
+
+    private static String alreadyExists(String carId) {
+        return "Car with ID " + carId + " already exists.";
+    }
+
+    // The operation log cannot encode longer strings, and would only find out after the store took the write
+    private static void validateLengths(Car car) {
+        if (!EntityCodec.fits(car.getCarId())) {
+            throw new IllegalArgumentException("Car ID cannot be longer than " + EntityCodec.MAX_STRING_BYTES + " bytes.");
+        }
+        if (!EntityCodec.fits(car.getCarName())) {
+            throw new IllegalArgumentException("Car name cannot be longer than " + EntityCodec.MAX_STRING_BYTES + " bytes.");
+        }
+        if (!EntityCodec.fits(car.getCarColor())) {
+            throw new IllegalArgumentException("Car color cannot be longer than " + EntityCodec.MAX_STRING_BYTES + " bytes.");
+        }
+    }
+
+    // Update many cars at once, each identified by its own carId and checked against the version it was read at
+    public BatchResult<Car> updateAll(List<Car> updatedCars) {
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        Map<Integer, Car> valid = new LinkedHashMap<>();
+        Map<String, Car> entries = new LinkedHashMap<>();
+        for (int i = 0; i < updatedCars.size(); i++) {
+            Car updatedCar = updatedCars.get(i);
+            if (updatedCar == null || updatedCar.getCarId() == null) {
+                failures.add(new BatchResult.Failure(i, "Car ID cannot be empty."));
+                continue;
+            }
+            try {
+                validateLengths(updatedCar);
+            } catch (IllegalArgumentException e) {
+                failures.add(new BatchResult.Failure(i, e.getMessage()));
+                continue;
+            }
+            Car car = nextVersionOf(updatedCar.getCarId(), updatedCar);
+            // Of two updates to one ID read at the same version only the first can apply
+            entries.putIfAbsent(car.getCarId(), car);
+            valid.put(i, car);
+        }
+
+        Map<String, Car> rejected = carData.replaceAll(entries, CarRepository::isNextVersion);
+        List<Car> updated = new ArrayList<>(valid.size());
+        valid.forEach((i, car) -> {
+            if (rejected.containsKey(car.getCarId()) && rejected.get(car.getCarId()) == null) {
+                failures.add(new BatchResult.Failure(i, "Car with ID " + car.getCarId() + " not found."));
+            } else if (rejected.containsKey(car.getCarId()) || entries.get(car.getCarId()) != car) {
+                failures.add(new BatchResult.Failure(i, "Car with ID " + car.getCarId() + " has been changed since version "
+                        + (car.getVersion() - 1) + "."));
+            } else {
+                updated.add(car);
+            }
+        });
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::index));
+        return new BatchResult<>(updated, failures);
+    }
+
+    // Delete many cars at once; returns the deleted cars and reports the unknown IDs
+    public BatchResult<Car> deleteAll(List<String> carIds) {
+        List<String> valid = new ArrayList<>(carIds.size());
+        for (String carId : carIds) {
+            if (carId != null) {
+                valid.add(carId);
+            }
+        }
+
+        Map<String, Car> removed = carData.removeAll(valid);
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        List<Car> deleted = new ArrayList<>(removed.size());
+        for (int i = 0; i < carIds.size(); i++) {
+            if (carIds.get(i) == null) {
+                failures.add(new BatchResult.Failure(i, "Car ID cannot be empty."));
+                continue;
+            }
+            // A repeated ID is only deleted once, so later occurrences are reported as not found
+            Car car = removed.remove(carIds.get(i));
+            if (car != null) {
+                deleted.add(car);
+            } else {
+                failures.add(new BatchResult.Failure(i, "Car with ID " + carIds.get(i) + " not found."));
+            }
+        }
+        return new BatchResult<>(deleted, failures);
+    }
+
+    // A copy of the car carrying the version its update will produce
+    private static Car nextVersionOf(String id, Car source) {
+        Car car = new Car();
+        car.setCarId(id);
+        car.setCarName(source.getCarName());
+        car.setCarColor(source.getCarColor());
+        car.setCarQuantity(source.getCarQuantity());
+        car.setVersion(source.getVersion() + 1);
+        return car;
+    }
+
+    private static boolean isNextVersion(Car current, Car replacement) {
+        return replacement.getVersion() == current.getVersion() + 1;
+    }
+
+    private void assignId(Car car) {
+        if (car.getCarId() == null) {
+            car.setCarId(idGenerator.nextId());
+        }
+    }
+
     public Iterator<Car> findAll() {
         return carData.iterator();
     }
 
+    // Weakly consistent parallel stream over the stored cars, split along the store without copying it
+    public Stream<Car> parallelStream() {
+        return StreamSupport.stream(carData.spliterator(), true);
+    }
+
+    public long modificationCount() {
+        return carData.modificationCount();
+    }
+
+    public long count() {
+        return carData.size();
+    }
+
     public Car findById(String id) {
-        for (Car car : carData) {
-            if (car.getCarId().equals(id)) {
-                return car;
-            }
+        if (id == null) {
+            return null;
         }
-        return null;
+        return carData.get(id);
     }
 
-    public Car update(String id, Car updatedCar) {
-        for (int i = 0; i < carData.size(); i++) {
-            Car car = carData.get(i);
-            if (car.getCarId().equals(id)) {
-                // Update the existing car with the new information
-                car.setCarName(updatedCar.getCarName());
-                car.setCarColor(updatedCar.getCarColor());
-                car.setCarQuantity(updatedCar.getCarQuantity());
-                return car;
-            }
+    // Only applies on top of the version the car was read at; returns null when there is no car with this ID
+    public UpdateResult<Car> update(String id, Car updatedCar) {
+        if (id == null) {
+            return null;
         }
-        return null; // Handle the case where the car is not found
+        // Build a fresh car and swap it in, so readers see either the old car or the new one
+        Car car = nextVersionOf(id, updatedCar);
+        validateLengths(car);
+        Car stored = carData.replace(id, car, CarRepository::isNextVersion);
+        if (stored == null) {
+            return null; // Handle the case where the car is not found
+        }
+        return (stored == car) ? UpdateResult.updated(car) : UpdateResult.conflict(stored);
+    }
+
+    // Returns false when there was no car with this ID
+    public boolean delete(String id) {
+        if (id == null) {
+            return false;
+        }
+        return carData.remove(id) != null;
+    }
+
+    // Keyset pagination on insertion order: the page after one cursor, or the page before another
+    public Page<Car> findPage(Long after, Long before, int size) {
+        EntityStore.Slice<Car> slice;
+        if (after != null) {
+            slice = carData.after(after, size);
+        } else if (before != null) {
+            slice = carData.before(before, size);
+        } else {
+            slice = carData.after(0, size);
+        }
+        return new Page<>(slice.items(), 0, size, slice.nextCursor(), slice.previousCursor());
+    }
+
+    // Same keyset pagination, restricted to cars of one color
+    public Page<Car> findPageByColor(String color, Long after, Long before, int size) {
+        EntityStore.Slice<Car> slice;
+        if (after != null) {
+            slice = colorIndex.slice(color, after, false, size, carData::get);
+        } else if (before != null) {
+            slice = colorIndex.slice(color, before, true, size, carData::get);
+        } else {
+            slice = colorIndex.slice(color, 0, false, size, carData::get);
+        }
+        return new Page<>(slice.items(), 0, size, slice.nextCursor(), slice.previousCursor());
+    }
+
+    public SortedMap<String, Integer> countByColor() {
+        return colorIndex.counts();
+    }
+
+    // Sum of all car quantities, kept as the cars are written
+    public long totalStock() {
+        return stockStats.total();
     }
 
-    public void delete(String id) {
-        carData.removeIf(car -> car.getCarId().equals(id));
+    public SortedMap<String, Long> stockByColor() {
+        return stockStats.byColor();
     }
 }
@@ -0,0 +1,61 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running stock figures of the cars, kept up to date as a {@link StoreListener}: the total quantity and the
+ * quantity per {@code carColor}. Like {@link ProductStockStats} every figure is a {@link LongAdder}.
+ * Cars without a color count towards the total only.
+ */
+public class CarStockStats implements StoreListener<Car> {
+    private final LongAdder total = new LongAdder();
+    // Colors are never removed once seen, like the facets of CarColorIndex
+    private final ConcurrentHashMap<String, LongAdder> byColor = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPut(String id, long position, Car previous, Car current) {
+        if (previous != null) {
+            if (previous.getCarQuantity() == current.getCarQuantity()
+                    && Objects.equals(previous.getCarColor(), current.getCarColor())) {
+                return;
+            }
+            add(previous, -1);
+        }
+        add(current, 1);
+    }
+
+    @Override
+    public void onRemove(String id, long position, Car removed) {
+        add(removed, -1);
+    }
+
+    private void add(Car car, int sign) {
+        long quantity = (long) sign * car.getCarQuantity();
+        total.add(quantity);
+        if (car.getCarColor() != null) {
+            byColor.computeIfAbsent(car.getCarColor(), color -> new LongAdder()).add(quantity);
+        }
+    }
+
+    public long total() {
+        return total.sum();
+    }
+
+    // Quantity per color, in color order; colors without any stock are skipped
+    public SortedMap<String, Long> byColor() {
+        SortedMap<String, Long> totals = new TreeMap<>();
+        byColor.forEach((color, quantity) -> {
+            long sum = quantity.sum();
+            if (sum != 0) {
+                totals.put(color, sum);
+            }
+        });
+        return totals;
+    }
+}
@@ -0,0 +1,67 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.UUID;
+
+/**
+ * IDs in the canonical lower-case form of {@link UUID#toString()}, which is what the repositories generate,
+ * packed into two {@code long}s so that a store can keep and compare them without a {@link String}.
+ * Only that exact form is packed, so unpacking always gives back the ID as it was given; anything else,
+ * such as upper-case UUIDs or client-chosen IDs, stays a string.
+ */
+public final class CompactId {
+    public static final int LENGTH = 36;
+
+    private CompactId() {
+    }
+
+    public static boolean isCompact(String id) {
+        if (id == null || id.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = id.charAt(i);
+            boolean valid = (i == 8 || i == 13 || i == 18 || i == 23) ? c == '-' : hex(c) >= 0;
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The first 64 bits of a compact ID; only defined when isCompact(id) holds
+    public static long high(String id) {
+        return bits(id, 0, 8) << 32 | bits(id, 9, 13) << 16 | bits(id, 14, 18);
+    }
+
+    // The last 64 bits of a compact ID; only defined when isCompact(id) holds
+    public static long low(String id) {
+        return bits(id, 19, 23) << 48 | bits(id, 24, 36);
+    }
+
+    public static String toString(long high, long low) {
+        return new UUID(high, low).toString();
+    }
+
+    public static int hash(long high, long low) {
+        long h = (high ^ Long.rotateLeft(low, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long bits(String id, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << 4 | hex(id.charAt(i));
+        }
+        return value;
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
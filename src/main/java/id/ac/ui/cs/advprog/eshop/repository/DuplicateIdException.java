@@ -0,0 +1,11 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Thrown when a create names an ID that is already stored. Like {@link ProductNotFoundException} it stays an
+ * {@link IllegalArgumentException} for existing callers, while letting the REST API answer with a conflict.
+ */
+public class DuplicateIdException extends IllegalArgumentException {
+    public DuplicateIdException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,98 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage engine behind a repository: entities by ID, kept in insertion order, where each entity's position in
+ * that order doubles as its page cursor. Implementations are thread-safe, apply the writes to any one ID
+ * atomically and in order, and notify their {@link StoreListener}s while that ID is locked.
+ * {@link InsertionOrderedStore} is the default engine.
+ */
+public interface EntityStore<T> {
+
+    /**
+     * Up to {@code limit} entities in insertion order, plus the cursors of its first and last
+     * entity when something lies before or after them (null otherwise).
+     */
+    record Slice<T>(List<T> items, Long previousCursor, Long nextCursor) {
+    }
+
+    void addListener(StoreListener<T> listener);
+
+    // Insert a new entity, or replace an existing one while keeping its position
+    void put(String id, T value);
+
+    // Like put, but a new entity takes the given position, or the next one when that is 0 or already taken
+    void restore(String id, long position, T value);
+
+    // Insert or replace many entities, then run the post-write hooks once for the whole batch
+    void putAll(Map<String, T> entries);
+
+    // Insert a new entity only if the ID is free; returns null when it was inserted, or the entity holding the ID
+    T putIfAbsent(String id, T value);
+
+    // Insert-if-absent for many entities; returns the IDs that were already taken, mapped to what is stored under them
+    Map<String, T> putAllIfAbsent(Map<String, T> entries);
+
+    /**
+     * Compare-and-set: replaces an existing entity only if {@code expected} accepts the (current, replacement)
+     * pair while the ID is locked. Returns {@code value} when it was swapped in, the untouched current entity
+     * when it was refused, or null if the ID is unknown.
+     */
+    T replace(String id, T value, BiPredicate<? super T, ? super T> expected);
+
+    // Compare-and-set for many entities; returns the IDs that were not replaced, mapped to what is stored under them
+    Map<String, T> replaceAll(Map<String, T> entries, BiPredicate<? super T, ? super T> expected);
+
+    // Replaces an existing entity with change applied to it under that ID's lock; returns what is stored afterwards
+    T update(String id, UnaryOperator<T> change);
+
+    // Remove an entity; returns the removed value, or null if the ID is unknown
+    T remove(String id);
+
+    // Remove many entities, then run the post-write hooks once; returns the removed values by ID
+    Map<String, T> removeAll(Collection<String> ids);
+
+    T get(String id);
+
+    boolean contains(String id);
+
+    int size();
+
+    // Number of writes applied so far; equal counts mean the entities have not changed in between
+    long modificationCount();
+
+    // Weakly consistent, read-only iterator in insertion order
+    Iterator<T> iterator();
+
+    /**
+     * Weakly consistent spliterator over the entities for parallel streams. It splits along the store's own
+     * layout instead of buffering an iterator, so a parallel scan never copies the entities first; it does not
+     * promise insertion order.
+     */
+    Spliterator<T> spliterator();
+
+    // Weakly consistent, read-only iterator over the entities keyed by position, in insertion order
+    Iterator<Map.Entry<Long, T>> entries();
+
+    // Like entries, but starting right after the given position
+    Iterator<Map.Entry<Long, T>> entriesAfter(long cursor);
+
+    // Like entries, but backwards from right before the given position
+    Iterator<Map.Entry<Long, T>> entriesBefore(long cursor);
+
+    // Keyset page: entities inserted after the given cursor
+    Slice<T> after(long cursor, int limit);
+
+    // Keyset page: the entities inserted right before the given cursor, still in insertion order
+    Slice<T> before(long cursor, int limit);
+
+    // Offset page: skips the first offset entities, then reads one page
+    Slice<T> skip(long offset, int limit);
+}
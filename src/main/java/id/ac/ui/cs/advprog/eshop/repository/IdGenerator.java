@@ -0,0 +1,23 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.UUID;
+
+/**
+ * Source of the IDs the repositories give to new entities that arrive without one. Implementations are
+ * thread-safe and produce IDs in the canonical form of {@link UUID#toString()}, so that stores can keep them
+ * as a {@link CompactId}.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    String nextId();
+
+    // Version 4 UUIDs from the JDK's shared SecureRandom
+    static IdGenerator randomUuid() {
+        return () -> UUID.randomUUID().toString();
+    }
+
+    static IdGenerator timeOrderedUuid() {
+        return new TimeOrderedIdGenerator(System::currentTimeMillis);
+    }
+}
@@ -0,0 +1,378 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe storage engine shared by the repositories.
+ * Entities are indexed by ID in a {@link ConcurrentHashMap} for O(1) lookups,
+ * while a skip list keyed by an insertion sequence keeps {@link #iterator()} in insertion order.
+ * Writes to the same ID are serialized by that ID's hash bin lock; readers never block and
+ * always see either the old or the new value of an entity, never a mix of both.
+ * {@link StoreListener}s are notified inside that same critical section, so they observe the
+ * writes to any one ID in the order they were applied.
+ * Replacements are compare-and-set: the caller's condition is checked under the same lock, so optimistic
+ * version checks need no lock of their own.
+ * The batch variants ({@link #putAll}, {@link #replaceAll}, {@link #removeAll}) still lock one ID at a time,
+ * but run {@link StoreListener#afterWrite} once for the whole batch. Every write first runs
+ * {@link StoreListener#beforeWrite}, and runs {@link StoreListener#afterWrite} even when it fails partway.
+ * {@link #modificationCount()} goes up after every write has become visible, so anything derived from the
+ * entities and tagged with the count read beforehand is at worst tagged too old, never too new.
+ */
+public class InsertionOrderedStore<T> implements EntityStore<T> {
+    private final ConcurrentHashMap<String, Slot<T>> index = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, T> ordered = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong modifications = new AtomicLong();
+    private final List<StoreListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    private record Slot<T>(long sequence, T value) {
+    }
+
+    @Override
+    public void addListener(StoreListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    // Insert a new entity, or replace an existing one while keeping its position
+    @Override
+    public void put(String id, T value) {
+        write(() -> {
+            insert(id, 0, value);
+            return value;
+        }, stored -> true);
+    }
+
+    /**
+     * Like {@link #put}, but a new entity takes the given position instead of the next one, so a store
+     * rebuilt from a log keeps the order of the original even when concurrent inserts were logged out of
+     * sequence. Later inserts are placed after it. A position of 0 behaves like {@link #put}, and so does a
+     * position that another entity already holds, which a log only asks for when it is restored into a
+     * differently sharded store.
+     */
+    @Override
+    public void restore(String id, long position, T value) {
+        write(() -> {
+            sequence.accumulateAndGet(position, Math::max);
+            insert(id, position, value);
+            return value;
+        }, stored -> true);
+    }
+
+    // Insert or replace many entities, then run the post-write hooks once for the whole batch
+    @Override
+    public void putAll(Map<String, T> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        beforeWrite();
+        // Entities inserted before a failing one stay, so their hooks must still run
+        try {
+            entries.forEach((id, value) -> insert(id, 0, value));
+        } finally {
+            afterWrite();
+        }
+    }
+
+    // A new entity takes the given position, or the next one when that is 0 or taken
+    private void insert(String id, long position, T value) {
+        index.compute(id, (key, slot) -> {
+            T previous = (slot == null) ? null : slot.value();
+            long seq = (slot != null) ? slot.sequence()
+                    : (position != 0 && !ordered.containsKey(position)) ? position : sequence.incrementAndGet();
+            listeners.forEach(listener -> listener.onPut(id, seq, previous, value));
+            ordered.put(seq, value);
+            return new Slot<>(seq, value);
+        });
+    }
+
+    /**
+     * Inserts a new entity only if no entity holds the ID yet, deciding that under the ID's lock, so two
+     * creates with one ID can never both succeed. Returns null when it was inserted, or the entity already
+     * stored under the ID, which is left untouched.
+     */
+    @Override
+    public T putIfAbsent(String id, T value) {
+        return write(() -> add(id, value), stored -> stored == null);
+    }
+
+    // Insert-if-absent for many entities, then run the post-write hooks once; returns the taken IDs with their entities
+    @Override
+    public Map<String, T> putAllIfAbsent(Map<String, T> entries) {
+        Map<String, T> rejected = new HashMap<>();
+        if (entries.isEmpty()) {
+            return rejected;
+        }
+        beforeWrite();
+        try {
+            entries.forEach((id, value) -> {
+                T stored = add(id, value);
+                if (stored != null) {
+                    rejected.put(id, stored);
+                }
+            });
+        } finally {
+            afterWrite();
+        }
+        return rejected;
+    }
+
+    private T add(String id, T value) {
+        AtomicReference<T> existing = new AtomicReference<>();
+        index.compute(id, (key, slot) -> {
+            if (slot != null) {
+                existing.set(slot.value());
+                return slot;
+            }
+            long seq = sequence.incrementAndGet();
+            listeners.forEach(listener -> listener.onPut(id, seq, null, value));
+            ordered.put(seq, value);
+            return new Slot<>(seq, value);
+        });
+        return existing.get();
+    }
+
+    /**
+     * Compare-and-set: replaces an existing entity in place, but only if {@code expected} accepts the
+     * (current, replacement) pair while the ID is locked. Returns the entity stored under the ID afterwards:
+     * {@code value} when it was swapped in, the untouched current entity when it was refused, or null if
+     * the ID is unknown.
+     */
+    @Override
+    public T replace(String id, T value, BiPredicate<? super T, ? super T> expected) {
+        return write(() -> swap(id, value, expected), stored -> stored == value);
+    }
+
+    /**
+     * Compare-and-set for many entities, then runs the post-write hooks once. Returns the IDs that were not
+     * replaced, each mapped to the entity still stored under it, or to null if the ID is unknown.
+     */
+    @Override
+    public Map<String, T> replaceAll(Map<String, T> entries, BiPredicate<? super T, ? super T> expected) {
+        Map<String, T> rejected = new HashMap<>();
+        beforeWrite();
+        try {
+            entries.forEach((id, value) -> {
+                T stored = swap(id, value, expected);
+                if (stored != value) {
+                    rejected.put(id, stored);
+                }
+            });
+        } finally {
+            afterWrite();
+        }
+        return rejected;
+    }
+
+    private T swap(String id, T value, BiPredicate<? super T, ? super T> expected) {
+        return transform(id, current -> expected.test(current, value) ? value : current);
+    }
+
+    /**
+     * Atomically replaces an existing entity with {@code change} applied to it, all under that ID's lock, so a
+     * read-check-write such as a stock decrement needs no retry loop. {@code change} may return its argument to
+     * leave the entity as it is, or throw to abort. Returns the entity stored afterwards, or null if the ID is unknown.
+     */
+    @Override
+    public T update(String id, UnaryOperator<T> change) {
+        AtomicBoolean changed = new AtomicBoolean();
+        return write(() -> transform(id, current -> {
+            T value = change.apply(current);
+            changed.set(value != current);
+            return value;
+        }), stored -> changed.get());
+    }
+
+    private T transform(String id, UnaryOperator<T> change) {
+        Slot<T> stored = index.computeIfPresent(id, (key, slot) -> {
+            T value = change.apply(slot.value());
+            if (value == slot.value()) {
+                return slot;
+            }
+            listeners.forEach(listener -> listener.onPut(id, slot.sequence(), slot.value(), value));
+            ordered.put(slot.sequence(), value);
+            return new Slot<>(slot.sequence(), value);
+        });
+        return (stored == null) ? null : stored.value();
+    }
+
+    // Remove an entity; returns the removed value, or null if the ID is unknown
+    @Override
+    public T remove(String id) {
+        return write(() -> delete(id), removed -> removed != null);
+    }
+
+    // Remove many entities, then run the post-write hooks once; returns the removed values by ID
+    @Override
+    public Map<String, T> removeAll(Collection<String> ids) {
+        Map<String, T> removed = new HashMap<>();
+        beforeWrite();
+        try {
+            for (String id : ids) {
+                T value = delete(id);
+                if (value != null) {
+                    removed.put(id, value);
+                }
+            }
+        } finally {
+            afterWrite();
+        }
+        return removed;
+    }
+
+    private T delete(String id) {
+        AtomicReference<T> removed = new AtomicReference<>();
+        index.computeIfPresent(id, (key, slot) -> {
+            listeners.forEach(listener -> listener.onRemove(id, slot.sequence(), slot.value()));
+            ordered.remove(slot.sequence());
+            removed.set(slot.value());
+            return null;
+        });
+        return removed.get();
+    }
+
+    /**
+     * Runs one write between the listeners' hooks. A listener can refuse it in beforeWrite, before anything is
+     * touched. The post-write hooks run when {@code wrote} accepts the result, and also when the write fails
+     * partway, since a listener notified before the failure may be holding state until they run.
+     */
+    private <R> R write(Supplier<R> write, Predicate<? super R> wrote) {
+        beforeWrite();
+        boolean completed = false;
+        R result = null;
+        try {
+            result = write.get();
+            completed = true;
+        } finally {
+            if (!completed || wrote.test(result)) {
+                afterWrite();
+            }
+        }
+        return result;
+    }
+
+    private void beforeWrite() {
+        listeners.forEach(StoreListener::beforeWrite);
+    }
+
+    private void afterWrite() {
+        modifications.incrementAndGet();
+        listeners.forEach(StoreListener::afterWrite);
+    }
+
+    @Override
+    public T get(String id) {
+        Slot<T> slot = index.get(id);
+        return (slot == null) ? null : slot.value();
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    // Number of writes applied so far; equal counts mean the entities have not changed in between
+    @Override
+    public long modificationCount() {
+        return modifications.get();
+    }
+
+    // Weakly consistent, read-only iterator in insertion order
+    @Override
+    public Iterator<T> iterator() {
+        return Collections.unmodifiableCollection(ordered.values()).iterator();
+    }
+
+    // The skip list's own spliterator, which splits by walking down its index levels
+    @Override
+    public Spliterator<T> spliterator() {
+        return ordered.values().spliterator();
+    }
+
+    // Weakly consistent, read-only iterator over the entities keyed by position, in insertion order
+    @Override
+    public Iterator<Map.Entry<Long, T>> entries() {
+        return Collections.unmodifiableMap(ordered).entrySet().iterator();
+    }
+
+    // Like entries, but starting right after the given position
+    @Override
+    public Iterator<Map.Entry<Long, T>> entriesAfter(long cursor) {
+        return Collections.unmodifiableMap(ordered.tailMap(cursor, false)).entrySet().iterator();
+    }
+
+    // Like entries, but backwards from right before the given position
+    @Override
+    public Iterator<Map.Entry<Long, T>> entriesBefore(long cursor) {
+        return Collections.unmodifiableMap(ordered.headMap(cursor, false).descendingMap()).entrySet().iterator();
+    }
+
+    // Keyset page: entities inserted after the given cursor, without touching anything before it
+    @Override
+    public Slice<T> after(long cursor, int limit) {
+        return slice(ordered.tailMap(cursor, false).entrySet().iterator(), limit);
+    }
+
+    // Keyset page: the entities inserted right before the given cursor, still in insertion order
+    @Override
+    public Slice<T> before(long cursor, int limit) {
+        List<Map.Entry<Long, T>> entries = take(ordered.headMap(cursor, false).descendingMap().entrySet().iterator(), limit);
+        Collections.reverse(entries);
+        return slice(entries.iterator(), limit);
+    }
+
+    // Offset page: skips the first {@code offset} entities, then reads one page
+    @Override
+    public Slice<T> skip(long offset, int limit) {
+        Iterator<Map.Entry<Long, T>> entries = ordered.entrySet().iterator();
+        for (long i = 0; i < offset && entries.hasNext(); i++) {
+            entries.next();
+        }
+        return slice(entries, limit);
+    }
+
+    private Slice<T> slice(Iterator<Map.Entry<Long, T>> source, int limit) {
+        List<Map.Entry<Long, T>> entries = take(source, limit);
+        if (entries.isEmpty()) {
+            return new Slice<>(List.of(), null, null);
+        }
+
+        List<T> items = new ArrayList<>(entries.size());
+        entries.forEach(entry -> items.add(entry.getValue()));
+        long first = entries.get(0).getKey();
+        long last = entries.get(entries.size() - 1).getKey();
+        return new Slice<>(items,
+                ordered.lowerKey(first) != null ? first : null,
+                ordered.higherKey(last) != null ? last : null);
+    }
+
+    private static <T> List<Map.Entry<Long, T>> take(Iterator<Map.Entry<Long, T>> entries, int limit) {
+        List<Map.Entry<Long, T>> taken = new ArrayList<>(limit);
+        while (taken.size() < limit && entries.hasNext()) {
+            taken.add(entries.next());
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,180 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Inverted index from the tokens of {@code productName} to product IDs, kept up to date as a
+ * {@link StoreListener}. Tokens are lower-cased runs of letters and digits, and every query term
+ * matches the tokens it is a prefix of.
+ *
+ * <p>Postings live in a {@link ConcurrentHashMap} so that adding and removing an ID is atomic per token;
+ * the sorted token dictionary next to it is only used to find the tokens that share a prefix.
+ */
+public class ProductNameIndex implements StoreListener<Product> {
+    // Estimates of a term's postings stop counting at this multiple of the search limit
+    static final int ESTIMATE_LIMIT_FACTOR = 16;
+
+    private final ConcurrentHashMap<String, Set<String>> postings = new ConcurrentHashMap<>();
+    private final NavigableSet<String> dictionary = new ConcurrentSkipListSet<>();
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inToken = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Names only have a handful of tokens, so plain list lookups beat building sets on every write
+    @Override
+    public void onPut(String id, long position, Product previous, Product current) {
+        List<String> oldTokens = tokenize(previous == null ? null : previous.getProductName());
+        List<String> newTokens = tokenize(current.getProductName());
+        for (int i = 0; i < oldTokens.size(); i++) {
+            String token = oldTokens.get(i);
+            if (!newTokens.contains(token) && oldTokens.indexOf(token) == i) {
+                unlink(token, id);
+            }
+        }
+        for (int i = 0; i < newTokens.size(); i++) {
+            String token = newTokens.get(i);
+            if (!oldTokens.contains(token) && newTokens.indexOf(token) == i) {
+                link(token, id);
+            }
+        }
+    }
+
+    @Override
+    public void onRemove(String id, long position, Product removed) {
+        List<String> tokens = tokenize(removed.getProductName());
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.indexOf(tokens.get(i)) == i) {
+                unlink(tokens.get(i), id);
+            }
+        }
+    }
+
+    private void link(String token, String id) {
+        postings.compute(token, (key, ids) -> {
+            if (ids == null) {
+                // Most tokens belong to only a few products, so posting sets start small
+                ids = ConcurrentHashMap.newKeySet(1);
+                dictionary.add(token);
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private void unlink(String token, String id) {
+        postings.computeIfPresent(token, (key, ids) -> {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                dictionary.remove(token);
+                return null;
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * Finds up to {@code limit} products whose name has a token starting with every one of the terms.
+     * Only the postings of the most selective term are walked; each candidate is then checked against
+     * the other terms using its current name, so the cost depends on that term and the limit rather
+     * than on the catalog size. A single term is walked without estimating it first.
+     */
+    public List<Product> search(List<String> terms, int limit, Function<String, Product> lookup) {
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        String driver = terms.get(0);
+        if (terms.size() > 1) {
+            // Past a few times the limit, a larger posting count no longer changes which term to walk
+            long driverSize = (long) limit * ESTIMATE_LIMIT_FACTOR;
+            for (String term : terms) {
+                long size = estimate(term, driverSize);
+                if (size < driverSize) {
+                    driver = term;
+                    driverSize = size;
+                }
+            }
+        }
+
+        Map<String, Product> matches = new LinkedHashMap<>();
+        for (String token : tokensStartingWith(driver)) {
+            Set<String> ids = postings.get(token);
+            if (ids == null) {
+                continue;
+            }
+            for (String id : ids) {
+                if (matches.containsKey(id)) {
+                    continue;
+                }
+                Product product = lookup.apply(id);
+                if (product != null && matchesAll(product, terms)) {
+                    matches.put(id, product);
+                    if (matches.size() >= limit) {
+                        return new ArrayList<>(matches.values());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    private NavigableSet<String> tokensStartingWith(String prefix) {
+        return dictionary.subSet(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    // Number of postings under a prefix, counted only until it exceeds the cap
+    private long estimate(String prefix, long cap) {
+        long total = 0;
+        for (String token : tokensStartingWith(prefix)) {
+            Set<String> ids = postings.get(token);
+            total += (ids == null) ? 0 : ids.size();
+            if (total >= cap) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static boolean matchesAll(Product product, List<String> terms) {
+        List<String> tokens = tokenize(product.getProductName());
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
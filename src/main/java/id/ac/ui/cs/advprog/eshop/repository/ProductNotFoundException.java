@@ -0,0 +1,11 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Thrown when a product ID does not exist. It stays an {@link IllegalArgumentException} for existing
+ * callers, while letting the REST API tell a missing product apart from invalid input.
+ */
+public class ProductNotFoundException extends IllegalArgumentException {
+    public ProductNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,75 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Secondary index of products sorted by {@code productQuantity}, kept up to date as a {@link StoreListener}.
+ * Entries are ordered by quantity and then by ID, so a range query is a log-time seek followed by a walk
+ * over the matching entries only.
+ */
+public class ProductQuantityIndex implements StoreListener<Product> {
+    private record Entry(long quantity, String id) {
+    }
+
+    // An ID of "" sorts before every real ID, which makes it a lower bound within a quantity
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::quantity).thenComparing(Entry::id);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+
+    @Override
+    public void onPut(String id, long position, Product previous, Product current) {
+        if (previous != null) {
+            if (previous.getProductQuantity() == current.getProductQuantity()) {
+                return;
+            }
+            entries.remove(new Entry(previous.getProductQuantity(), id));
+        }
+        entries.add(new Entry(current.getProductQuantity(), id));
+    }
+
+    @Override
+    public void onRemove(String id, long position, Product removed) {
+        entries.remove(new Entry(removed.getProductQuantity(), id));
+    }
+
+    /**
+     * Up to {@code limit} products with a quantity between {@code min} and {@code max} inclusive, in ascending
+     * quantity order. Each entry is checked against the product currently in the store, since the index is
+     * updated just before the store during a write.
+     */
+    public List<Product> range(int min, int max, int limit, Function<String, Product> lookup) {
+        List<Product> products = new ArrayList<>(Math.min(limit, 64));
+        for (Entry entry : entries.subSet(new Entry(min, ""), true, new Entry((long) max + 1, ""), false)) {
+            if (products.size() == limit) {
+                break;
+            }
+            Product product = lookup.apply(entry.id());
+            if (product != null && product.getProductQuantity() >= min && product.getProductQuantity() <= max) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // Up to limit products with the highest quantities, highest first; ties go to the greater ID
+    public List<Product> highest(int limit, Function<String, Product> lookup) {
+        List<Product> products = new ArrayList<>(limit);
+        for (Entry entry : entries.descendingSet()) {
+            if (products.size() == limit) {
+                break;
+            }
+            Product product = lookup.apply(entry.id());
+            if (product != null && product.getProductQuantity() == entry.quantity()) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+}
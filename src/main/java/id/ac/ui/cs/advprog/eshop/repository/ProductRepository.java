@@ -1,18 +1,178 @@
 package id.ac.ui.cs.advprog.eshop.repository;
 
-import java.util.UUID;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Page;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.EntityCodec;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.OperationLog;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Repository
+@Timed("eshop.repository")
 public class ProductRepository {
-    private List<Product> productData = new ArrayList<>();
+    private final EntityStore<Product> productData;
+    private final IdGenerator idGenerator;
+    private final ProductNameIndex nameIndex = new ProductNameIndex();
+    private final ProductQuantityIndex quantityIndex = new ProductQuantityIndex();
+    private final ProductStockStats stockStats = new ProductStockStats();
+
+    public ProductRepository() {
+        this(new InsertionOrderedStore<>());
+    }
+
+    public ProductRepository(EntityStore<Product> productData) {
+        this(productData, IdGenerator.timeOrderedUuid());
+    }
+
+    // Keeps the products in the given, still empty store instead of the default one
+    // The indexes and stock figures are registered before any data is loaded so that log replay fills them too
+    @Autowired
+    public ProductRepository(EntityStore<Product> productData, IdGenerator idGenerator) {
+        this.productData = productData;
+        this.idGenerator = idGenerator;
+        productData.addListener(nameIndex);
+        productData.addListener(quantityIndex);
+        productData.addListener(stockStats);
+    }
 
-    // Create product with validation
+    // Rebuild the data from the log, then persist every later write to it
+    public void enablePersistence(OperationLog<Product> operationLog) throws IOException {
+        operationLog.attach(productData);
+    }
+
+    // Create product with validation; an ID that is already stored is refused, never replaced
     public Product create(Product product) {
+        validateNew(product);
+        assignId(product);
+        product.setVersion(0);
+        if (productData.putIfAbsent(product.getProductId(), product) != null) {
+            throw new DuplicateIdException(alreadyExists(product.getProductId()));
+        }
+        return product;
+    }
+
+    // Create many products at once; invalid products and taken or repeated IDs are reported, the rest are still stored
+    public BatchResult<Product> createAll(List<Product> products) {
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        Map<Integer, Product> valid = new LinkedHashMap<>();
+        Map<String, Product> entries = new LinkedHashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            try {
+                validateNew(product);
+            } catch (IllegalArgumentException e) {
+                failures.add(new BatchResult.Failure(i, e.getMessage()));
+                continue;
+            }
+            assignId(product);
+            product.setVersion(0);
+            // Of two creates with one ID only the first can apply
+            if (entries.putIfAbsent(product.getProductId(), product) != null) {
+                failures.add(new BatchResult.Failure(i, alreadyExists(product.getProductId())));
+                continue;
+            }
+            valid.put(i, product);
+        }
+
+        Map<String, Product> rejected = productData.putAllIfAbsent(entries);
+        List<Product> created = new ArrayList<>(valid.size());
+        valid.forEach((i, product) -> {
+            if (rejected.containsKey(product.getProductId())) {
+                failures.add(new BatchResult.Failure(i, alreadyExists(product.getProductId())));
+            } else {
+                created.add(product);
+            }
+        });
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::index));
+        return new BatchResult<>(created, failures);
+    }
+
+    private static String alreadyExists(String productId) {
+        return "Cannot create: Product with ID " + productId + " already exists.";
+    }
+
+    // Update many products at once, each against the version it was read at; stale, invalid and unknown products are reported
+    public BatchResult<Product> updateAll(List<Product> products) {
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        Map<Integer, Product> valid = new LinkedHashMap<>();
+        Map<String, Product> entries = new LinkedHashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            try {
+                validateUpdate(product);
+            } catch (IllegalArgumentException e) {
+                failures.add(new BatchResult.Failure(i, e.getMessage()));
+                continue;
+            }
+            Product stamped = nextVersionOf(product);
+            // Of two updates to one ID read at the same version only the first can apply
+            entries.putIfAbsent(stamped.getProductId(), stamped);
+            valid.put(i, stamped);
+        }
+
+        Map<String, Product> rejected = productData.replaceAll(entries, ProductRepository::isNextVersion);
+        List<Product> updated = new ArrayList<>(valid.size());
+        valid.forEach((i, product) -> {
+            String productId = product.getProductId();
+            if (rejected.containsKey(productId) && rejected.get(productId) == null) {
+                failures.add(new BatchResult.Failure(i, "Cannot update: Product with ID " + productId + " not found."));
+            } else if (rejected.containsKey(productId) || entries.get(productId) != product) {
+                failures.add(new BatchResult.Failure(i, changedSince(product)));
+            } else {
+                updated.add(product);
+            }
+        });
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::index));
+        return new BatchResult<>(updated, failures);
+    }
+
+    // Delete many products at once; returns the deleted products and reports the unknown IDs
+    public BatchResult<Product> deleteAll(List<String> productIds) {
+        List<BatchResult.Failure> failures = new ArrayList<>();
+        List<String> valid = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            String productId = productIds.get(i);
+            if (productId == null || productId.isEmpty()) {
+                failures.add(new BatchResult.Failure(i, "Product ID cannot be empty."));
+            } else {
+                valid.add(productId);
+            }
+        }
+
+        Map<String, Product> removed = productData.removeAll(valid);
+        List<Product> deleted = new ArrayList<>(removed.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            String productId = productIds.get(i);
+            if (productId == null || productId.isEmpty()) {
+                continue;
+            }
+            // A repeated ID is only deleted once, so later occurrences are reported as not found
+            Product product = removed.remove(productId);
+            if (product != null) {
+                deleted.add(product);
+            } else {
+                failures.add(new BatchResult.Failure(i, "Cannot delete: Product with ID " + productId + " not found."));
+            }
+        }
+        failures.sort(Comparator.comparingInt(BatchResult.Failure::index));
+        return new BatchResult<>(deleted, failures);
+    }
+
+    private static void validateNew(Product product) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null.");
         }
@@ -22,12 +182,39 @@ public class ProductRepository {
         if (product.getProductQuantity() < 0) {
             throw new IllegalArgumentException("Product quantity cannot be negative.");
         }
+        validateLengths(product);
+    }
+
+    private static void validateUpdate(Product updatedProduct) {
+        if (updatedProduct == null) {
+            throw new IllegalArgumentException("Updated product cannot be null.");
+        }
+        if (updatedProduct.getProductId() == null || updatedProduct.getProductId().isEmpty()) {
+            throw new IllegalArgumentException("Product ID cannot be empty.");
+        }
+        if (updatedProduct.getProductName() == null || updatedProduct.getProductName().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be empty.");
+        }
+        if (updatedProduct.getProductQuantity() < 0) {
+            throw new IllegalArgumentException("Product quantity cannot be negative.");
+        }
+        validateLengths(updatedProduct);
+    }
 
+    // The operation log cannot encode longer strings, and would only find out after the store took the write
+    private static void validateLengths(Product product) {
+        if (!EntityCodec.fits(product.getProductId())) {
+            throw new IllegalArgumentException("Product ID cannot be longer than " + EntityCodec.MAX_STRING_BYTES + " bytes.");
+        }
+        if (!EntityCodec.fits(product.getProductName())) {
+            throw new IllegalArgumentException("Product name cannot be longer than " + EntityCodec.MAX_STRING_BYTES + " bytes.");
+        }
+    }
+
+    private void assignId(Product product) {
         if (product.getProductId() == null || product.getProductId().isEmpty()) {
-            product.setProductId(UUID.randomUUID().toString());
+            product.setProductId(idGenerator.nextId());
         }
-        productData.add(product);
-        return product;
     }
 
     // Find product by ID with validation
@@ -35,37 +222,91 @@ public class ProductRepository {
         if (productId == null || productId.isEmpty()) {
             throw new IllegalArgumentException("Product ID cannot be empty.");
         }
-        for (Product product : productData) {
-            if (product.getProductId().equals(productId)) {
-                return product;
+        Product product = productData.get(productId);
+        if (product == null) {
+            throw new ProductNotFoundException("Product with ID " + productId + " not found.");
+        }
+        return product;
+    }
+
+    // Update product with validation; only applies on top of the version the product was read at
+    public UpdateResult<Product> update(Product updatedProduct) {
+        validateUpdate(updatedProduct);
+
+        // Swap in a new instance so readers never observe a half-updated product
+        Product stamped = nextVersionOf(updatedProduct);
+        Product stored = productData.replace(stamped.getProductId(), stamped, ProductRepository::isNextVersion);
+        if (stored == null) {
+            throw new ProductNotFoundException("Cannot update: Product with ID " + updatedProduct.getProductId() + " not found.");
+        }
+        return (stored == stamped) ? UpdateResult.updated(stamped) : UpdateResult.conflict(stored);
+    }
+
+    /**
+     * Takes {@code quantity} units out of stock in one atomic step, so concurrent checkouts can never oversell.
+     * Returns the product with its reduced quantity, or null if fewer than {@code quantity} units are left.
+     */
+    public Product reserve(String productId, int quantity) {
+        validateStockChange(productId, quantity);
+        AtomicReference<Product> reserved = new AtomicReference<>();
+        Product stored = productData.update(productId, current -> {
+            if (current.getProductQuantity() < quantity) {
+                return current;
             }
+            Product next = nextVersionOf(current);
+            next.setProductQuantity(current.getProductQuantity() - quantity);
+            reserved.set(next);
+            return next;
+        });
+        if (stored == null) {
+            throw new ProductNotFoundException("Cannot reserve: Product with ID " + productId + " not found.");
         }
-        throw new IllegalArgumentException("Product with ID " + productId + " not found.");
+        return reserved.get();
     }
 
-    // Update product with validation
-    public Product update(Product updatedProduct) {
-        if (updatedProduct == null) {
-            throw new IllegalArgumentException("Updated product cannot be null.");
+    // Puts {@code quantity} reserved units back into stock in one atomic step; returns the product afterwards
+    public Product release(String productId, int quantity) {
+        validateStockChange(productId, quantity);
+        Product stored = productData.update(productId, current -> {
+            if (current.getProductQuantity() > Integer.MAX_VALUE - quantity) {
+                throw new IllegalArgumentException("Product quantity cannot exceed " + Integer.MAX_VALUE + ".");
+            }
+            Product next = nextVersionOf(current);
+            next.setProductQuantity(current.getProductQuantity() + quantity);
+            return next;
+        });
+        if (stored == null) {
+            throw new ProductNotFoundException("Cannot release: Product with ID " + productId + " not found.");
         }
-        if (updatedProduct.getProductId() == null || updatedProduct.getProductId().isEmpty()) {
+        return stored;
+    }
+
+    private static void validateStockChange(String productId, int quantity) {
+        if (productId == null || productId.isEmpty()) {
             throw new IllegalArgumentException("Product ID cannot be empty.");
         }
-        if (updatedProduct.getProductName() == null || updatedProduct.getProductName().isEmpty()) {
-            throw new IllegalArgumentException("Product name cannot be empty.");
-        }
-        if (updatedProduct.getProductQuantity() < 0) {
-            throw new IllegalArgumentException("Product quantity cannot be negative.");
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be positive.");
         }
+    }
 
-        for (Product product : productData) {
-            if (product.getProductId().equals(updatedProduct.getProductId())) {
-                product.setProductName(updatedProduct.getProductName());
-                product.setProductQuantity(updatedProduct.getProductQuantity());
-                return product;
-            }
-        }
-        throw new IllegalArgumentException("Cannot update: Product with ID " + updatedProduct.getProductId() + " not found.");
+    // A copy of the product carrying the version its update will produce
+    private static Product nextVersionOf(Product product) {
+        Product stamped = new Product();
+        stamped.setProductId(product.getProductId());
+        stamped.setProductName(product.getProductName());
+        stamped.setProductQuantity(product.getProductQuantity());
+        stamped.setVersion(product.getVersion() + 1);
+        return stamped;
+    }
+
+    private static boolean isNextVersion(Product current, Product replacement) {
+        return replacement.getVersion() == current.getVersion() + 1;
+    }
+
+    private static String changedSince(Product product) {
+        return "Cannot update: Product with ID " + product.getProductId() + " has been changed since version "
+                + (product.getVersion() - 1) + ".";
     }
 
     // Delete product with validation
@@ -74,19 +315,86 @@ public class ProductRepository {
             throw new IllegalArgumentException("Product ID cannot be empty.");
         }
 
-        Iterator<Product> iterator = productData.iterator();
-        while (iterator.hasNext()) {
-            Product product = iterator.next();
-            if (product.getProductId().equals(productId)) {
-                iterator.remove();
-                return true; // Return true if deleted
-            }
+        if (productData.remove(productId) != null) {
+            return true; // Return true if deleted
         }
-        throw new IllegalArgumentException("Cannot delete: Product with ID " + productId + " not found.");
+        throw new ProductNotFoundException("Cannot delete: Product with ID " + productId + " not found.");
     }
 
     // Find all products
     public Iterator<Product> findAll() {
         return productData.iterator();
     }
+
+    // Weakly consistent parallel stream over the stored products, split along the store without copying it
+    public Stream<Product> parallelStream() {
+        return StreamSupport.stream(productData.spliterator(), true);
+    }
+
+    // Goes up with every write, so views of the products can be revalidated without reading them
+    public long modificationCount() {
+        return productData.modificationCount();
+    }
+
+    public long count() {
+        return productData.size();
+    }
+
+    // Find one page of products; a cursor from a neighbouring page skips straight to the page after or before it.
+    // Products created after the cursor was handed out are not guaranteed to come after it, see Page
+    public Page<Product> findPage(int page, int size, Long cursor, Long before) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative.");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+
+        EntityStore.Slice<Product> slice;
+        if (cursor != null) {
+            slice = productData.after(cursor, size);
+        } else if (before != null) {
+            slice = productData.before(before, size);
+        } else {
+            slice = productData.skip((long) page * size, size);
+        }
+        return new Page<>(slice.items(), page, size, slice.nextCursor(), slice.previousCursor());
+    }
+
+    // Find products whose name has a word starting with each word of the query
+    public List<Product> search(String query, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Search limit must be positive.");
+        }
+        return nameIndex.search(ProductNameIndex.tokenize(query), limit, productData::get);
+    }
+
+    // Find up to limit products with a quantity in [min, max], lowest quantity first
+    public List<Product> findByQuantityRange(int min, int max, int limit) {
+        if (min > max) {
+            throw new IllegalArgumentException("Minimum quantity cannot exceed maximum quantity.");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        return quantityIndex.range(min, max, limit, productData::get);
+    }
+
+    // Find up to limit products with the highest quantities, highest first
+    public List<Product> findTopByQuantity(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        return quantityIndex.highest(limit, productData::get);
+    }
+
+    // Sum of all product quantities, kept as the products are written
+    public long totalStock() {
+        return stockStats.total();
+    }
+
+    // Number of products per quantity bucket of ProductStockStats, kept as the products are written
+    public long[] quantityHistogram() {
+        return stockStats.histogram();
+    }
 }
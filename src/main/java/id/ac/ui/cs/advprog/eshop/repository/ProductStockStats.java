@@ -0,0 +1,80 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running stock figures of the products, kept up to date as a {@link StoreListener}: the total quantity and a
+ * histogram of quantities in power-of-ten buckets. Every figure is a {@link LongAdder}, so writers to different
+ * products never contend on one counter, and reading them is only weakly consistent with writes in flight.
+ */
+public class ProductStockStats implements StoreListener<Product> {
+    // Bucket 0 holds the empty stock, bucket i the quantities of i digits; ten digits cover every int
+    public static final int BUCKETS = 11;
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    public ProductStockStats() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onPut(String id, long position, Product previous, Product current) {
+        if (previous != null) {
+            if (previous.getProductQuantity() == current.getProductQuantity()) {
+                return;
+            }
+            leave(previous.getProductQuantity());
+        }
+        join(current.getProductQuantity());
+    }
+
+    @Override
+    public void onRemove(String id, long position, Product removed) {
+        leave(removed.getProductQuantity());
+    }
+
+    private void join(int quantity) {
+        total.add(quantity);
+        histogram[bucket(quantity)].increment();
+    }
+
+    private void leave(int quantity) {
+        total.add(-quantity);
+        histogram[bucket(quantity)].decrement();
+    }
+
+    public long total() {
+        return total.sum();
+    }
+
+    // Number of products per bucket, indexed like bucket()
+    public long[] histogram() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    // Number of decimal digits of a positive quantity, and 0 for anything else
+    public static int bucket(int quantity) {
+        int bucket = 0;
+        for (long bound = 1; quantity >= bound; bound *= 10) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    public static int lowerBound(int bucket) {
+        return (bucket == 0) ? 0 : (int) Math.pow(10, bucket - 1);
+    }
+
+    public static int upperBound(int bucket) {
+        return (bucket == 0) ? 0 : (bucket == BUCKETS - 1) ? Integer.MAX_VALUE : (int) Math.pow(10, bucket) - 1;
+    }
+}
@@ -0,0 +1,401 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Partitions the entities over independent shards by a hash of their ID, so that writers on different cores
+ * do not meet on one insertion sequence, one write counter or one ordered index. Each shard is a complete
+ * {@link EntityStore} with its own locks; a write only ever touches the shard of its ID.
+ * <p>A shard numbers its entities with its own sequence, and shard {@code i} of {@code n} turns its
+ * position {@code p} into the position {@code p * n + i}. Iteration and pages merge the shards by that
+ * position: entities of one shard keep their insertion order, and entities of different shards are
+ * interleaved by how many entities their shard held before them, which matches the insertion order
+ * closely while the IDs spread evenly.
+ * <p>The shards do not share a sequence, so a new entity in a shard that holds fewer entities than the others
+ * gets a position below the ones recently handed out. A keyset cursor past that position never returns it;
+ * only a walk from the start does. Sharing one sequence would bring back the contention sharding removes.
+ * <p>Positions only map back to shards exactly under the same shard count. A log restored with a different
+ * count puts each entity at the nearest position of its new shard, or appends it where that is taken, so
+ * nothing is lost but the order is only roughly kept.
+ */
+public class ShardedStore<T> implements EntityStore<T> {
+    private final List<EntityStore<T>> shards;
+
+    public ShardedStore(int shardCount, Supplier<? extends EntityStore<T>> newShard) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        List<EntityStore<T>> created = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            created.add(newShard.get());
+        }
+        this.shards = List.copyOf(created);
+    }
+
+    public List<EntityStore<T>> shards() {
+        return shards;
+    }
+
+    private int shardOf(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), shards.size());
+    }
+
+    private EntityStore<T> shard(String id) {
+        return shards.get(shardOf(id));
+    }
+
+    private long global(long local, int shard) {
+        return local * shards.size() + shard;
+    }
+
+    // The last local position of the shard whose global position is at most the given one
+    private long localAtOrBefore(long position, int shard) {
+        return Math.floorDiv(position - shard, shards.size());
+    }
+
+    // The first local position of the shard whose global position is at least the given one
+    private long localAtOrAfter(long position, int shard) {
+        return Math.floorDiv(position - shard + shards.size() - 1, shards.size());
+    }
+
+    // Every shard reports its writes in global positions
+    @Override
+    public void addListener(StoreListener<T> listener) {
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            shards.get(i).addListener(new StoreListener<>() {
+                @Override
+                public void beforeWrite() {
+                    listener.beforeWrite();
+                }
+
+                @Override
+                public void onPut(String id, long position, T previous, T current) {
+                    listener.onPut(id, global(position, shard), previous, current);
+                }
+
+                @Override
+                public void onRemove(String id, long position, T removed) {
+                    listener.onRemove(id, global(position, shard), removed);
+                }
+
+                @Override
+                public void afterWrite() {
+                    listener.afterWrite();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void put(String id, T value) {
+        shard(id).put(id, value);
+    }
+
+    @Override
+    public void restore(String id, long position, T value) {
+        int shard = shardOf(id);
+        shards.get(shard).restore(id, (position != 0) ? Math.max(localAtOrAfter(position, shard), 1) : 0, value);
+    }
+
+    // The post-write hooks run once for every shard the batch touched
+    @Override
+    public void putAll(Map<String, T> entries) {
+        forEachShard(entries, EntityStore::putAll);
+    }
+
+    @Override
+    public T putIfAbsent(String id, T value) {
+        return shard(id).putIfAbsent(id, value);
+    }
+
+    @Override
+    public Map<String, T> putAllIfAbsent(Map<String, T> entries) {
+        Map<String, T> rejected = new HashMap<>();
+        forEachShard(entries, (shard, group) -> rejected.putAll(shard.putAllIfAbsent(group)));
+        return rejected;
+    }
+
+    @Override
+    public T replace(String id, T value, BiPredicate<? super T, ? super T> expected) {
+        return shard(id).replace(id, value, expected);
+    }
+
+    @Override
+    public Map<String, T> replaceAll(Map<String, T> entries, BiPredicate<? super T, ? super T> expected) {
+        Map<String, T> rejected = new HashMap<>();
+        forEachShard(entries, (shard, group) -> rejected.putAll(shard.replaceAll(group, expected)));
+        return rejected;
+    }
+
+    @Override
+    public T update(String id, UnaryOperator<T> change) {
+        return shard(id).update(id, change);
+    }
+
+    @Override
+    public T remove(String id) {
+        return shard(id).remove(id);
+    }
+
+    @Override
+    public Map<String, T> removeAll(Collection<String> ids) {
+        List<List<String>> groups = new ArrayList<>(shards.size());
+        shards.forEach(shard -> groups.add(new ArrayList<>()));
+        ids.forEach(id -> groups.get(shardOf(id)).add(id));
+
+        Map<String, T> removed = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            if (!groups.get(i).isEmpty()) {
+                removed.putAll(shards.get(i).removeAll(groups.get(i)));
+            }
+        }
+        return removed;
+    }
+
+    // Splits the batch by shard, keeping the order of the entries within each shard
+    private void forEachShard(Map<String, T> entries, BiConsumer<EntityStore<T>, Map<String, T>> action) {
+        List<Map<String, T>> groups = new ArrayList<>(shards.size());
+        shards.forEach(shard -> groups.add(new LinkedHashMap<>()));
+        entries.forEach((id, value) -> groups.get(shardOf(id)).put(id, value));
+        for (int i = 0; i < shards.size(); i++) {
+            if (!groups.get(i).isEmpty()) {
+                action.accept(shards.get(i), groups.get(i));
+            }
+        }
+    }
+
+    @Override
+    public T get(String id) {
+        return shard(id).get(id);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return shard(id).contains(id);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (EntityStore<T> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    // Every shard's count only goes up, so their sum is unchanged only if no shard has changed
+    @Override
+    public long modificationCount() {
+        long count = 0;
+        for (EntityStore<T> shard : shards) {
+            count += shard.modificationCount();
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Map.Entry<Long, T>> entries = entries();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return entries.next().getValue();
+            }
+        };
+    }
+
+    // Splits between the shards first and then within each shard, so no merge is needed
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ShardSpliterator<>(shards, 0, shards.size());
+    }
+
+    @Override
+    public Iterator<Map.Entry<Long, T>> entries() {
+        return entriesAfter(0);
+    }
+
+    // Merges the shards' own iterators, each started at its first position after the cursor
+    @Override
+    public Iterator<Map.Entry<Long, T>> entriesAfter(long cursor) {
+        return merge(shard -> shards.get(shard).entriesAfter(localAtOrBefore(cursor, shard)), Comparator.naturalOrder());
+    }
+
+    @Override
+    public Iterator<Map.Entry<Long, T>> entriesBefore(long cursor) {
+        return merge(shard -> shards.get(shard).entriesBefore(localAtOrAfter(cursor, shard)), Comparator.reverseOrder());
+    }
+
+    @Override
+    public Slice<T> after(long cursor, int limit) {
+        Iterator<Map.Entry<Long, T>> entries = entriesAfter(cursor);
+        List<Map.Entry<Long, T>> taken = take(entries, limit);
+        return slice(taken, entries.hasNext());
+    }
+
+    @Override
+    public Slice<T> before(long cursor, int limit) {
+        List<Map.Entry<Long, T>> taken = take(entriesBefore(cursor), limit);
+        Collections.reverse(taken);
+        boolean more = !taken.isEmpty() && entriesAfter(taken.get(taken.size() - 1).getKey()).hasNext();
+        return slice(taken, more);
+    }
+
+    @Override
+    public Slice<T> skip(long offset, int limit) {
+        Iterator<Map.Entry<Long, T>> entries = entries();
+        for (long i = 0; i < offset && entries.hasNext(); i++) {
+            entries.next();
+        }
+        List<Map.Entry<Long, T>> taken = take(entries, limit);
+        return slice(taken, entries.hasNext());
+    }
+
+    private Slice<T> slice(List<Map.Entry<Long, T>> entries, boolean more) {
+        if (entries.isEmpty()) {
+            return new Slice<>(List.of(), null, null);
+        }
+        List<T> items = new ArrayList<>(entries.size());
+        entries.forEach(entry -> items.add(entry.getValue()));
+        long first = entries.get(0).getKey();
+        long last = entries.get(entries.size() - 1).getKey();
+        return new Slice<>(items, entriesBefore(first).hasNext() ? first : null, more ? last : null);
+    }
+
+    private static <T> List<Map.Entry<Long, T>> take(Iterator<Map.Entry<Long, T>> entries, int limit) {
+        List<Map.Entry<Long, T>> taken = new ArrayList<>(limit);
+        while (taken.size() < limit && entries.hasNext()) {
+            taken.add(entries.next());
+        }
+        return taken;
+    }
+
+    // K-way merge of the shards' iterators, translated to global positions and ordered by them
+    private Iterator<Map.Entry<Long, T>> merge(Function<Integer, Iterator<Map.Entry<Long, T>>> open, Comparator<Long> order) {
+        record Head<T>(Map.Entry<Long, T> entry, Iterator<Map.Entry<Long, T>> rest, int shard) {
+        }
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(shards.size(), Comparator.comparing(head -> head.entry().getKey(), order));
+        for (int i = 0; i < shards.size(); i++) {
+            Iterator<Map.Entry<Long, T>> entries = open.apply(i);
+            if (entries.hasNext()) {
+                heads.add(new Head<>(translate(entries.next(), i), entries, i));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<Long, T> next() {
+                Head<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.rest().hasNext()) {
+                    heads.add(new Head<>(translate(head.rest().next(), head.shard()), head.rest(), head.shard()));
+                }
+                return head.entry();
+            }
+        };
+    }
+
+    // Shards [from, to) one after the other; current is the spliterator of the shard before from, if one was opened
+    private static final class ShardSpliterator<T> implements Spliterator<T> {
+        private final List<EntityStore<T>> shards;
+        private int from;
+        private int to;
+        private Spliterator<T> current;
+
+        private ShardSpliterator(List<EntityStore<T>> shards, int from, int to) {
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (true) {
+                if (current == null) {
+                    if (from >= to) {
+                        return false;
+                    }
+                    current = shards.get(from++).spliterator();
+                }
+                if (current.tryAdvance(action)) {
+                    return true;
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (current != null) {
+                current.forEachRemaining(action);
+                current = null;
+            }
+            while (from < to) {
+                shards.get(from++).spliterator().forEachRemaining(action);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                Spliterator<T> rest = new ShardSpliterator<>(shards, middle, to);
+                to = middle;
+                return rest;
+            }
+            if (current == null && from < to) {
+                current = shards.get(from++).spliterator();
+            }
+            return (current == null) ? null : current.trySplit();
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = (current == null) ? 0 : current.estimateSize();
+            for (int i = from; i < to; i++) {
+                size += shards.get(i).size();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | CONCURRENT;
+        }
+    }
+
+    private Map.Entry<Long, T> translate(Map.Entry<Long, T> entry, int shard) {
+        return new AbstractMap.SimpleImmutableEntry<>(global(entry.getKey(), shard), entry.getValue());
+    }
+}
@@ -0,0 +1,25 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+/**
+ * Observes the writes applied to an {@link EntityStore}.
+ * {@link #beforeWrite} runs before the store touches anything for a write, so a listener that cannot take
+ * the write can refuse it there by throwing, with neither the store nor any other listener changed.
+ * {@link #onPut} and {@link #onRemove} run while the store holds the lock for that ID, so they
+ * must be quick and must not call back into the store. A listener that throws aborts the write,
+ * although listeners notified before it are not rolled back.
+ * {@link #afterWrite} runs once the lock is released and is the place to do anything that blocks; it also
+ * runs after a write that failed partway, as listeners notified before the failure may be waiting for it.
+ * The position passed along is the entity's insertion sequence, the same value that serves as its page cursor.
+ */
+public interface StoreListener<T> {
+    default void beforeWrite() {
+    }
+
+    // previous is null when the entity is new
+    void onPut(String id, long position, T previous, T current);
+
+    void onRemove(String id, long position, T removed);
+
+    default void afterWrite() {
+    }
+}
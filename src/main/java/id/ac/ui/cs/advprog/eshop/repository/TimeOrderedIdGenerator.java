@@ -0,0 +1,53 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp, a 12-bit counter and 62 random bits.
+ * Each thread keeps its own last timestamp and counter and draws from {@link ThreadLocalRandom}, so unlike
+ * {@link java.util.UUID#randomUUID()} no two threads ever share a lock. IDs from one thread strictly
+ * increase; across threads they sort by creation time to the millisecond, and the random bits keep them
+ * unique. Within a millisecond the counter starts at a random value in its lower half and, once exhausted,
+ * borrows the next millisecond, which also keeps the IDs increasing if the clock steps back.
+ * The random bits are not from a cryptographic source, which is fine for IDs that are not secrets.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private final LongSupplier clock;
+    private final ThreadLocal<Sequence> sequences = ThreadLocal.withInitial(Sequence::new);
+
+    private static final class Sequence {
+        long millis = Long.MIN_VALUE;
+        int counter;
+    }
+
+    // clock returns the current Unix time in milliseconds
+    public TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String nextId() {
+        Sequence sequence = sequences.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = clock.getAsLong();
+        if (now > sequence.millis) {
+            sequence.millis = now;
+            sequence.counter = random.nextInt(1 << (COUNTER_BITS - 1));
+        } else if (sequence.counter < MAX_COUNTER) {
+            sequence.counter++;
+        } else {
+            sequence.millis++;
+            sequence.counter = 0;
+        }
+        long high = sequence.millis << 16 | VERSION | sequence.counter;
+        long low = VARIANT | (random.nextLong() & RANDOM_MASK);
+        return CompactId.toString(high, low);
+    }
+}
@@ -0,0 +1,886 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CompactId;
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import id.ac.ui.cs.advprog.eshop.repository.StoreListener;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Product storage engine that keeps the catalog off the Java heap, for catalogs of millions of products where
+ * an object graph per product would dominate heap size and GC time.
+ * Each field is a column in direct {@link ByteBuffer} segments of {@value #SEGMENT_ROWS} rows, and a product's
+ * row number is its position, so scans and pages walk the columns in order. New products take the row of the
+ * most recently removed one before the store grows, so the order is insertion order only as long as nothing is
+ * removed, and a product inserted into a reused row is not seen by a keyset page already past that row.
+ * Generated IDs are kept as two {@code long} columns (see {@link CompactId}); names and any other IDs live in a
+ * {@link StringArena}, which is compacted under the write lock once most of it is garbage.
+ * An open-addressing table of {@code long}s maps ID hashes to positions, and a lookup confirms a hit by
+ * comparing the ID columns, so finding a product neither builds nor compares a {@link String}.
+ * Writers take a single lock. Readers never lock: every row carries a stamp that is odd while the row is being
+ * written, and a read retries until it sees the same even stamp before and after copying the row.
+ * Reads return {@link ProductView}s, read-only snapshots that decode the ID and name only when asked for.
+ * Behaves like {@link InsertionOrderedStore} otherwise, including listeners and compare-and-set.
+ */
+public class ColumnarProductStore implements EntityStore<Product> {
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_ROWS = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_ROWS - 1;
+    private static final int SEGMENT_BYTES = SEGMENT_ROWS * (5 * Long.BYTES + 2 * Integer.BYTES);
+    // A parallel scan stops splitting below this many positions
+    private static final int MIN_SPLIT_ROWS = 4096;
+    // Stands in the ID column for an ID that is held in the two compact ID columns instead of the arena
+    static final long COMPACT = -1;
+    // Positions are kept in 32 bits of an index slot; with rows reused, this bounds the live products, not the inserts
+    private static final long MAX_POSITION = Integer.MAX_VALUE;
+
+    private static final VarHandle LONG_COLUMN = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INT_COLUMN = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // An index slot is (hash << 32 | position); position 0 is never used, and no position reaches 2^32 - 1
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private final StringArena arena = new StringArena();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong modifications = new AtomicLong();
+    private final List<StoreListener<Product>> listeners = new CopyOnWriteArrayList<>();
+
+    // Written under the write lock only; volatile so that readers see them without it
+    private volatile Segment[] segments = new Segment[0];
+    private volatile long[] table = new long[MIN_TABLE_SIZE];
+    private volatile long sequence;
+    private volatile int size;
+    private int usedSlots; // Live entries and tombstones in table
+    private long[] freeRows = new long[MIN_TABLE_SIZE]; // Positions of removed products, most recent last
+    private int freeCount;
+
+    private static final class Segment {
+        final ByteBuffer ids = column(Long.BYTES); // Arena references or COMPACT, 0 for an empty row
+        final ByteBuffer idHighs = column(Long.BYTES);
+        final ByteBuffer idLows = column(Long.BYTES);
+        final ByteBuffer names = column(Long.BYTES);
+        final ByteBuffer versions = column(Long.BYTES);
+        final ByteBuffer quantities = column(Integer.BYTES);
+        final ByteBuffer stamps = column(Integer.BYTES);
+        volatile int live;
+
+        private static ByteBuffer column(int width) {
+            return ByteBuffer.allocateDirect(SEGMENT_ROWS * width).order(ByteOrder.nativeOrder());
+        }
+
+        boolean occupied(int row) {
+            return (long) LONG_COLUMN.getAcquire(ids, row * Long.BYTES) != 0;
+        }
+
+        ProductView read(StringArena arena, int row) {
+            int stampAt = row * Integer.BYTES;
+            while (true) {
+                int stamp = (int) INT_COLUMN.getAcquire(stamps, stampAt);
+                if ((stamp & 1) == 0) {
+                    long id = (long) LONG_COLUMN.get(ids, row * Long.BYTES);
+                    long idHigh = (long) LONG_COLUMN.get(idHighs, row * Long.BYTES);
+                    long idLow = (long) LONG_COLUMN.get(idLows, row * Long.BYTES);
+                    long name = (long) LONG_COLUMN.get(names, row * Long.BYTES);
+                    long version = (long) LONG_COLUMN.get(versions, row * Long.BYTES);
+                    int quantity = (int) INT_COLUMN.get(quantities, row * Integer.BYTES);
+                    // Taken inside the stamp check, so they hold the references copied even if a compaction follows
+                    StringArena.Chunks strings = arena.chunks();
+                    VarHandle.loadLoadFence();
+                    if ((int) INT_COLUMN.getVolatile(stamps, stampAt) == stamp) {
+                        return (id == 0) ? null : new ProductView(strings, id, idHigh, idLow, name, quantity, version);
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        // Compact IDs never change while a row is occupied, so they are compared without the stamp; an arena
+        // reference does change when the arena is compacted, so it is compared under the stamp
+        boolean holds(int row, long idHigh, long idLow, byte[] idText, StringArena arena) {
+            if (idText == null) {
+                return (long) LONG_COLUMN.getAcquire(ids, row * Long.BYTES) == COMPACT
+                        && (long) LONG_COLUMN.get(idHighs, row * Long.BYTES) == idHigh
+                        && (long) LONG_COLUMN.get(idLows, row * Long.BYTES) == idLow;
+            }
+            int stampAt = row * Integer.BYTES;
+            while (true) {
+                int stamp = (int) INT_COLUMN.getAcquire(stamps, stampAt);
+                if ((stamp & 1) == 0) {
+                    long id = (long) LONG_COLUMN.get(ids, row * Long.BYTES);
+                    boolean held = id != 0 && id != COMPACT && arena.chunks().matches(id, idText);
+                    VarHandle.loadLoadFence();
+                    if ((int) INT_COLUMN.getVolatile(stamps, stampAt) == stamp) {
+                        return held;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        // Points an occupied row at the moved copies of its strings; callers hold the write lock
+        void relocate(int row, LongUnaryOperator move) {
+            long id = (long) LONG_COLUMN.get(ids, row * Long.BYTES);
+            write(row, (id == COMPACT) ? COMPACT : move.applyAsLong(id),
+                    (long) LONG_COLUMN.get(idHighs, row * Long.BYTES),
+                    (long) LONG_COLUMN.get(idLows, row * Long.BYTES),
+                    move.applyAsLong((long) LONG_COLUMN.get(names, row * Long.BYTES)),
+                    (int) INT_COLUMN.get(quantities, row * Integer.BYTES),
+                    (long) LONG_COLUMN.get(versions, row * Long.BYTES));
+        }
+
+        // Callers hold the write lock
+        void write(int row, long id, long idHigh, long idLow, long name, int quantity, long version) {
+            int stampAt = row * Integer.BYTES;
+            int stamp = (int) INT_COLUMN.get(stamps, stampAt);
+            INT_COLUMN.setOpaque(stamps, stampAt, stamp + 1);
+            VarHandle.storeStoreFence();
+            LONG_COLUMN.set(ids, row * Long.BYTES, id);
+            LONG_COLUMN.set(idHighs, row * Long.BYTES, idHigh);
+            LONG_COLUMN.set(idLows, row * Long.BYTES, idLow);
+            LONG_COLUMN.set(names, row * Long.BYTES, name);
+            LONG_COLUMN.set(versions, row * Long.BYTES, version);
+            INT_COLUMN.set(quantities, row * Integer.BYTES, quantity);
+            INT_COLUMN.setRelease(stamps, stampAt, stamp + 2);
+        }
+    }
+
+    @Override
+    public void addListener(StoreListener<Product> listener) {
+        listeners.add(listener);
+    }
+
+    // Insert a new product, or replace an existing one while keeping its position
+    @Override
+    public void put(String id, Product value) {
+        write(() -> locked(() -> {
+            insert(id, 0, value);
+            return value;
+        }), stored -> true);
+    }
+
+    // Like put, but a new product takes the given position unless it is taken; later inserts that do not reuse a
+    // removed product's row are placed after it
+    @Override
+    public void restore(String id, long position, Product value) {
+        write(() -> locked(() -> {
+            sequence = Math.max(sequence, position);
+            insert(id, position, value);
+            return value;
+        }), stored -> true);
+    }
+
+    // Insert or replace many products under one acquisition of the lock, then run the post-write hooks once
+    @Override
+    public void putAll(Map<String, Product> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        beforeWrite();
+        // Products inserted before a failing one stay, so their hooks must still run
+        try {
+            writeLock.lock();
+            try {
+                entries.forEach((id, value) -> insert(id, 0, value));
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            afterWrite();
+        }
+    }
+
+    // Insert a new product only if the ID is free; returns null when it was inserted, or the product holding the ID
+    @Override
+    public Product putIfAbsent(String id, Product value) {
+        return write(() -> locked(() -> add(id, value)), stored -> stored == null);
+    }
+
+    // Insert-if-absent for many products under one acquisition of the lock, then run the post-write hooks once
+    @Override
+    public Map<String, Product> putAllIfAbsent(Map<String, Product> entries) {
+        Map<String, Product> rejected = new HashMap<>();
+        if (entries.isEmpty()) {
+            return rejected;
+        }
+        beforeWrite();
+        try {
+            writeLock.lock();
+            try {
+                entries.forEach((id, value) -> {
+                    Product stored = add(id, value);
+                    if (stored != null) {
+                        rejected.put(id, stored);
+                    }
+                });
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            afterWrite();
+        }
+        return rejected;
+    }
+
+    // Called with the write lock held, so the product found cannot be removed before it is read
+    private Product add(String id, Product value) {
+        long existing = locate(id);
+        if (existing != 0) {
+            return at(existing);
+        }
+        insert(id, 0, value);
+        return null;
+    }
+
+    // A new product takes the given position, or when that is 0 or taken, the last freed row or else the next one
+    private void insert(String id, long position, Product value) {
+        long existing = locate(id);
+        if (existing != 0) {
+            Segment segment = segment(existing);
+            int row = row(existing);
+            ProductView previous = segment.read(arena, row);
+            listeners.forEach(listener -> listener.onPut(id, existing, previous, value));
+            overwrite(segment, row, previous, value);
+            return;
+        }
+
+        long seq = (position != 0 && !occupied(position)) ? position : vacantPosition();
+        if (seq > MAX_POSITION) {
+            throw new IllegalStateException("The columnar product store cannot hold more than " + MAX_POSITION + " products.");
+        }
+        listeners.forEach(listener -> listener.onPut(id, seq, null, value));
+        Segment segment = segmentForWrite(seq);
+        long name = arena.append(value.getProductName());
+        if (CompactId.isCompact(id)) {
+            segment.write(row(seq), COMPACT, CompactId.high(id), CompactId.low(id), name, value.getProductQuantity(), value.getVersion());
+        } else {
+            segment.write(row(seq), arena.append(id), 0, 0, name, value.getProductQuantity(), value.getVersion());
+        }
+        segment.live++;
+        // Published after the row, so a reader that finds the position also sees the product
+        sequence = Math.max(sequence, seq);
+        link(hash(id), seq);
+        size++;
+        if (freeCount > 0 && freeRows[freeCount - 1] == seq) {
+            freeCount--;
+        }
+    }
+
+    // Only peeks at the free rows, so a listener refusing the insert does not lose one
+    private long vacantPosition() {
+        // Rows restored over since they were freed are dropped here
+        while (freeCount > 0 && occupied(freeRows[freeCount - 1])) {
+            freeCount--;
+        }
+        return (freeCount > 0) ? freeRows[freeCount - 1] : sequence + 1;
+    }
+
+    // Keeps the ID, and the name too when it did not change, so renames are the only updates that grow the arena
+    private void overwrite(Segment segment, int row, ProductView previous, Product value) {
+        String name = value.getProductName();
+        long nameReference = previous.nameReference();
+        if (!arena.matches(nameReference, (name == null) ? null : StringArena.encode(name))) {
+            arena.discard(nameReference);
+            nameReference = arena.append(name);
+        }
+        segment.write(row, previous.idReference(), previous.idHigh(), previous.idLow(), nameReference,
+                value.getProductQuantity(), value.getVersion());
+        compactIfWasteful();
+    }
+
+    // Copies the live strings into fresh arena chunks and repoints every row at them; callers hold the write lock
+    private void compactIfWasteful() {
+        if (!arena.wasteful()) {
+            return;
+        }
+        arena.compact(move -> {
+            for (Segment segment : segments) {
+                if (segment == null || segment.live == 0) {
+                    continue;
+                }
+                for (int row = 0; row < SEGMENT_ROWS; row++) {
+                    if (segment.occupied(row)) {
+                        segment.relocate(row, move);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Compare-and-set: replaces an existing product only if {@code expected} accepts the (current, replacement)
+     * pair while the lock is held. Returns {@code value} when it was swapped in, the untouched current product
+     * when it was refused, or null if the ID is unknown.
+     */
+    @Override
+    public Product replace(String id, Product value, BiPredicate<? super Product, ? super Product> expected) {
+        return write(() -> swap(id, value, expected), stored -> stored == value);
+    }
+
+    // Compare-and-set for many products; returns the IDs that were not replaced, mapped to what is stored under them
+    @Override
+    public Map<String, Product> replaceAll(Map<String, Product> entries, BiPredicate<? super Product, ? super Product> expected) {
+        Map<String, Product> rejected = new HashMap<>();
+        beforeWrite();
+        try {
+            entries.forEach((id, value) -> {
+                Product stored = swap(id, value, expected);
+                if (stored != value) {
+                    rejected.put(id, stored);
+                }
+            });
+        } finally {
+            afterWrite();
+        }
+        return rejected;
+    }
+
+    private Product swap(String id, Product value, BiPredicate<? super Product, ? super Product> expected) {
+        return transform(id, current -> expected.test(current, value) ? value : current);
+    }
+
+    // Replaces an existing product with change applied to it under the lock; returns what is stored afterwards
+    @Override
+    public Product update(String id, UnaryOperator<Product> change) {
+        AtomicBoolean changed = new AtomicBoolean();
+        return write(() -> transform(id, current -> {
+            Product value = change.apply(current);
+            changed.set(value != current);
+            return value;
+        }), stored -> changed.get());
+    }
+
+    private Product transform(String id, UnaryOperator<Product> change) {
+        writeLock.lock();
+        try {
+            long position = locate(id);
+            if (position == 0) {
+                return null;
+            }
+            Segment segment = segment(position);
+            int row = row(position);
+            ProductView current = segment.read(arena, row);
+            Product value = change.apply(current);
+            if (value == current) {
+                return current;
+            }
+            listeners.forEach(listener -> listener.onPut(id, position, current, value));
+            overwrite(segment, row, current, value);
+            return value;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Remove a product; returns the removed product, or null if the ID is unknown
+    @Override
+    public Product remove(String id) {
+        return write(() -> locked(() -> delete(id)), removed -> removed != null);
+    }
+
+    // Remove many products, then run the post-write hooks once; returns the removed products by ID
+    @Override
+    public Map<String, Product> removeAll(Collection<String> ids) {
+        Map<String, Product> removed = new HashMap<>();
+        beforeWrite();
+        try {
+            writeLock.lock();
+            try {
+                for (String id : ids) {
+                    Product value = delete(id);
+                    if (value != null) {
+                        removed.put(id, value);
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            afterWrite();
+        }
+        return removed;
+    }
+
+    // The returned view stays readable: it keeps the arena chunks its strings are in, even past a compaction
+    private Product delete(String id) {
+        long position = locate(id);
+        if (position == 0) {
+            return null;
+        }
+        Segment segment = segment(position);
+        int row = row(position);
+        ProductView removed = segment.read(arena, row);
+        listeners.forEach(listener -> listener.onRemove(id, position, removed));
+        unlink(hash(id), position);
+        segment.write(row, 0, 0, 0, 0, 0, 0);
+        if (removed.idReference() != COMPACT) {
+            arena.discard(removed.idReference());
+        }
+        arena.discard(removed.nameReference());
+        size--;
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+        }
+        freeRows[freeCount++] = position;
+        // An emptied segment is handed to the GC, unless new products are still being appended to it
+        int index = (int) (position >>> SEGMENT_SHIFT);
+        if (--segment.live == 0 && index != (int) (sequence >>> SEGMENT_SHIFT)) {
+            segments[index] = null;
+        }
+        compactIfWasteful();
+        return removed;
+    }
+
+    // Like in InsertionOrderedStore: refusable before anything is touched, with the post-write hooks run on failure too
+    private <R> R write(Supplier<R> write, Predicate<? super R> wrote) {
+        beforeWrite();
+        boolean completed = false;
+        R result = null;
+        try {
+            result = write.get();
+            completed = true;
+        } finally {
+            if (!completed || wrote.test(result)) {
+                afterWrite();
+            }
+        }
+        return result;
+    }
+
+    private <R> R locked(Supplier<R> action) {
+        writeLock.lock();
+        try {
+            return action.get();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void beforeWrite() {
+        listeners.forEach(StoreListener::beforeWrite);
+    }
+
+    private void afterWrite() {
+        modifications.incrementAndGet();
+        listeners.forEach(StoreListener::afterWrite);
+    }
+
+    @Override
+    public Product get(String id) {
+        long position = locate(id);
+        return (position == 0) ? null : at(position);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Number of writes applied so far; equal counts mean the products have not changed in between
+    @Override
+    public long modificationCount() {
+        return modifications.get();
+    }
+
+    // Direct memory held by the columns and the arena, including the space of replaced names not yet compacted away
+    public long offHeapBytes() {
+        return (long) Arrays.stream(segments).filter(segment -> segment != null).count() * SEGMENT_BYTES
+                + arena.allocatedBytes();
+    }
+
+    // Arena space held by names and IDs that are no longer referenced
+    public long garbageBytes() {
+        return arena.garbageBytes();
+    }
+
+    // Weakly consistent, read-only iterator in position order
+    @Override
+    public Iterator<Product> iterator() {
+        Iterator<Map.Entry<Long, Product>> entries = scan(1);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                return entries.next().getValue();
+            }
+        };
+    }
+
+    // Splits the positions written so far into ranges, on segment boundaries while a range spans several
+    @Override
+    public Spliterator<Product> spliterator() {
+        return new Range(1, sequence + 1);
+    }
+
+    // Weakly consistent, read-only iterator over the products keyed by position, in position order
+    @Override
+    public Iterator<Map.Entry<Long, Product>> entries() {
+        return scan(1);
+    }
+
+    // Like entries, but starting right after the given position
+    @Override
+    public Iterator<Map.Entry<Long, Product>> entriesAfter(long cursor) {
+        return scan(cursor + 1);
+    }
+
+    // Like entries, but backwards from right before the given position
+    @Override
+    public Iterator<Map.Entry<Long, Product>> entriesBefore(long cursor) {
+        return new Iterator<>() {
+            private long position = preceding(cursor - 1);
+            private Map.Entry<Long, Product> upcoming;
+
+            @Override
+            public boolean hasNext() {
+                while (upcoming == null && position != 0) {
+                    ProductView product = at(position);
+                    if (product != null) {
+                        upcoming = new AbstractMap.SimpleImmutableEntry<>(position, product);
+                    }
+                    position = preceding(position - 1);
+                }
+                return upcoming != null;
+            }
+
+            @Override
+            public Map.Entry<Long, Product> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Long, Product> entry = upcoming;
+                upcoming = null;
+                return entry;
+            }
+        };
+    }
+
+    // Keyset page: products inserted after the given cursor, without touching anything before it
+    @Override
+    public Slice<Product> after(long cursor, int limit) {
+        return slice(take(entriesAfter(cursor), limit));
+    }
+
+    // Keyset page: the products inserted right before the given cursor, still in position order
+    @Override
+    public Slice<Product> before(long cursor, int limit) {
+        List<Map.Entry<Long, Product>> entries = take(entriesBefore(cursor), limit);
+        Collections.reverse(entries);
+        return slice(entries);
+    }
+
+    // Offset page: whole segments are skipped by their live counts, so only the last one is scanned
+    @Override
+    public Slice<Product> skip(long offset, int limit) {
+        Segment[] current = segments;
+        long remaining = offset;
+        int index = 0;
+        for (; index < current.length; index++) {
+            int live = (current[index] == null) ? 0 : current[index].live;
+            if (remaining < live) {
+                break;
+            }
+            remaining -= live;
+        }
+        Iterator<Map.Entry<Long, Product>> entries = scan((long) index << SEGMENT_SHIFT);
+        for (long i = 0; i < remaining && entries.hasNext(); i++) {
+            entries.next();
+        }
+        return slice(take(entries, limit));
+    }
+
+    private Slice<Product> slice(List<Map.Entry<Long, Product>> entries) {
+        if (entries.isEmpty()) {
+            return new Slice<>(List.of(), null, null);
+        }
+
+        List<Product> items = new ArrayList<>(entries.size());
+        entries.forEach(entry -> items.add(entry.getValue()));
+        long first = entries.get(0).getKey();
+        long last = entries.get(entries.size() - 1).getKey();
+        return new Slice<>(items,
+                preceding(first - 1) != 0 ? first : null,
+                following(last + 1) != 0 ? last : null);
+    }
+
+    private static List<Map.Entry<Long, Product>> take(Iterator<Map.Entry<Long, Product>> entries, int limit) {
+        List<Map.Entry<Long, Product>> taken = new ArrayList<>(limit);
+        while (taken.size() < limit && entries.hasNext()) {
+            taken.add(entries.next());
+        }
+        return taken;
+    }
+
+    private Iterator<Map.Entry<Long, Product>> scan(long from) {
+        return new Iterator<>() {
+            private long cursor = from;
+            private Map.Entry<Long, Product> upcoming;
+
+            @Override
+            public boolean hasNext() {
+                while (upcoming == null) {
+                    long position = following(cursor);
+                    if (position == 0) {
+                        return false;
+                    }
+                    cursor = position + 1;
+                    ProductView product = at(position); // Null if it was removed since following() saw it
+                    if (product != null) {
+                        upcoming = new AbstractMap.SimpleImmutableEntry<>(position, product);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Map.Entry<Long, Product> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Long, Product> entry = upcoming;
+                upcoming = null;
+                return entry;
+            }
+        };
+    }
+
+    // Positions [from, to) of the store, walked with the same skips as scan
+    private final class Range implements Spliterator<Product> {
+        private long from;
+        private final long to;
+
+        private Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Product> action) {
+            while (from < to) {
+                long position = following(from);
+                if (position == 0 || position >= to) {
+                    from = to;
+                    return false;
+                }
+                from = position + 1;
+                ProductView product = at(position); // Null if it was removed since following() saw it
+                if (product != null) {
+                    action.accept(product);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Product> trySplit() {
+            if (to - from < 2L * MIN_SPLIT_ROWS) {
+                return null;
+            }
+            long middle = (from + to) >>> 1;
+            long boundary = middle & ~(long) SEGMENT_MASK;
+            long split = (boundary > from) ? boundary : middle;
+            Range prefix = new Range(from, split);
+            from = split;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | CONCURRENT;
+        }
+    }
+
+    // First occupied position at or after from, or 0; empty and released segments are skipped whole
+    private long following(long from) {
+        long last = sequence;
+        for (long position = Math.max(from, 1); position <= last; ) {
+            Segment segment = segment(position);
+            if (segment == null || segment.live == 0) {
+                position = ((position >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+            } else if (segment.occupied(row(position))) {
+                return position;
+            } else {
+                position++;
+            }
+        }
+        return 0;
+    }
+
+    // Last occupied position at or before from, or 0
+    private long preceding(long from) {
+        for (long position = Math.min(from, sequence); position >= 1; ) {
+            Segment segment = segment(position);
+            if (segment == null || segment.live == 0) {
+                position = ((position >>> SEGMENT_SHIFT) << SEGMENT_SHIFT) - 1;
+            } else if (segment.occupied(row(position))) {
+                return position;
+            } else {
+                position--;
+            }
+        }
+        return 0;
+    }
+
+    private boolean occupied(long position) {
+        Segment segment = segment(position);
+        return segment != null && segment.occupied(row(position));
+    }
+
+    private ProductView at(long position) {
+        Segment segment = segment(position);
+        return (segment == null) ? null : segment.read(arena, row(position));
+    }
+
+    private Segment segment(long position) {
+        Segment[] current = segments;
+        int index = (int) (position >>> SEGMENT_SHIFT);
+        return (index < current.length) ? current[index] : null;
+    }
+
+    private Segment segmentForWrite(long position) {
+        int index = (int) (position >>> SEGMENT_SHIFT);
+        Segment[] current = segments;
+        if (index >= current.length) {
+            current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+            segments = current;
+        }
+        if (current[index] == null) {
+            current[index] = new Segment();
+        }
+        return current[index];
+    }
+
+    private static int row(long position) {
+        return (int) (position & SEGMENT_MASK);
+    }
+
+    private static int hash(String id) {
+        if (CompactId.isCompact(id)) {
+            return CompactId.hash(CompactId.high(id), CompactId.low(id));
+        }
+        int h = Arrays.hashCode(StringArena.encode(id)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Position of the product with this ID, or 0
+    private long locate(String id) {
+        if (CompactId.isCompact(id)) {
+            long high = CompactId.high(id);
+            long low = CompactId.low(id);
+            return find(CompactId.hash(high, low), high, low, null);
+        }
+        return find(hash(id), 0, 0, StringArena.encode(id));
+    }
+
+    // Safe without the lock: a stale table or a slot for a row being removed only fails the ID comparison
+    private long find(int hash, long idHigh, long idLow, byte[] idText) {
+        long[] slots = table;
+        int mask = slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long slot = (long) SLOT.getAcquire(slots, i);
+            if (slot == EMPTY) {
+                return 0;
+            }
+            if (slot != TOMBSTONE && (int) (slot >>> 32) == hash) {
+                long position = slot & 0xFFFFFFFFL;
+                Segment segment = segment(position);
+                if (segment != null && segment.holds(row(position), idHigh, idLow, idText, arena)) {
+                    return position;
+                }
+            }
+        }
+    }
+
+    // Callers hold the write lock; the table is kept at most half full so every probe ends at an empty slot
+    private void link(int hash, long position) {
+        if ((usedSlots + 1) * 2 > table.length) {
+            rehash();
+        }
+        long[] slots = table;
+        int mask = slots.length - 1;
+        int i = hash & mask;
+        while (slots[i] != EMPTY && slots[i] != TOMBSTONE) {
+            i = (i + 1) & mask;
+        }
+        if (slots[i] == EMPTY) {
+            usedSlots++;
+        }
+        SLOT.setRelease(slots, i, ((long) hash << 32) | position);
+    }
+
+    private void unlink(int hash, long position) {
+        long[] slots = table;
+        int mask = slots.length - 1;
+        long wanted = ((long) hash << 32) | position;
+        for (int i = hash & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == wanted) {
+                SLOT.setRelease(slots, i, TOMBSTONE);
+                return;
+            }
+        }
+    }
+
+    // Builds the new table aside and publishes it whole, dropping the tombstones
+    private void rehash() {
+        int capacity = MIN_TABLE_SIZE;
+        while (capacity < (size + 1) * 4L) {
+            capacity <<= 1;
+        }
+        long[] fresh = new long[capacity];
+        int mask = capacity - 1;
+        for (long slot : table) {
+            if (slot != EMPTY && slot != TOMBSTONE) {
+                int i = (int) (slot >>> 32) & mask;
+                while (fresh[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                fresh[i] = slot;
+            }
+        }
+        usedSlots = size;
+        table = fresh;
+    }
+}
@@ -0,0 +1,90 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CompactId;
+
+/**
+ * Read-only snapshot of one row of a {@link ColumnarProductStore}. The numeric columns, including a compact ID,
+ * are copied when the row is read; strings are only built when asked for, from the compact ID or from the
+ * {@link StringArena} chunks that were current when the row was read, so a later compaction does not move them.
+ * Updates go through the repository with a new {@link Product}, so the setters refuse to change a view.
+ */
+public final class ProductView extends Product {
+    private final StringArena.Chunks strings;
+    private final long idReference;
+    private final long idHigh;
+    private final long idLow;
+    private final long nameReference;
+    private final int quantity;
+    private final long version;
+
+    ProductView(StringArena.Chunks strings, long idReference, long idHigh, long idLow, long nameReference, int quantity, long version) {
+        this.strings = strings;
+        this.idReference = idReference;
+        this.idHigh = idHigh;
+        this.idLow = idLow;
+        this.nameReference = nameReference;
+        this.quantity = quantity;
+        this.version = version;
+    }
+
+    long idReference() {
+        return idReference;
+    }
+
+    long idHigh() {
+        return idHigh;
+    }
+
+    long idLow() {
+        return idLow;
+    }
+
+    long nameReference() {
+        return nameReference;
+    }
+
+    @Override
+    public String getProductId() {
+        return (idReference == ColumnarProductStore.COMPACT) ? CompactId.toString(idHigh, idLow) : strings.read(idReference);
+    }
+
+    @Override
+    public String getProductName() {
+        return strings.read(nameReference);
+    }
+
+    @Override
+    public int getProductQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setProductId(String productId) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setProductName(String productName) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setProductQuantity(int productQuantity) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setVersion(long version) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Products read from the columnar store cannot be modified.");
+    }
+}
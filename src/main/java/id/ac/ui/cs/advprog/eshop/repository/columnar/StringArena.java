@@ -0,0 +1,179 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * String storage in direct {@link ByteBuffer} chunks. Each string is written once as
+ * {@code [int length][UTF-8 bytes]} and referred to by its chunk and offset, 0 standing for null.
+ * Bytes are never overwritten in place. Once discarded strings take up more than half of the arena,
+ * {@link #compact} copies the live strings into fresh chunks and drops the old ones. Readers therefore
+ * resolve references through {@link Chunks}, an immutable set of chunks taken together with the
+ * references: the old chunks stay reachable, and readable, for as long as a reader still holds such a set.
+ * Appends and compactions must come from one thread at a time, reads from any thread.
+ */
+final class StringArena {
+    private static final int CHUNK_SHIFT = 22;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 4 MiB
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int LENGTH_BYTES = 4;
+    // Below this much garbage a compaction would copy more than it gives back
+    private static final long MIN_GARBAGE = CHUNK_SIZE;
+
+    private volatile Chunks chunks = new Chunks(new ByteBuffer[] {ByteBuffer.allocateDirect(CHUNK_SIZE)});
+    private int allocated = 1;
+    private int tail; // Chunk being appended to
+    private int end = LENGTH_BYTES; // Nothing starts at 0 in chunk 0, so that 0 can stand for null
+    private long garbage;
+
+    /**
+     * The chunks of the arena at one point in time. A reference read while these were current can be
+     * resolved against them at any later time.
+     */
+    static final class Chunks {
+        private final ByteBuffer[] buffers;
+
+        private Chunks(ByteBuffer[] buffers) {
+            this.buffers = buffers;
+        }
+
+        String read(long reference) {
+            if (reference == 0) {
+                return null;
+            }
+            ByteBuffer chunk = buffers[(int) (reference >>> CHUNK_SHIFT)];
+            int offset = offset(reference);
+            byte[] bytes = new byte[chunk.getInt(offset)];
+            chunk.get(offset + LENGTH_BYTES, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Compares without decoding, so lookups do not allocate a String per probe. A reference that does
+        // not belong to these chunks, as a racing reader may see one during a compaction, never matches.
+        boolean matches(long reference, byte[] bytes) {
+            if (reference == 0) {
+                return bytes == null;
+            }
+            int index = (int) (reference >>> CHUNK_SHIFT);
+            if (bytes == null || index >= buffers.length || buffers[index] == null) {
+                return false;
+            }
+            ByteBuffer chunk = buffers[index];
+            int offset = offset(reference);
+            if (offset > CHUNK_SIZE - LENGTH_BYTES || chunk.getInt(offset) != bytes.length
+                    || bytes.length > CHUNK_SIZE - LENGTH_BYTES - offset) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (chunk.get(offset + LENGTH_BYTES + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    Chunks chunks() {
+        return chunks;
+    }
+
+    long append(String value) {
+        return (value == null) ? 0 : append(encode(value));
+    }
+
+    long append(byte[] bytes) {
+        int size = LENGTH_BYTES + bytes.length;
+        if (size > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Strings longer than " + (CHUNK_SIZE - LENGTH_BYTES) + " bytes cannot be stored.");
+        }
+        if (end + size > CHUNK_SIZE) {
+            startChunk();
+        }
+        chunks.buffers[tail].putInt(end, bytes.length).put(end + LENGTH_BYTES, bytes);
+        long reference = ((long) tail << CHUNK_SHIFT) | end;
+        end += size;
+        return reference;
+    }
+
+    // Appends go to a new chunk, in the first slot left free by a compaction
+    private void startChunk() {
+        ByteBuffer[] current = chunks.buffers;
+        int index = 0;
+        while (index < current.length && current[index] != null) {
+            index++;
+        }
+        ByteBuffer[] next = Arrays.copyOf(current, Math.max(current.length, index + 1));
+        next[index] = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        chunks = new Chunks(next);
+        allocated++;
+        tail = index;
+        end = (index == 0) ? LENGTH_BYTES : 0;
+    }
+
+    // Marks a string as no longer referenced; the space is reclaimed by the next compaction
+    void discard(long reference) {
+        if (reference != 0) {
+            garbage += LENGTH_BYTES + chunks.buffers[(int) (reference >>> CHUNK_SHIFT)].getInt(offset(reference));
+        }
+    }
+
+    String read(long reference) {
+        return chunks.read(reference);
+    }
+
+    boolean matches(long reference, byte[] bytes) {
+        return chunks.matches(reference, bytes);
+    }
+
+    // True once garbage is both large and more than half of the arena, so compactions stay rare
+    boolean wasteful() {
+        return garbage >= MIN_GARBAGE && garbage * 2 > allocatedBytes();
+    }
+
+    /**
+     * Moves every live string into fresh chunks. {@code rewrite} is handed a function that copies the string
+     * behind an old reference and returns its new reference, and must apply it to every reference still in use;
+     * the chunks that were current before are dropped once it returns.
+     */
+    void compact(Consumer<LongUnaryOperator> rewrite) {
+        ByteBuffer[] retired = chunks.buffers;
+        startChunk();
+        rewrite.accept(reference -> (reference == 0) ? 0 : append(bytesAt(reference)));
+        ByteBuffer[] kept = chunks.buffers.clone();
+        for (int i = 0; i < retired.length; i++) {
+            if (retired[i] != null) {
+                kept[i] = null;
+                allocated--;
+            }
+        }
+        chunks = new Chunks(kept);
+        garbage = 0;
+    }
+
+    private byte[] bytesAt(long reference) {
+        ByteBuffer chunk = chunks.buffers[(int) (reference >>> CHUNK_SHIFT)];
+        int offset = offset(reference);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + LENGTH_BYTES, bytes);
+        return bytes;
+    }
+
+    long allocatedBytes() {
+        return (long) allocated * CHUNK_SIZE;
+    }
+
+    long garbageBytes() {
+        return garbage;
+    }
+
+    private static int offset(long reference) {
+        return (int) (reference & CHUNK_MASK);
+    }
+}
@@ -0,0 +1,35 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class CarCodec implements EntityCodec<Car> {
+
+    @Override
+    public String id(Car car) {
+        return car.getCarId();
+    }
+
+    @Override
+    public void write(DataOutput out, Car car) throws IOException {
+        out.writeUTF(car.getCarId());
+        EntityCodec.writeNullableString(out, car.getCarName());
+        EntityCodec.writeNullableString(out, car.getCarColor());
+        out.writeInt(car.getCarQuantity());
+        out.writeLong(car.getVersion());
+    }
+
+    @Override
+    public Car read(DataInput in) throws IOException {
+        Car car = new Car();
+        car.setCarId(in.readUTF());
+        car.setCarName(EntityCodec.readNullableString(in));
+        car.setCarColor(EntityCodec.readNullableString(in));
+        car.setCarQuantity(in.readInt());
+        car.setVersion(in.readLong());
+        return car;
+    }
+}
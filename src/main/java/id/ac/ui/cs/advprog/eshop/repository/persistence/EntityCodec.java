@@ -0,0 +1,43 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of one entity type for the on-disk operation log.
+ */
+public interface EntityCodec<T> {
+    // DataOutput.writeUTF takes strings of at most this many bytes of modified UTF-8
+    int MAX_STRING_BYTES = 65_535;
+
+    String id(T entity);
+
+    void write(DataOutput out, T entity) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Whether writeUTF can encode the string; a null string always fits
+    static boolean fits(String value) {
+        if (value == null || value.length() <= MAX_STRING_BYTES / 3) {
+            return true;
+        }
+        long bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes += (c >= 0x0001 && c <= 0x007F) ? 1 : (c <= 0x07FF) ? 2 : 3;
+        }
+        return bytes <= MAX_STRING_BYTES;
+    }
+}
@@ -0,0 +1,540 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.StoreListener;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed log of the writes made to one {@link EntityStore}, split into
+ * numbered segments and compacted by periodic snapshots.
+ *
+ * <p>Records are queued while the store holds the entity's lock, which keeps the log in the same
+ * order as the in-memory writes to each ID, and a single background thread writes and fsyncs them. The writing
+ * request thread then waits in {@link #afterWrite()} until its record is on disk. With group commit
+ * every record that queued up during one fsync shares the next one; without it each record gets its
+ * own fsync. Inserts into different IDs can still be queued out of position order, so each put record
+ * carries the entity's position and replay restores it.
+ *
+ * <p>Request threads may be virtual threads, so everything they wait on is a {@link ReentrantLock} rather than
+ * a monitor: on Java 21 a virtual thread blocked in {@code Object.wait} pins its carrier thread, and a few
+ * hundred requests waiting for the same fsync would stall all of them. The writer itself runs on whichever
+ * kind of thread the {@link Thread.Builder} passed to {@link #open} makes.
+ *
+ * <p>On disk, {@code <name>-<n>.log} segments hold records {@code [int length][int crc32][payload]},
+ * and {@code <name>-<n>.snapshot} is a {@link SnapshotFile} that makes every segment below {@code n}
+ * redundant. Startup loads the newest snapshot that passes its checksum and replays only the segments from {@code n} on;
+ * a torn record left behind by a crash ends the replay of its segment and is truncated away.
+ */
+public class OperationLog<T> implements StoreListener<T>, Closeable {
+    private static final byte REMOVE = 2;
+    private static final byte PUT_AT = 3;
+    private static final int HEADER_BYTES = 8;
+    private static final ByteBuffer ROLL = ByteBuffer.allocate(0); // Queued marker: start a new segment here
+
+    private record Roll(long lsn, long firstLiveSegment) {
+    }
+
+    private final Path directory;
+    private final String name;
+    private final Pattern fileName;
+    private final EntityCodec<T> codec;
+    private final boolean groupCommit;
+    private final Thread writer;
+    // Per thread: last appended LSN, then its records still in flight in epoch 0 and in epoch 1
+    private final ThreadLocal<long[]> appendedByThread = ThreadLocal.withInitial(() -> new long[3]);
+    private final LongAdder[] inFlight = {new LongAdder(), new LongAdder()};
+    // Set while roll() waits for the previous epoch, so only then does afterWrite() take the lock to wake it
+    private volatile boolean draining;
+
+    private EntityStore<T> store;
+    private FileChannel channel;          // Only touched by the writer thread once attached
+    private volatile long currentSegment;
+
+    // Guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingChanged = lock.newCondition();
+    private final Condition epochDrained = lock.newCondition();
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long appendedLsn;
+    private int epoch;
+    private boolean closed;
+
+    // Guarded by durableLock
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableChanged = durableLock.newCondition();
+    private long durableLsn;
+    private IOException failure;
+
+    // Guarded by snapshotLock
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private long snapshotLsn;
+
+    private OperationLog(Path directory, String name, EntityCodec<T> codec, boolean groupCommit, Thread.Builder writerThread) {
+        this.directory = directory;
+        this.name = name;
+        this.fileName = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.(log|snapshot)");
+        this.codec = codec;
+        this.groupCommit = groupCommit;
+        this.writer = writerThread.name("operation-log-" + name).unstarted(this::runWriter);
+    }
+
+    public static <T> OperationLog<T> open(Path directory, String name, EntityCodec<T> codec, boolean groupCommit) throws IOException {
+        return open(directory, name, codec, groupCommit, Thread.ofPlatform().daemon());
+    }
+
+    // The writer thread is made by writerThread, e.g. Thread.ofVirtual() when the application runs on virtual threads
+    public static <T> OperationLog<T> open(Path directory, String name, EntityCodec<T> codec, boolean groupCommit,
+                                           Thread.Builder writerThread) throws IOException {
+        Files.createDirectories(directory);
+        return new OperationLog<>(directory, name, codec, groupCommit, writerThread);
+    }
+
+    /**
+     * Loads the latest snapshot and replays the log tail into the store, then starts logging the store's writes.
+     */
+    public void attach(EntityStore<T> store) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        scan(segments, snapshots);
+
+        long firstSegment = 1;
+        IOException unreadable = null;
+        for (Map.Entry<Long, Path> snapshot : snapshots.descendingMap().entrySet()) {
+            try {
+                SnapshotFile.read(snapshot.getValue(), codec, (entity, position) -> store.restore(codec.id(entity), position, entity));
+                firstSegment = snapshot.getKey();
+                unreadable = null;
+                break;
+            } catch (IOException e) {
+                // Nothing was restored from it; an older snapshot still has all of its segments, see snapshot()
+                if (unreadable != null) {
+                    e.addSuppressed(unreadable);
+                }
+                unreadable = e;
+            }
+        }
+        if (unreadable != null) {
+            throw unreadable;
+        }
+        for (Path segment : segments.tailMap(firstSegment).values()) {
+            replay(segment, store);
+        }
+
+        this.store = store;
+        this.channel = openSegment(Math.max(firstSegment, segments.isEmpty() ? 1 : segments.lastKey() + 1));
+        writer.start();
+        store.addListener(this);
+    }
+
+    private void scan(TreeMap<Long, Path> segments, TreeMap<Long, Path> snapshots) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = fileName.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    long number = Long.parseLong(matcher.group(1));
+                    (matcher.group(2).equals("log") ? segments : snapshots).put(number, file);
+                }
+            }
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s-%08d.log", name, number));
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(String.format("%s-%08d.snapshot", name, number));
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segment = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        syncDirectory(); // Fsyncs of the segment do not cover its directory entry
+        currentSegment = number;
+        return segment;
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel entries = FileChannel.open(directory, StandardOpenOption.READ)) {
+            entries.force(true);
+        }
+    }
+
+    private void replay(Path segment, EntityStore<T> store) throws IOException {
+        try (FileChannel source = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(source)));
+            long fileSize = source.size();
+            long validBytes = 0;
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || validBytes + HEADER_BYTES + length > fileSize) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break; // Torn record at the tail
+                }
+                apply(store, payload);
+                validBytes += HEADER_BYTES + payload.length;
+            }
+            source.truncate(validBytes);
+        }
+    }
+
+    private void apply(EntityStore<T> store, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte operation = in.readByte();
+        String id = in.readUTF();
+        if (operation == PUT_AT) {
+            long position = in.readLong();
+            store.restore(id, position, codec.read(in));
+        } else if (operation == REMOVE) {
+            store.remove(id);
+        } else {
+            throw new IOException("Unknown operation " + operation + " in the " + name + " log.");
+        }
+    }
+
+    /**
+     * Writes a snapshot of the attached store, then deletes the segments and snapshots it supersedes.
+     * Writers are never blocked: the log first rolls to a new segment, and the snapshot is taken once
+     * every write queued before the roll has reached the store. Writes made while the snapshot is being
+     * written land in the new segment and are replayed on top of it, which is safe because each record
+     * carries the entity's full state.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (appendedLsn == snapshotLsn) {
+                    return; // Nothing was written since the last snapshot
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            Roll roll = roll();
+            long firstLiveSegment = roll.firstLiveSegment();
+            Path temporary = directory.resolve(name + ".snapshot.tmp");
+            SnapshotFile.write(temporary, store.entries(), codec);
+            Files.move(temporary, snapshotPath(firstLiveSegment), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename must be durable before anything it supersedes is deleted
+            syncDirectory();
+            snapshotLsn = roll.lsn();
+
+            // Older snapshots go first, so any snapshot left after a crash still has every segment it needs
+            TreeMap<Long, Path> segments = new TreeMap<>();
+            TreeMap<Long, Path> snapshots = new TreeMap<>();
+            scan(segments, snapshots);
+            for (Path obsolete : snapshots.headMap(firstLiveSegment).values()) {
+                Files.deleteIfExists(obsolete);
+            }
+            for (Path obsolete : segments.headMap(firstLiveSegment).values()) {
+                Files.deleteIfExists(obsolete);
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Switches to a new segment and waits until every write queued before the switch has reached the store
+    private Roll roll() {
+        long rollLsn;
+        int previousEpoch;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Operation log " + name + " is closed.");
+            }
+            pending.add(ROLL);
+            rollLsn = ++appendedLsn;
+            previousEpoch = epoch;
+            epoch ^= 1;
+            pendingChanged.signal();
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(rollLsn);
+        awaitDrained(previousEpoch);
+        return new Roll(rollLsn, currentSegment);
+    }
+
+    // Blocks rather than spins: the writes still in flight may need this very carrier thread to finish
+    private void awaitDrained(int previousEpoch) {
+        lock.lock();
+        try {
+            draining = true;
+            while (inFlight[previousEpoch].sum() != 0) {
+                try {
+                    epochDrained.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for writes to the " + name + " store.", e);
+                }
+            }
+        } finally {
+            draining = false;
+            lock.unlock();
+        }
+    }
+
+    // Refuses a write the log could not take before the store or any index has applied it
+    @Override
+    public void beforeWrite() {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Operation log " + name + " is closed.");
+            }
+        } finally {
+            lock.unlock();
+        }
+        durableLock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Could not write to the " + name + " log.", failure);
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    @Override
+    public void onPut(String id, long position, T previous, T current) {
+        append(encode(PUT_AT, id, position, current));
+    }
+
+    @Override
+    public void onRemove(String id, long position, T removed) {
+        append(encode(REMOVE, id, 0, null));
+    }
+
+    // The store is done with this thread's writes, even ones that failed after they were logged, so they no longer
+    // hold back a snapshot; block until they are durable
+    @Override
+    public void afterWrite() {
+        long[] appended = appendedByThread.get();
+        inFlight[0].add(-appended[1]);
+        inFlight[1].add(-appended[2]);
+        appended[1] = 0;
+        appended[2] = 0;
+        if (draining) {
+            lock.lock();
+            try {
+                epochDrained.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        awaitDurable(appended[0]);
+    }
+
+    private void awaitDurable(long lsn) {
+        durableLock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    durableChanged.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the " + name + " log to be written.", e);
+                }
+            }
+            if (durableLsn < lsn) {
+                throw new UncheckedIOException("Could not write to the " + name + " log.", failure);
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private ByteBuffer encode(byte operation, String id, long position, T entity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeUTF(id);
+            if (entity != null) {
+                out.writeLong(position);
+                codec.write(out, entity);
+            }
+            byte[] payload = bytes.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+            record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(ByteBuffer record) {
+        long[] appended = appendedByThread.get();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Operation log " + name + " is closed.");
+            }
+            pending.add(record);
+            appended[0] = ++appendedLsn;
+            appended[1 + epoch]++;
+            inFlight[epoch].increment();
+            pendingChanged.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long lastLsn;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        pendingChanged.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return; // Closed and fully drained
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                lastLsn = appendedLsn;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                long firstLsn = lastLsn - batch.size() + 1;
+                int runStart = 0;
+                for (int i = 0; i <= batch.size(); i++) {
+                    if (i < batch.size() && batch.get(i) != ROLL) {
+                        continue;
+                    }
+                    writeRun(batch.subList(runStart, i), firstLsn + runStart);
+                    if (i < batch.size()) {
+                        channel.close();
+                        channel = openSegment(currentSegment + 1);
+                        markDurable(firstLsn + i);
+                    }
+                    runStart = i + 1;
+                }
+            } catch (IOException e) {
+                durableLock.lock();
+                try {
+                    failure = e;
+                    durableChanged.signalAll();
+                } finally {
+                    durableLock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    private void writeRun(List<ByteBuffer> records, long firstLsn) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (groupCommit) {
+            writeFully(records.toArray(new ByteBuffer[0]));
+            channel.force(false);
+            markDurable(firstLsn + records.size() - 1);
+        } else {
+            long lsn = firstLsn;
+            for (ByteBuffer record : records) {
+                writeFully(record);
+                channel.force(false);
+                markDurable(lsn++);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer... records) throws IOException {
+        long remaining = 0;
+        for (ByteBuffer record : records) {
+            remaining += record.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(records);
+        }
+    }
+
+    private void markDurable(long lsn) {
+        durableLock.lock();
+        try {
+            durableLsn = lsn;
+            durableChanged.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    // Flushes everything queued so far, then releases the current segment
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pendingChanged.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (writer.isAlive()) {
+                writer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
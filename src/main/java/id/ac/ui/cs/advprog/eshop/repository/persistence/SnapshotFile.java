@@ -0,0 +1,186 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary image of a whole store, written and read through memory-mapped windows.
+ *
+ * <p>Layout: {@code [int magic][int version]}, then one {@code [int length][long position][entity]} per entity,
+ * then {@code [int -1][long count][int crc32 of all record bytes]}.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x45534E50; // "ESNP"
+    private static final int VERSION = 2;
+    private static final int END_OF_ENTITIES = -1;
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    static <T> long write(Path file, Iterator<Map.Entry<Long, T>> entities, EntityCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(channel);
+            writer.reserve(8).putInt(MAGIC).putInt(VERSION);
+
+            RecordBuffer record = new RecordBuffer();
+            DataOutputStream out = new DataOutputStream(record);
+            CRC32 crc = new CRC32();
+            long count = 0;
+            while (entities.hasNext()) {
+                Map.Entry<Long, T> entity = entities.next();
+                record.reset();
+                out.writeLong(entity.getKey());
+                codec.write(out, entity.getValue());
+                crc.update(record.bytes(), 0, record.size());
+                writer.reserve(4 + record.size()).putInt(record.size()).put(record.bytes(), 0, record.size());
+                count++;
+            }
+            writer.reserve(16).putInt(END_OF_ENTITIES).putLong(count).putInt((int) crc.getValue());
+
+            long size = writer.finish();
+            channel.truncate(size);
+            channel.force(true);
+            return count;
+        }
+    }
+
+    // Checks the footer in a first pass, so a corrupt snapshot is refused before the sink sees any entity
+    static <T> long read(Path file, EntityCodec<T> codec, ObjLongConsumer<T> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long count = verify(file, new Reader(channel));
+
+            Reader reader = new Reader(channel);
+            reader.require(8).position(8); // Header, already checked
+            for (long i = 0; i < count; i++) {
+                int length = recordLength(reader);
+                if (length == END_OF_ENTITIES) {
+                    throw new IOException("Snapshot is corrupt.");
+                }
+                byte[] bytes = new byte[length];
+                reader.require(length).get(bytes);
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+                long position = in.readLong();
+                sink.accept(codec.read(in), position);
+            }
+            return count;
+        }
+    }
+
+    // Walks the records without decoding them and returns their count once it and the checksum match the footer
+    private static long verify(Path file, Reader reader) throws IOException {
+        MappedByteBuffer header = reader.require(8);
+        int magic = header.getInt();
+        int version = header.getInt();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Not a snapshot file: " + file);
+        }
+
+        CRC32 crc = new CRC32();
+        long count = 0;
+        while (true) {
+            int length = recordLength(reader);
+            if (length == END_OF_ENTITIES) {
+                break;
+            }
+            MappedByteBuffer window = reader.require(length);
+            crc.update(window.slice(window.position(), length));
+            window.position(window.position() + length);
+            count++;
+        }
+
+        MappedByteBuffer footer = reader.require(12);
+        if (footer.getLong() != count || footer.getInt() != (int) crc.getValue()) {
+            throw new IOException("Snapshot " + file + " is corrupt.");
+        }
+        return count;
+    }
+
+    // Anything but the end marker or a length that fits in the rest of the file is corrupt, not an entity
+    private static int recordLength(Reader reader) throws IOException {
+        int length = reader.require(4).getInt();
+        if (length != END_OF_ENTITIES && (length < 0 || length > reader.remaining())) {
+            throw new IOException("Snapshot is corrupt.");
+        }
+        return length;
+    }
+
+    // Maps the file one window at a time, remapping whenever the next value would not fit
+    private static final class Writer {
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        MappedByteBuffer reserve(int bytes) throws IOException {
+            if (window == null || window.remaining() < bytes) {
+                long position = (window == null) ? 0 : windowStart + window.position();
+                if (window != null) {
+                    window.force();
+                }
+                window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(WINDOW_BYTES, bytes));
+                windowStart = position;
+            }
+            return window;
+        }
+
+        long finish() {
+            window.force();
+            return windowStart + window.position();
+        }
+    }
+
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        MappedByteBuffer require(int bytes) throws IOException {
+            if (window == null || window.remaining() < bytes) {
+                long position = (window == null) ? 0 : windowStart + window.position();
+                if (bytes < 0 || position + bytes > size) {
+                    throw new IOException("Snapshot is truncated.");
+                }
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.max(WINDOW_BYTES, bytes), size - position));
+                windowStart = position;
+            }
+            return window;
+        }
+
+        long remaining() {
+            return size - windowStart - window.position();
+        }
+    }
+
+    // Lets the encoded entity be copied into the mapping without an intermediate array
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(256);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Read-through cache for {@link #findById} in front of another {@link CarService}, invalidated on every
+ * write the same way as {@link CachingProductService}. Unknown IDs are not cached.
+ */
+public class CachingCarService implements CarService {
+    private final CarService delegate;
+    private final Cache<String, Car> cache;
+
+    public CachingCarService(CarService delegate, Cache<String, Car> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public Car findById(String carId) {
+        if (carId == null) {
+            return null;
+        }
+        return cache.get(carId, delegate::findById);
+    }
+
+    @Override
+    public Car create(Car car) {
+        return delegate.create(car); // A create never replaces a stored car, and unknown IDs are not cached
+    }
+
+    // Imports only add new cars, so nothing cached can go stale
+    @Override
+    public ImportReport importCars(Iterator<Car> cars) {
+        return delegate.importCars(cars);
+    }
+
+    @Override
+    public BatchResult<Car> createAll(List<Car> cars) {
+        return invalidate(delegate.createAll(cars));
+    }
+
+    @Override
+    public BatchResult<Car> updateAll(List<Car> cars) {
+        return invalidate(delegate.updateAll(cars));
+    }
+
+    @Override
+    public BatchResult<Car> deleteAll(List<String> carIds) {
+        return invalidate(delegate.deleteAll(carIds));
+    }
+
+    private BatchResult<Car> invalidate(BatchResult<Car> result) {
+        cache.invalidateAll(result.getSucceeded().stream().map(Car::getCarId).toList());
+        return result;
+    }
+
+    @Override
+    public UpdateResult<Car> update(String carId, Car car) {
+        UpdateResult<Car> result = delegate.update(carId, car);
+        if (result != null && !result.isConflict()) {
+            cache.invalidate(carId);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean deleteCarById(String carId) {
+        boolean deleted = delegate.deleteCarById(carId);
+        if (deleted) {
+            cache.invalidate(carId);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Car> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Iterator<Car> iterateAll() {
+        return delegate.iterateAll();
+    }
+
+    @Override
+    public long modificationCount() {
+        return delegate.modificationCount();
+    }
+
+    @Override
+    public Page<Car> findPage(Long after, Long before, int size) {
+        return delegate.findPage(after, before, size);
+    }
+
+    @Override
+    public Page<Car> findPageByColor(String color, Long after, Long before, int size) {
+        return delegate.findPageByColor(color, after, before, size);
+    }
+
+    @Override
+    public SortedMap<String, Integer> countByColor() {
+        return delegate.countByColor();
+    }
+}
@@ -0,0 +1,138 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Read-through cache for {@link #findById} in front of another {@link ProductService}.
+ * Every write goes to the delegate first and then invalidates the IDs it touched. A lookup that raced
+ * with the write either finished before the invalidation, and is dropped by it, or started after the
+ * write and loads the new product, because the cache loads and invalidates each ID atomically.
+ * Lists, pages and searches are not cached and always reach the delegate.
+ */
+public class CachingProductService implements ProductService {
+    private final ProductService delegate;
+    private final Cache<String, Product> cache;
+
+    public CachingProductService(ProductService delegate, Cache<String, Product> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public Product findById(String productId) {
+        if (productId == null || productId.isEmpty()) {
+            return delegate.findById(productId);
+        }
+        // A missing product throws, so it is never cached
+        return cache.get(productId, delegate::findById);
+    }
+
+    @Override
+    public Product create(Product product) {
+        return delegate.create(product); // A create never replaces a stored product, and unknown IDs are not cached
+    }
+
+    // Imports only add new products, so nothing cached can go stale
+    @Override
+    public ImportReport importProducts(Iterator<Product> products) {
+        return delegate.importProducts(products);
+    }
+
+    @Override
+    public BatchResult<Product> createAll(List<Product> products) {
+        return invalidate(delegate.createAll(products));
+    }
+
+    @Override
+    public BatchResult<Product> updateAll(List<Product> products) {
+        return invalidate(delegate.updateAll(products));
+    }
+
+    @Override
+    public BatchResult<Product> deleteAll(List<String> productIds) {
+        return invalidate(delegate.deleteAll(productIds));
+    }
+
+    private BatchResult<Product> invalidate(BatchResult<Product> result) {
+        cache.invalidateAll(result.getSucceeded().stream().map(Product::getProductId).toList());
+        return result;
+    }
+
+    @Override
+    public UpdateResult<Product> update(Product product) {
+        UpdateResult<Product> result = delegate.update(product);
+        if (!result.isConflict()) {
+            cache.invalidate(product.getProductId());
+        }
+        return result;
+    }
+
+    @Override
+    public Product reserve(String productId, int quantity) {
+        Product reserved = delegate.reserve(productId, quantity);
+        if (reserved != null) {
+            cache.invalidate(productId);
+        }
+        return reserved;
+    }
+
+    @Override
+    public Product release(String productId, int quantity) {
+        Product released = delegate.release(productId, quantity);
+        cache.invalidate(productId);
+        return released;
+    }
+
+    @Override
+    public void delete(String productId) {
+        delegate.delete(productId);
+        cache.invalidate(productId);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Iterator<Product> iterateAll() {
+        return delegate.iterateAll();
+    }
+
+    @Override
+    public long modificationCount() {
+        return delegate.modificationCount();
+    }
+
+    @Override
+    public Page<Product> findPage(int page, int size, Long cursor, Long before) {
+        return delegate.findPage(page, size, cursor, before);
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    @Override
+    public List<Product> findByQuantityRange(int min, int max, int limit) {
+        return delegate.findByQuantityRange(min, max, limit);
+    }
+}
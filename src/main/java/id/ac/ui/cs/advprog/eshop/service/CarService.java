@@ -1,12 +1,27 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
 import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import java.util.Iterator;
 import java.util.List;
+import java.util.SortedMap;
 
 public interface CarService {
     Car create(Car car);
+    ImportReport importCars(Iterator<Car> cars);
+    BatchResult<Car> createAll(List<Car> cars);
+    BatchResult<Car> updateAll(List<Car> cars);
+    BatchResult<Car> deleteAll(List<String> carIds);
     List<Car> findAll();
+    Iterator<Car> iterateAll();
+    long modificationCount();
+    Page<Car> findPage(Long after, Long before, int size);
+    Page<Car> findPageByColor(String color, Long after, Long before, int size);
+    SortedMap<String, Integer> countByColor();
     Car findById(String carId);
-    void update(String carId, Car car);
-    void deleteCarById(String carId);
+    UpdateResult<Car> update(String carId, Car car);
+    boolean deleteCarById(String carId);
 }
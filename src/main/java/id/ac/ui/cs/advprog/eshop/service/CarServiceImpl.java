@@ -1,6 +1,10 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
 import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -8,9 +12,13 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.SortedMap;
 
 @Service
 public class CarServiceImpl implements CarService {
+    static final int MAX_PAGE_SIZE = 100;
+    static final int IMPORT_BATCH_SIZE = 1_000;
+
     @Autowired
     private CarRepository carRepository;
 
@@ -19,6 +27,63 @@ public class CarServiceImpl implements CarService {
         return carRepository.create(car);
     }
 
+    // Consumes the cars in fixed-size batches, so an import of any length needs constant memory
+    @Override
+    public ImportReport importCars(Iterator<Car> cars) {
+        List<Car> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        ImportReport report = new ImportReport();
+        long offset = 0;
+        while (true) {
+            Car next;
+            try {
+                if (!cars.hasNext()) {
+                    break;
+                }
+                next = cars.next();
+            } catch (IllegalArgumentException e) {
+                // A malformed record is rejected on its own, after the records read before it
+                offset = flush(batch, report, offset);
+                report.reject(offset++, e.getMessage());
+                continue;
+            } catch (RuntimeException e) {
+                // The input itself failed: store what was read so far before giving up
+                flush(batch, report, offset);
+                throw e;
+            }
+            batch.add(next);
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                offset = flush(batch, report, offset);
+            }
+        }
+        flush(batch, report, offset);
+        return report;
+    }
+
+    private long flush(List<Car> batch, ImportReport report, long offset) {
+        if (batch.isEmpty()) {
+            return offset;
+        }
+        report.add(carRepository.createAll(batch), offset);
+        long next = offset + batch.size();
+        batch.clear();
+        return next;
+    }
+
+    @Override
+    public BatchResult<Car> createAll(List<Car> cars) {
+        return carRepository.createAll(cars);
+    }
+
+    @Override
+    public BatchResult<Car> updateAll(List<Car> cars) {
+        return carRepository.updateAll(cars);
+    }
+
+    @Override
+    public BatchResult<Car> deleteAll(List<String> carIds) {
+        return carRepository.deleteAll(carIds);
+    }
+
     @Override
     public List<Car> findAll() {
         Iterator<Car> carIterator = carRepository.findAll();
@@ -27,18 +92,43 @@ public class CarServiceImpl implements CarService {
         return allCars;
     }
 
+    @Override
+    public Iterator<Car> iterateAll() {
+        return carRepository.findAll();
+    }
+
+    @Override
+    public long modificationCount() {
+        return carRepository.modificationCount();
+    }
+
+    @Override
+    public Page<Car> findPage(Long after, Long before, int size) {
+        return carRepository.findPage(after, before, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @Override
+    public Page<Car> findPageByColor(String color, Long after, Long before, int size) {
+        return carRepository.findPageByColor(color, after, before, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    @Override
+    public SortedMap<String, Integer> countByColor() {
+        return carRepository.countByColor();
+    }
+
     @Override
     public Car findById(String carId) {
         return carRepository.findById(carId);
     }
 
     @Override
-    public void update(String carId, Car car) {
-        carRepository.update(carId, car);
+    public UpdateResult<Car> update(String carId, Car car) {
+        return carRepository.update(carId, car);
     }
 
     @Override
-    public void deleteCarById(String carId) {
-        carRepository.delete(carId);
+    public boolean deleteCarById(String carId) {
+        return carRepository.delete(carId);
     }
 }
@@ -0,0 +1,10 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.InventoryStats;
+
+public interface InventoryStatsService {
+    // From the figures the repositories keep up to date on every write; costs nothing to read
+    InventoryStats stats(int top);
+    // Recomputed from every stored product and car in one parallel scan
+    InventoryStats recount(int top);
+}
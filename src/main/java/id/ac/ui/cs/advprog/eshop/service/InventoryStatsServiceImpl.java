@@ -0,0 +1,151 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.InventoryStats;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.ProductStockStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Inventory figures for the dashboard. {@link #stats} reads the running totals, histogram and quantity index
+ * that the repositories maintain on every write. {@link #recount} derives the same figures from the data itself
+ * in a parallel stream over the stores, which split along their own layout, so nothing is copied first; it is
+ * the exact answer should a write have failed after the running figures had taken it in.
+ */
+@Service
+public class InventoryStatsServiceImpl implements InventoryStatsService {
+    static final int MAX_TOP = 100;
+
+    // Quantity and then ID, like the quantity index; the top products are the greatest under this order
+    private static final Comparator<Product> BY_QUANTITY = Comparator.comparingInt(Product::getProductQuantity)
+            .thenComparing(Product::getProductId);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Override
+    public InventoryStats stats(int top) {
+        int limit = Math.max(0, Math.min(top, MAX_TOP));
+        return new InventoryStats(
+                productRepository.count(),
+                productRepository.totalStock(),
+                histogram(productRepository.quantityHistogram()),
+                (limit == 0) ? List.of() : productRepository.findTopByQuantity(limit),
+                carRepository.count(),
+                carRepository.totalStock(),
+                carRepository.stockByColor());
+    }
+
+    @Override
+    public InventoryStats recount(int top) {
+        int limit = Math.max(0, Math.min(top, MAX_TOP));
+        ProductTally products = productRepository.parallelStream()
+                .collect(() -> new ProductTally(limit), ProductTally::add, ProductTally::merge);
+        CarTally cars = carRepository.parallelStream()
+                .collect(CarTally::new, CarTally::add, CarTally::merge);
+        return new InventoryStats(
+                products.count,
+                products.stock,
+                histogram(products.histogram),
+                products.highest(),
+                cars.count,
+                cars.stock,
+                cars.byColor());
+    }
+
+    private static List<InventoryStats.QuantityBucket> histogram(long[] counts) {
+        List<InventoryStats.QuantityBucket> buckets = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            buckets.add(new InventoryStats.QuantityBucket(
+                    ProductStockStats.lowerBound(i), ProductStockStats.upperBound(i), counts[i]));
+        }
+        return buckets;
+    }
+
+    // Partial figures of the products one fork of the scan has seen; forks are merged pairwise
+    private static final class ProductTally {
+        private final int limit;
+        private final PriorityQueue<Product> highest; // Lowest of the kept products at the head
+        private final long[] histogram = new long[ProductStockStats.BUCKETS];
+        private long count;
+        private long stock;
+
+        private ProductTally(int limit) {
+            this.limit = limit;
+            this.highest = new PriorityQueue<>(Math.max(limit, 1), BY_QUANTITY);
+        }
+
+        private void add(Product product) {
+            count++;
+            stock += product.getProductQuantity();
+            histogram[ProductStockStats.bucket(product.getProductQuantity())]++;
+            offer(product);
+        }
+
+        private void offer(Product product) {
+            if (highest.size() < limit) {
+                highest.add(product);
+            } else if (limit > 0 && BY_QUANTITY.compare(product, highest.peek()) > 0) {
+                highest.poll();
+                highest.add(product);
+            }
+        }
+
+        private void merge(ProductTally other) {
+            count += other.count;
+            stock += other.stock;
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            other.highest.forEach(this::offer);
+        }
+
+        private List<Product> highest() {
+            List<Product> sorted = new ArrayList<>(highest);
+            sorted.sort(BY_QUANTITY.reversed());
+            return sorted;
+        }
+    }
+
+    private static final class CarTally {
+        private final Map<String, Long> byColor = new HashMap<>();
+        private long count;
+        private long stock;
+
+        private void add(Car car) {
+            count++;
+            stock += car.getCarQuantity();
+            if (car.getCarColor() != null) {
+                byColor.merge(car.getCarColor(), (long) car.getCarQuantity(), Long::sum);
+            }
+        }
+
+        private void merge(CarTally other) {
+            count += other.count;
+            stock += other.stock;
+            other.byColor.forEach((color, quantity) -> byColor.merge(color, quantity, Long::sum));
+        }
+
+        // Colors without any stock are skipped, as in the running totals
+        private SortedMap<String, Long> byColor() {
+            SortedMap<String, Long> totals = new TreeMap<>(byColor);
+            totals.values().removeIf(quantity -> quantity == 0);
+            return totals;
+        }
+    }
+}
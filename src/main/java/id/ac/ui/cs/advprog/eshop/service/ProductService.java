@@ -1,12 +1,28 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import java.util.Iterator;
 import java.util.List;
 
 public interface ProductService {
     Product create(Product product);
+    ImportReport importProducts(Iterator<Product> products);
+    BatchResult<Product> createAll(List<Product> products);
+    BatchResult<Product> updateAll(List<Product> products);
+    BatchResult<Product> deleteAll(List<String> productIds);
     List<Product> findAll();
+    Iterator<Product> iterateAll();
+    long modificationCount();
+    Page<Product> findPage(int page, int size, Long cursor, Long before);
+    List<Product> search(String query, int limit);
+    List<Product> findByQuantityRange(int min, int max, int limit);
     Product findById(String productId);
-    Product update(Product product);
+    UpdateResult<Product> update(Product product);
+    Product reserve(String productId, int quantity);
+    Product release(String productId, int quantity);
     void delete(String productId);
 }
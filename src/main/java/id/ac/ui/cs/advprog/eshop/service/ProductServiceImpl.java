@@ -1,6 +1,10 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -11,6 +15,8 @@ import java.util.List;
 
 @Service
 public class ProductServiceImpl implements ProductService {
+    static final int MAX_PAGE_SIZE = 100;
+    static final int IMPORT_BATCH_SIZE = 1_000;
 
     @Autowired
     private ProductRepository productRepository;
@@ -21,16 +27,84 @@ public class ProductServiceImpl implements ProductService {
         return product;
     }
 
+    // Consumes the products in fixed-size batches, so an import of any length needs constant memory
+    @Override
+    public ImportReport importProducts(Iterator<Product> products) {
+        List<Product> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        ImportReport report = new ImportReport();
+        long offset = 0;
+        while (true) {
+            Product next;
+            try {
+                if (!products.hasNext()) {
+                    break;
+                }
+                next = products.next();
+            } catch (IllegalArgumentException e) {
+                // A malformed record is rejected on its own, after the records read before it
+                offset = flush(batch, report, offset);
+                report.reject(offset++, e.getMessage());
+                continue;
+            } catch (RuntimeException e) {
+                // The input itself failed: store what was read so far before giving up
+                flush(batch, report, offset);
+                throw e;
+            }
+            batch.add(next);
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                offset = flush(batch, report, offset);
+            }
+        }
+        flush(batch, report, offset);
+        return report;
+    }
+
+    private long flush(List<Product> batch, ImportReport report, long offset) {
+        if (batch.isEmpty()) {
+            return offset;
+        }
+        report.add(productRepository.createAll(batch), offset);
+        long next = offset + batch.size();
+        batch.clear();
+        return next;
+    }
+
+    @Override
+    public BatchResult<Product> createAll(List<Product> products) {
+        return productRepository.createAll(products);
+    }
+
+    @Override
+    public BatchResult<Product> updateAll(List<Product> products) {
+        return productRepository.updateAll(products);
+    }
+
+    @Override
+    public BatchResult<Product> deleteAll(List<String> productIds) {
+        return productRepository.deleteAll(productIds);
+    }
+
     @Override
     public Product findById(String productId) {
         return productRepository.findById(productId);
     }
 
     @Override
-    public Product update(Product product) {
+    public UpdateResult<Product> update(Product product) {
         return productRepository.update(product);
     }
 
+    // Returns null when there is not enough stock left
+    @Override
+    public Product reserve(String productId, int quantity) {
+        return productRepository.reserve(productId, quantity);
+    }
+
+    @Override
+    public Product release(String productId, int quantity) {
+        return productRepository.release(productId, quantity);
+    }
+
     @Override
     public List<Product> findAll() {
         Iterator<Product> productIterator = productRepository.findAll();
@@ -39,6 +113,32 @@ public class ProductServiceImpl implements ProductService {
         return allProduct;
     }
 
+    // Lazily walks the products instead of copying them into a list first
+    @Override
+    public Iterator<Product> iterateAll() {
+        return productRepository.findAll();
+    }
+
+    @Override
+    public long modificationCount() {
+        return productRepository.modificationCount();
+    }
+
+    @Override
+    public Page<Product> findPage(int page, int size, Long cursor, Long before) {
+        return productRepository.findPage(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)), cursor, before);
+    }
+
+    @Override
+    public List<Product> search(String query, int limit) {
+        return productRepository.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    @Override
+    public List<Product> findByQuantityRange(int min, int max, int limit) {
+        return productRepository.findByQuantityRange(min, max, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
     @Override
     public void delete(String productId) {
         productRepository.delete(productId);
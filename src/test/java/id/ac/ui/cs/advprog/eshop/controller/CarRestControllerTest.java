@@ -0,0 +1,120 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.DuplicateIdException;
+import id.ac.ui.cs.advprog.eshop.service.CarService;
+import id.ac.ui.cs.advprog.eshop.service.CarServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CarRestControllerTest {
+
+    @Mock
+    private CarService carService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private CarRestController carRestController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testGetCar_NotFound() {
+        // Given
+        when(carService.findById("missing")).thenReturn(null);
+
+        // When
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> {
+            carRestController.getCar("missing");
+        });
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void testUpdateCar_StaleVersionIsConflict() {
+        // Given
+        Car car = new Car();
+        when(carService.update("id-1", car)).thenReturn(UpdateResult.conflict(new Car()));
+
+        // When
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> carRestController.updateCar("id-1", car));
+
+        // Then
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void testUpdateCar_NotFound() {
+        // Given
+        Car car = new Car();
+        when(carService.update("missing", car)).thenReturn(null);
+
+        // When / Then
+        assertThrows(ResponseStatusException.class, () -> carRestController.updateCar("missing", car));
+    }
+
+    @Test
+    void testDeleteCar() {
+        // Given
+        when(carService.deleteCarById("id-1")).thenReturn(true);
+        when(carService.deleteCarById("missing")).thenReturn(false);
+
+        // When
+        ResponseEntity<Void> response = carRestController.deleteCar("id-1");
+
+        // Then
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertThrows(ResponseStatusException.class, () -> carRestController.deleteCar("missing"));
+    }
+
+    @Test
+    void testCreateCar_SameIdTwiceIsConflict() throws Exception {
+        // Given a controller over a real service, so the second post reaches the repository's ID check
+        CarServiceImpl realService = new CarServiceImpl();
+        inject(realService, "carRepository", new CarRepository());
+        CarRestController controller = new CarRestController();
+        inject(controller, "carService", realService);
+        RestExceptionHandler handler = new RestExceptionHandler();
+        Car original = new Car();
+        original.setCarId("id-1");
+        original.setCarName("Avanza");
+        Car duplicate = new Car();
+        duplicate.setCarId("id-1");
+        duplicate.setCarName("Xenia");
+
+        // When
+        ResponseEntity<Car> first = controller.createCar(original);
+        DuplicateIdException refused = assertThrows(DuplicateIdException.class, () -> controller.createCar(duplicate));
+        ResponseEntity<ProblemDetail> second = handler.handleDuplicate(refused);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, second.getStatusCode());
+        assertEquals("Avanza", realService.findById("id-1").getCarName());
+    }
+
+    private static void inject(Object target, String field, Object value) throws ReflectiveOperationException {
+        var declared = target.getClass().getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(target, value);
+    }
+}
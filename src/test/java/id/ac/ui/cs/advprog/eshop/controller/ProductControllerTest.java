@@ -1,11 +1,21 @@
 package id.ac.ui.cs.advprog.eshop.controller;
 
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
 import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import id.ac.ui.cs.advprog.eshop.service.ProductServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.ui.ConcurrentModel;
 import org.springframework.ui.Model;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,6 +31,9 @@ class ProductControllerTest {
     @Mock
     private Model model;
 
+    @Mock
+    private WebRequest webRequest;
+
     @InjectMocks
     private ProductController productController;
 
@@ -69,18 +82,140 @@ class ProductControllerTest {
         // Given
         List<Product> products = new ArrayList<>();
         products.add(new Product());
-        when(productService.findAll()).thenReturn(products);
+        Page<Product> page = new Page<>(products, 0, 20, null, null);
+        when(productService.findPage(0, 20, null, null)).thenReturn(page);
 
         // When
-        String viewName = productController.productListPage(model);
+        String viewName = productController.productListPage(0, 20, null, null, webRequest, model);
 
         // Then
         assertEquals("ProductList", viewName);
-        verify(productService).findAll();
+        verify(productService).modificationCount();
+        verify(productService).findPage(0, 20, null, null);
         verify(model).addAttribute("products", products);
+        verify(model).addAttribute("page", page);
         verifyNoMoreInteractions(productService, model);
     }
 
+    @Test
+    void testProductListPage_WithBeforeCursor() {
+        // Given
+        Page<Product> page = new Page<>(new ArrayList<>(), 2, 10, 43L, null);
+        when(productService.findPage(2, 10, null, 44L)).thenReturn(page);
+
+        // When
+        String viewName = productController.productListPage(2, 10, null, 44L, webRequest, model);
+
+        // Then
+        assertEquals("ProductList", viewName);
+        verify(productService).findPage(2, 10, null, 44L);
+        verify(model).addAttribute("page", page);
+    }
+
+    @Test
+    void testProductListPage_WithCursor() {
+        // Given
+        Page<Product> page = new Page<>(new ArrayList<>(), 3, 10, null, null);
+        when(productService.findPage(3, 10, 42L, null)).thenReturn(page);
+
+        // When
+        String viewName = productController.productListPage(3, 10, 42L, null, webRequest, model);
+
+        // Then
+        assertEquals("ProductList", viewName);
+        verify(productService).findPage(3, 10, 42L, null);
+        verify(model).addAttribute("page", page);
+    }
+
+    @Test
+    void testProductListPage_NotModifiedSkipsTheLookup() {
+        // Given
+        when(productService.modificationCount()).thenReturn(7L);
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        productController.productListPage(0, 20, null, null,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/product/list"), first), model);
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        clearInvocations(productService, model);
+
+        MockHttpServletRequest revalidation = new MockHttpServletRequest("GET", "/product/list");
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        // When
+        String viewName = productController.productListPage(0, 20, null, null,
+                new ServletWebRequest(revalidation, second), model);
+
+        // Then
+        assertNotNull(etag);
+        assertNull(viewName);
+        assertEquals(304, second.getStatus());
+        verify(productService).modificationCount();
+        verifyNoMoreInteractions(productService);
+        verifyNoInteractions(model);
+    }
+
+    @Test
+    void testProductListPage_WriteChangesTheETag() {
+        // Given
+        when(productService.modificationCount()).thenReturn(7L, 8L);
+        MockHttpServletResponse before = new MockHttpServletResponse();
+        MockHttpServletResponse after = new MockHttpServletResponse();
+
+        // When
+        productController.productListPage(0, 20, null, null,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/product/list"), before), model);
+        productController.productListPage(0, 20, null, null,
+                new ServletWebRequest(new MockHttpServletRequest("GET", "/product/list"), after), model);
+
+        // Then
+        assertNotEquals(before.getHeader(HttpHeaders.ETAG), after.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testSearchProductPage() {
+        // Given
+        List<Product> results = new ArrayList<>();
+        results.add(new Product());
+        when(productService.search("sampo", 20)).thenReturn(results);
+
+        // When
+        String viewName = productController.searchProductPage("sampo", 20, model);
+
+        // Then
+        assertEquals("ProductList", viewName);
+        verify(model).addAttribute("products", results);
+        verify(model).addAttribute("query", "sampo");
+    }
+
+    @Test
+    void testSearchProductPage_NonPositiveSizeShowsOneResult() throws Exception {
+        // Given a controller over a real service
+        ProductServiceImpl realService = new ProductServiceImpl();
+        var repositoryField = ProductServiceImpl.class.getDeclaredField("productRepository");
+        repositoryField.setAccessible(true);
+        repositoryField.set(realService, new ProductRepository());
+        ProductController controller = new ProductController();
+        var serviceField = ProductController.class.getDeclaredField("service");
+        serviceField.setAccessible(true);
+        serviceField.set(controller, realService);
+        for (String name : new String[]{"Sampo Cap Bambang", "Sampo Cap Usep"}) {
+            Product product = new Product();
+            product.setProductName(name);
+            product.setProductQuantity(1);
+            realService.create(product);
+        }
+
+        for (int size : new int[]{0, -3}) {
+            // When
+            ConcurrentModel page = new ConcurrentModel();
+            String viewName = controller.searchProductPage("sampo", size, page);
+
+            // Then
+            assertEquals("ProductList", viewName);
+            assertEquals(1, ((List<?>) page.getAttribute("products")).size());
+        }
+    }
+
     @Test
     void testEditProductPage() {
         // Given
@@ -102,6 +237,7 @@ class ProductControllerTest {
     void testEditProductPost() {
         // Given
         Product product = new Product();
+        when(productService.update(product)).thenReturn(UpdateResult.updated(product));
 
         // When
         String viewName = productController.editProductPost(product, model);
@@ -112,6 +248,22 @@ class ProductControllerTest {
         verifyNoMoreInteractions(productService);
     }
 
+    @Test
+    void testEditProductPost_ConflictShowsCurrentProduct() {
+        // Given
+        Product stale = new Product();
+        Product current = new Product();
+        when(productService.update(stale)).thenReturn(UpdateResult.conflict(current));
+
+        // When
+        String viewName = productController.editProductPost(stale, model);
+
+        // Then
+        assertEquals("EditProduct", viewName);
+        verify(model).addAttribute("product", current);
+        verify(model).addAttribute("conflict", true);
+    }
+
     @Test
     void testDeleteProduct() {
         // Given
@@ -121,7 +273,7 @@ class ProductControllerTest {
         String viewName = productController.deleteProduct(productId);
 
         // Then
-        assertEquals("productList", viewName);
+        assertEquals("redirect:/product/list", viewName);
         verify(productService).delete(productId);
         verifyNoMoreInteractions(productService);
     }
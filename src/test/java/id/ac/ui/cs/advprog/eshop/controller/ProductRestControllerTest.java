@@ -0,0 +1,349 @@
+package id.ac.ui.cs.advprog.eshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.DuplicateIdException;
+import id.ac.ui.cs.advprog.eshop.repository.ProductNotFoundException;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.service.ProductService;
+import id.ac.ui.cs.advprog.eshop.service.ProductServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductRestControllerTest {
+
+    @Mock
+    private ProductService productService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ProductRestController productRestController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private Product newProduct(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    @Test
+    void testListProducts_StreamsJsonArray() throws Exception {
+        // Given
+        List<Product> products = List.of(newProduct("id-1", "Sampo", 1), newProduct("id-2", "Sabun", 2));
+        when(productService.iterateAll()).thenReturn(products.iterator());
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = productRestController.listProducts();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Product[] written = objectMapper.readValue(out.toString(StandardCharsets.UTF_8), Product[].class);
+        assertEquals(2, written.length);
+        assertEquals("id-1", written[0].getProductId());
+        assertEquals("Sabun", written[1].getProductName());
+    }
+
+    @Test
+    void testCreateProduct_ReturnsCreated() {
+        // Given
+        Product product = newProduct("id-1", "Sampo", 1);
+        when(productService.create(product)).thenReturn(product);
+
+        // When
+        ResponseEntity<Product> response = productRestController.createProduct(product);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("/api/products/id-1", response.getHeaders().getLocation().toString());
+        assertSame(product, response.getBody());
+    }
+
+    @Test
+    void testCreateProduct_SameIdTwiceIsConflict() throws Exception {
+        // Given a controller over a real service, so the second post reaches the repository's ID check
+        ProductServiceImpl realService = new ProductServiceImpl();
+        inject(realService, "productRepository", new ProductRepository());
+        ProductRestController controller = new ProductRestController();
+        inject(controller, "service", realService);
+        RestExceptionHandler handler = new RestExceptionHandler();
+
+        // When
+        ResponseEntity<Product> first = controller.createProduct(newProduct("id-1", "Sampo", 1));
+        DuplicateIdException duplicate = assertThrows(DuplicateIdException.class,
+                () -> controller.createProduct(newProduct("id-1", "Sabun", 2)));
+        ResponseEntity<ProblemDetail> second = handler.handleDuplicate(duplicate);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, second.getStatusCode());
+        assertEquals("Sampo", realService.findById("id-1").getProductName());
+        assertEquals(0, realService.findById("id-1").getVersion());
+    }
+
+    private static void inject(Object target, String field, Object value) throws ReflectiveOperationException {
+        var declared = target.getClass().getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(target, value);
+    }
+
+    @Test
+    void testUpdateProduct_UsesIdFromPath() {
+        // Given
+        Product product = newProduct(null, "Sampo", 5);
+        when(productService.update(product)).thenReturn(UpdateResult.updated(product));
+
+        // When
+        Product updated = productRestController.updateProduct("id-1", product);
+
+        // Then
+        assertEquals("id-1", updated.getProductId());
+        verify(productService).update(product);
+    }
+
+    @Test
+    void testUpdateProduct_StaleVersionIsConflict() {
+        // Given
+        Product product = newProduct(null, "Sampo", 5);
+        when(productService.update(product)).thenReturn(UpdateResult.conflict(newProduct("id-1", "Sabun", 1)));
+
+        // When
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> productRestController.updateProduct("id-1", product));
+
+        // Then
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void testReserveProduct_NotEnoughStockIsConflict() {
+        // Given
+        Product product = newProduct("id-1", "Sampo", 4);
+        when(productService.reserve("id-1", 1)).thenReturn(product);
+        when(productService.reserve("id-1", 5)).thenReturn(null);
+
+        // When / Then
+        assertSame(product, productRestController.reserveProduct("id-1", 1));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> productRestController.reserveProduct("id-1", 5));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void testDeleteProduct_ReturnsNoContent() {
+        // When
+        ResponseEntity<Void> response = productRestController.deleteProduct("id-1");
+
+        // Then
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(productService).delete("id-1");
+    }
+
+    @Test
+    void testFindByQuantityRange() {
+        // Given
+        List<Product> lowStock = List.of(newProduct("id-1", "Sampo", 2));
+        when(productService.findByQuantityRange(0, 10, 5)).thenReturn(lowStock);
+
+        // When
+        List<Product> result = productRestController.findByQuantityRange(0, 10, 5);
+
+        // Then
+        assertSame(lowStock, result);
+        verify(productService).findByQuantityRange(0, 10, 5);
+    }
+
+    @Test
+    void testFindByQuantityRange_IsBoundedAndRefusesAnInvertedRange() throws Exception {
+        // Given a controller over a real service holding more products than one response may carry
+        ProductServiceImpl realService = new ProductServiceImpl();
+        inject(realService, "productRepository", new ProductRepository());
+        ProductRestController controller = new ProductRestController();
+        inject(controller, "service", realService);
+        for (int i = 0; i < 150; i++) {
+            realService.create(newProduct(null, "Sampo " + i, i % 3));
+        }
+
+        // When
+        List<Product> everything = controller.findByQuantityRange(0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        List<Product> lowest = controller.findByQuantityRange(0, Integer.MAX_VALUE, 4);
+        IllegalArgumentException inverted = assertThrows(IllegalArgumentException.class,
+                () -> controller.findByQuantityRange(10, 5, 20));
+        ResponseEntity<ProblemDetail> response = new RestExceptionHandler().handleInvalidInput(inverted);
+
+        // Then
+        assertEquals(100, everything.size());
+        assertEquals(4, lowest.size());
+        assertTrue(lowest.stream().allMatch(product -> product.getProductQuantity() == 0));
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Minimum quantity cannot exceed maximum quantity.", response.getBody().getDetail());
+    }
+
+    @Test
+    void testExceptionHandler_MapsNotFoundAndInvalidInput() {
+        // Given
+        RestExceptionHandler handler = new RestExceptionHandler();
+
+        // When
+        ResponseEntity<ProblemDetail> notFound = handler.handleNotFound(new ProductNotFoundException("Product with ID x not found."));
+        ResponseEntity<ProblemDetail> invalid = handler.handleInvalidInput(new IllegalArgumentException("Product name cannot be empty."));
+
+        // Then
+        assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+        assertEquals("Product with ID x not found.", notFound.getBody().getDetail());
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void testImportProducts_Csv() throws Exception {
+        // Given
+        ImportReport report = new ImportReport();
+        String csv = "productName,productQuantity\r\n\"Sampo, \"\"Cap\"\" Bambang\",5\r\nSabun,7\r\n";
+        when(productService.importProducts(any())).thenAnswer(invocation -> {
+            Iterator<Product> products = invocation.getArgument(0);
+            Product first = products.next();
+            assertEquals("Sampo, \"Cap\" Bambang", first.getProductName());
+            assertEquals(5, first.getProductQuantity());
+            assertEquals("Sabun", products.next().getProductName());
+            assertFalse(products.hasNext());
+            return report;
+        });
+
+        // When
+        ImportReport result = productRestController.importProducts("csv", new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertSame(report, result);
+    }
+
+    @Test
+    void testImportProducts_MalformedNdjson() throws Exception {
+        // Given
+        String ndjson = "{\"productName\":\"Sampo\"}\n{broken\n";
+        when(productService.importProducts(any())).thenAnswer(invocation -> {
+            Iterator<Product> products = invocation.getArgument(0);
+            while (products.hasNext()) {
+                products.next();
+            }
+            return new ImportReport();
+        });
+
+        // When
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            productRestController.importProducts("ndjson", new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+        });
+
+        // Then
+        assertTrue(exception.getMessage().startsWith("Record 2 is malformed"));
+    }
+
+    @Test
+    void testImportProducts_MalformedLinesAfterFullBatchAreSkipped() throws Exception {
+        // Given a controller over a real service, and bad lines after the first 1,000-record batch
+        ProductServiceImpl realService = new ProductServiceImpl();
+        inject(realService, "productRepository", new ProductRepository());
+        ProductRestController controller = new ProductRestController();
+        inject(controller, "service", realService);
+        inject(controller, "objectMapper", new ObjectMapper());
+        int good = 1_005;
+        StringBuilder ndjson = new StringBuilder();
+        StringBuilder csv = new StringBuilder("productName,productQuantity\n");
+        for (int i = 0; i < good; i++) {
+            ndjson.append("{\"productName\":\"Sampo ").append(i).append("\"}\n");
+            csv.append("Sabun ").append(i).append(',').append(i).append('\n');
+        }
+        ndjson.append("{broken\n{\"productName\":\"Sampo last\"}\n");
+        csv.append("Sabun bad,many\nSabun last,1\n");
+
+        // When
+        ImportReport fromNdjson = controller.importProducts("ndjson", new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+        ImportReport fromCsv = controller.importProducts("csv", new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertEquals(good + 1, fromNdjson.getImported());
+        assertEquals(1, fromNdjson.getRejected());
+        assertEquals(good, fromNdjson.getFailures().get(0).index());
+        assertTrue(fromNdjson.getFailures().get(0).message().startsWith("Record " + (good + 1) + " is malformed"));
+        assertEquals(good + 1, fromCsv.getImported());
+        assertEquals(1, fromCsv.getRejected());
+        assertEquals(good, fromCsv.getFailures().get(0).index());
+        assertEquals(2 * (good + 1), realService.findAll().size());
+    }
+
+    @Test
+    void testExportProducts_Csv() throws Exception {
+        // Given
+        when(productService.iterateAll()).thenReturn(List.of(newProduct("id-1", "Sampo, Cap Bambang", 5)).iterator());
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = productRestController.exportProducts("csv");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertEquals("productId,productName,productQuantity\r\nid-1,\"Sampo, Cap Bambang\",5\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportProducts_Ndjson() throws Exception {
+        // Given
+        when(productService.iterateAll()).thenReturn(List.of(newProduct("id-1", "Sampo", 5), newProduct("id-2", "Sabun", 7)).iterator());
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        productRestController.exportProducts("ndjson").getBody().writeTo(out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("id-2", objectMapper.readValue(lines[1], Product.class).getProductId());
+    }
+
+    @Test
+    void testExportProducts_UnsupportedFormat() {
+        assertThrows(IllegalArgumentException.class, () -> productRestController.exportProducts("xml"));
+    }
+
+    @Test
+    void testBatchEndpoints_DelegateToService() {
+        // Given
+        List<Product> products = List.of(newProduct("id-1", "Sampo", 1));
+        BatchResult<Product> result = new BatchResult<>(products, List.of());
+        when(productService.createAll(products)).thenReturn(result);
+        when(productService.updateAll(products)).thenReturn(result);
+        when(productService.deleteAll(List.of("id-1"))).thenReturn(result);
+
+        // When / Then
+        assertSame(result, productRestController.createAll(products));
+        assertSame(result, productRestController.updateAll(products));
+        assertSame(result, productRestController.deleteAll(List.of("id-1")));
+    }
+}
@@ -0,0 +1,82 @@
+package id.ac.ui.cs.advprog.eshop.load;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Replays the {@link ShopWorkload} mix against the product and car pages and fails when any operation's
+ * latency percentile exceeds its threshold. Run with {@code ./gradlew loadTest}; the connections, mix, run
+ * lengths and thresholds are read from the {@code loadtest.*} system properties that the task passes on.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+class EndpointMixLoadTest {
+    private static final int CONNECTIONS = Integer.getInteger("loadtest.connections", 64);
+    private static final String MIX = System.getProperty("loadtest.mix", "create=2,list=5,edit=2,delete=1");
+    private static final String THRESHOLDS = System.getProperty("loadtest.thresholds", "p50=PT0.05S,p99=PT0.5S");
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+    private static final Duration MEASUREMENT = Duration.parse(System.getProperty("loadtest.measurement", "PT15S"));
+
+    /**
+     * The port number assigned to the running application during test execution.
+     */
+    @LocalServerPort
+    private int serverPort;
+
+    @Value("${app.baseUrl:http://localhost}")
+    private String testBaseUrl;
+
+    private URI baseUri;
+
+    @BeforeEach
+    void setupTest() {
+        baseUri = URI.create(String.format("%s:%d", testBaseUrl, serverPort));
+    }
+
+    // Thresholds look like p50=PT0.05S,p99.9=PT1S
+    static Map<String, Duration> parseThresholds(String thresholds) {
+        Map<String, Duration> parsed = new LinkedHashMap<>();
+        for (String entry : thresholds.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2 || !parts[0].matches("p\\d+(\\.\\d+)?")) {
+                throw new IllegalArgumentException("Thresholds look like p99=PT0.5S, not '" + entry + "'.");
+            }
+            parsed.put(parts[0], Duration.parse(parts[1]));
+        }
+        return parsed;
+    }
+
+    @Test
+    void endpointMix_staysWithinLatencyThresholds() throws InterruptedException {
+        // Exercise
+        LoadGenerator.Report report = LoadGenerator.run(CONNECTIONS, WARMUP, MEASUREMENT, new ShopWorkload(baseUri, MIX));
+        System.out.printf("%d connections, mix %s%n", CONNECTIONS, MIX);
+        report.print(System.out);
+
+        // Verify
+        List<String> violations = new ArrayList<>();
+        parseThresholds(THRESHOLDS).forEach((percentile, limit) -> report.latencies().forEach((name, latency) -> {
+            Duration actual = Duration.ofNanos(latency.getValueAtPercentile(Double.parseDouble(percentile.substring(1))));
+            if (actual.compareTo(limit) > 0) {
+                violations.add(String.format("%s %s of %s exceeds %s", name, percentile, actual, limit));
+            }
+        }));
+        assertTrue(report.latencies().values().stream().mapToLong(Histogram::getTotalCount).sum() > 0, "No request completed");
+        assertEquals(0, report.totalErrors(), "Some requests failed: " + report.errors());
+        assertTrue(violations.isEmpty(), String.join("; ", violations));
+    }
+}
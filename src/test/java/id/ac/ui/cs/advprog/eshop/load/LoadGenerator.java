@@ -0,0 +1,129 @@
+package id.ac.ui.cs.advprog.eshop.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Closed-loop load generator: each connection is a virtual thread that sends one request, waits for the
+ * answer and sends the next, for the warmup and then the measurement period. Only requests that start and
+ * finish within the measurement period are counted, each in the HdrHistogram of its operation.
+ */
+final class LoadGenerator {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    // Sends one request and returns whether it succeeded; an exception counts as a failure
+    @FunctionalInterface
+    interface Request {
+        boolean send(HttpClient http) throws IOException, InterruptedException;
+    }
+
+    // One request of the workload, reported under its name
+    record Operation(String name, Request request) {
+    }
+
+    record Report(Duration measurement, Map<String, Histogram> latencies, Map<String, Long> errors) {
+
+        Histogram total() {
+            Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+            latencies.values().forEach(total::add);
+            return total;
+        }
+
+        long totalErrors() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        double throughput() {
+            return total().getTotalCount() / (measurement.toNanos() / 1e9);
+        }
+
+        void print(PrintStream out) {
+            out.printf("%-16s %9s %9s %9s %9s %9s %9s %7s%n", "operation", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+            latencies.forEach((name, latency) -> printRow(out, name, latency, errors.getOrDefault(name, 0L)));
+            printRow(out, "total", total(), totalErrors());
+            out.printf("throughput %.1f req/s%n", throughput());
+        }
+
+        private static void printRow(PrintStream out, String name, Histogram latency, long errors) {
+            out.printf("%-16s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", name, latency.getTotalCount(),
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()), errors);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    private LoadGenerator() {
+    }
+
+    // Drives the workload from the given number of concurrent connections; workload must be thread-safe
+    static Report run(int connections, Duration warmup, Duration measurement, Supplier<Operation> workload)
+            throws InterruptedException {
+        Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureUntil = measureFrom + measurement.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build()) {
+            CountDownLatch done = new CountDownLatch(connections);
+            for (int i = 0; i < connections; i++) {
+                clients.execute(() -> {
+                    try {
+                        while (System.nanoTime() < measureUntil) {
+                            Operation operation = workload.get();
+                            long start = System.nanoTime();
+                            boolean ok = send(http, operation);
+                            long end = System.nanoTime();
+                            if (start >= measureFrom && end <= measureUntil) {
+                                latencies.computeIfAbsent(operation.name(), name -> new ConcurrentHistogram(SIGNIFICANT_DIGITS))
+                                        .recordValue(end - start);
+                                if (!ok) {
+                                    errors.computeIfAbsent(operation.name(), name -> new LongAdder()).increment();
+                                }
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long timeout = warmup.plus(measurement).toSeconds() + 60;
+            if (!done.await(timeout, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Load clients did not finish within " + timeout + " seconds.");
+            }
+        }
+
+        Map<String, Long> errorCounts = new TreeMap<>();
+        errors.forEach((name, count) -> errorCounts.put(name, count.sum()));
+        return new Report(measurement, new TreeMap<>(latencies), errorCounts);
+    }
+
+    private static boolean send(HttpClient http, Operation operation) {
+        try {
+            return operation.request().send(http);
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
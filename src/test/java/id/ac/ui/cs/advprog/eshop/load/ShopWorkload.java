@@ -0,0 +1,166 @@
+package id.ac.ui.cs.advprog.eshop.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The create, list, edit and delete mix sent to the {@code /product/*} and {@code /car/*} pages, split evenly
+ * between the two and weighted by a spec such as {@code create=2,list=5,edit=2,delete=1}. Entities are
+ * created with IDs chosen here so that later edits and deletes can target them. Each one is checked out of
+ * its pool while a request works on it, so edits always carry the current version and nothing is deleted
+ * twice; an edit or delete that finds its pool empty creates instead.
+ */
+final class ShopWorkload implements Supplier<LoadGenerator.Operation> {
+
+    enum Action {
+        CREATE, LIST, EDIT, DELETE
+    }
+
+    private record Entity(String id, long version) {
+    }
+
+    private final URI baseUri;
+    private final Action[] weighted;
+    private final Deque<Entity> products = new ConcurrentLinkedDeque<>();
+    private final Deque<Entity> cars = new ConcurrentLinkedDeque<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    ShopWorkload(URI baseUri, String mix) {
+        this.baseUri = baseUri;
+        List<Action> actions = new ArrayList<>();
+        parseMix(mix).forEach((action, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                actions.add(action);
+            }
+        });
+        this.weighted = actions.toArray(new Action[0]);
+    }
+
+    static Map<Action, Integer> parseMix(String mix) {
+        Map<Action, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries look like create=2, not '" + entry + "'.");
+            }
+            Action action;
+            int weight;
+            try {
+                action = Action.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+                weight = Integer.parseInt(parts[1].trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Mix entries look like create=2, not '" + entry + "'.", e);
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights cannot be negative: '" + entry + "'.");
+            }
+            weights.merge(action, weight, Integer::sum);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix '" + mix + "' has no positive weight.");
+        }
+        return weights;
+    }
+
+    @Override
+    public LoadGenerator.Operation get() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Action action = weighted[random.nextInt(weighted.length)];
+        return random.nextBoolean() ? productOperation(action) : carOperation(action);
+    }
+
+    private LoadGenerator.Operation productOperation(Action action) {
+        Entity product = (action == Action.EDIT || action == Action.DELETE) ? products.poll() : null;
+        if (action == Action.LIST) {
+            return new LoadGenerator.Operation("product list", http -> get(http, "/product/list") == 200);
+        }
+        if (product == null) {
+            Entity created = new Entity("load-product-" + sequence.incrementAndGet(), 0);
+            return new LoadGenerator.Operation("product create", http -> {
+                boolean ok = post(http, "/product/create", Map.of(
+                        "productId", created.id(), "productName", "Product " + created.id(), "productQuantity", "10")) == 302;
+                if (ok) {
+                    products.add(created);
+                }
+                return ok;
+            });
+        }
+        if (action == Action.EDIT) {
+            return new LoadGenerator.Operation("product edit", http -> {
+                boolean ok = post(http, "/product/edit", Map.of("productId", product.id(), "productName", "Edited " + product.id(),
+                        "productQuantity", "20", "version", Long.toString(product.version()))) == 302;
+                if (ok) {
+                    products.add(new Entity(product.id(), product.version() + 1));
+                }
+                return ok;
+            });
+        }
+        return new LoadGenerator.Operation("product delete", http -> get(http, "/product/delete/" + product.id()) == 302);
+    }
+
+    private LoadGenerator.Operation carOperation(Action action) {
+        Entity car = (action == Action.EDIT || action == Action.DELETE) ? cars.poll() : null;
+        if (action == Action.LIST) {
+            return new LoadGenerator.Operation("car list", http -> get(http, "/car/listCar") == 200);
+        }
+        if (car == null) {
+            Entity created = new Entity("load-car-" + sequence.incrementAndGet(), 0);
+            return new LoadGenerator.Operation("car create", http -> {
+                boolean ok = post(http, "/car/createCar", Map.of(
+                        "carId", created.id(), "carName", "Car " + created.id(), "carColor", "Red", "carQuantity", "10")) == 302;
+                if (ok) {
+                    cars.add(created);
+                }
+                return ok;
+            });
+        }
+        if (action == Action.EDIT) {
+            return new LoadGenerator.Operation("car edit", http -> {
+                boolean ok = post(http, "/car/editCar", Map.of("carId", car.id(), "carName", "Edited " + car.id(),
+                        "carColor", "Blue", "carQuantity", "20", "version", Long.toString(car.version()))) == 302;
+                if (ok) {
+                    cars.add(new Entity(car.id(), car.version() + 1));
+                }
+                return ok;
+            });
+        }
+        return new LoadGenerator.Operation("car delete", http -> post(http, "/car/deleteCar", Map.of("carId", car.id())) == 302);
+    }
+
+    private int get(HttpClient http, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path)).GET().build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // Form posts answer with a redirect on success, which the client does not follow
+    private int post(HttpClient http, String path, Map<String, String> form) throws IOException, InterruptedException {
+        String body = form.entrySet().stream()
+                .map(field -> encode(field.getKey()) + "=" + encode(field.getValue()))
+                .collect(Collectors.joining("&"));
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,77 @@
+package id.ac.ui.cs.advprog.eshop.load;
+
+import id.ac.ui.cs.advprog.eshop.EshopApplication;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Platform-thread against virtual-thread mode at 1k and 10k concurrent connections. Each connection is a
+ * client that randomly either creates a product through the REST API, which blocks until the operation log
+ * has fsynced it, or reads the first page of the product list. Every run boots its own application with
+ * persistence on, so the two modes differ only in {@code spring.threads.virtual.enabled}.
+ * Run with {@code ./gradlew loadTest}; throughput and latency percentiles are printed per run.
+ */
+class ThreadModeLoadTest {
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+    private static final Duration MEASUREMENT = Duration.parse(System.getProperty("loadtest.measurement", "PT15S"));
+
+    @ParameterizedTest(name = "virtual threads: {0}, connections: {1}")
+    @CsvSource({"false, 1000", "true, 1000", "false, 10000", "true, 10000"})
+    void testThroughputAndTailLatency(boolean virtualThreads, int connections, @TempDir Path dataDirectory)
+            throws InterruptedException {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(EshopApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "eshop.persistence.enabled=true",
+                        "eshop.persistence.directory=" + dataDirectory,
+                        // Tomcat's defaults would turn most of the 10k connections away before either mode is measured
+                        "server.tomcat.max-connections=" + (connections * 2),
+                        "server.tomcat.accept-count=" + connections)
+                .run()) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            LoadGenerator.Report report = LoadGenerator.run(connections, WARMUP, MEASUREMENT, workload(URI.create("http://localhost:" + port)));
+
+            System.out.printf("%s threads, %d connections%n", virtualThreads ? "virtual" : "platform", connections);
+            report.print(System.out);
+            assertTrue(report.total().getTotalCount() > 0, "No request completed");
+            assertEquals(0, report.totalErrors(), "Some requests failed: " + report.errors());
+        }
+    }
+
+    // Half REST creates, which wait for the fsync, and half reads of the first list page
+    private static Supplier<LoadGenerator.Operation> workload(URI baseUri) {
+        AtomicLong sequence = new AtomicLong();
+        HttpRequest list = HttpRequest.newBuilder(baseUri.resolve("/product/list?size=20")).GET().build();
+        LoadGenerator.Operation listOperation = new LoadGenerator.Operation("list",
+                http -> http.send(list, HttpResponse.BodyHandlers.discarding()).statusCode() == 200);
+        return () -> {
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                return listOperation;
+            }
+            String body = "{\"productName\":\"Load " + sequence.incrementAndGet() + "\",\"productQuantity\":1}";
+            HttpRequest create = HttpRequest.newBuilder(baseUri.resolve("/api/products"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            return new LoadGenerator.Operation("create",
+                    http -> http.send(create, HttpResponse.BodyHandlers.discarding()).statusCode() == 201);
+        };
+    }
+}
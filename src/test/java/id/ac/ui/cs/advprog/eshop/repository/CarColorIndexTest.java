@@ -0,0 +1,85 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarColorIndexTest {
+
+    CarColorIndex colorIndex;
+
+    @BeforeEach
+    void setUp() {
+        colorIndex = new CarColorIndex();
+    }
+
+    private Car newCar(String id, String color) {
+        Car car = new Car();
+        car.setCarId(id);
+        car.setCarColor(color);
+        return car;
+    }
+
+    @Test
+    void testFacetIsDroppedWithItsLastCar() {
+        Car red = newCar("id-1", "Red");
+        Car blue = newCar("id-2", "Blue");
+        colorIndex.onPut("id-1", 1, null, red);
+        colorIndex.onPut("id-2", 2, null, blue);
+        assertEquals(2, colorIndex.colors());
+
+        Car recolored = newCar("id-1", "Blue");
+        colorIndex.onPut("id-1", 1, red, recolored);
+        assertEquals(1, colorIndex.colors());
+        assertEquals(0, colorIndex.count("Red"));
+
+        colorIndex.onRemove("id-1", 1, recolored);
+        colorIndex.onRemove("id-2", 2, blue);
+        assertEquals(0, colorIndex.colors());
+        assertEquals(Map.of(), colorIndex.counts());
+    }
+
+    @Test
+    void testConcurrentFreeTextColors_OnlyLiveColorsKeepAFacet() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long position = t + 1;
+            String id = "id-" + position;
+            futures.add(executor.submit(() -> {
+                start.await();
+                // Every car cycles through colors nobody else uses, plus one that all of them share
+                Car previous = null;
+                for (int i = 0; i < 10_000; i++) {
+                    Car current = newCar(id, (i % 2 == 0) ? "Shared" : id + "-" + i);
+                    colorIndex.onPut(id, position, previous, current);
+                    previous = current;
+                }
+                colorIndex.onPut(id, position, previous, newCar(id, "Shared"));
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Workers did not finish in time");
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertEquals(1, colorIndex.colors());
+        assertEquals(Map.of("Shared", threads), colorIndex.counts());
+    }
+}
@@ -0,0 +1,441 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.persistence.EntityCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarRepositoryTest {
+
+    CarRepository carRepository;
+
+    @BeforeEach
+    void setUp() {
+        carRepository = new CarRepository();
+    }
+
+    private Car newCar(String id, String name, String color, int quantity) {
+        Car car = new Car();
+        car.setCarId(id);
+        car.setCarName(name);
+        car.setCarColor(color);
+        car.setCarQuantity(quantity);
+        return car;
+    }
+
+    // Read, then compare-and-set; retry on top of whichever update got in first
+    private void updateLatest(String id, Car car) {
+        do {
+            car.setVersion(carRepository.findById(id).getVersion());
+        } while (carRepository.update(id, car).isConflict());
+    }
+
+    @Test
+    void testCreateAndFind() {
+        Car car = carRepository.create(newCar(null, "Avanza", "Black", 3));
+
+        assertNotNull(car.getCarId(), "Should generate a new ID if carId is null");
+        assertSame(car, carRepository.findById(car.getCarId()));
+    }
+
+    @Test
+    void testFindById_NotFound() {
+        assertNull(carRepository.findById("non-existent-id"));
+        assertNull(carRepository.findById(null));
+    }
+
+    @Test
+    void testFindAll_KeepsInsertionOrder() {
+        carRepository.create(newCar("id-1", "Car 1", "Red", 1));
+        carRepository.create(newCar("id-2", "Car 2", "Blue", 2));
+        carRepository.create(newCar("id-3", "Car 3", "Green", 3));
+
+        Iterator<Car> carIterator = carRepository.findAll();
+        assertEquals("id-1", carIterator.next().getCarId());
+        assertEquals("id-2", carIterator.next().getCarId());
+        assertEquals("id-3", carIterator.next().getCarId());
+        assertFalse(carIterator.hasNext());
+    }
+
+    @Test
+    void testUpdate_ReplacesCarWithoutMutatingOldInstance() {
+        Car original = carRepository.create(newCar("id-1", "Old Name", "Red", 1));
+
+        UpdateResult<Car> result = carRepository.update("id-1", newCar(null, "New Name", "Blue", 5));
+
+        assertNotNull(result);
+        assertFalse(result.isConflict());
+        Car updated = result.getEntity();
+        assertEquals("id-1", updated.getCarId());
+        assertEquals(1, updated.getVersion());
+        assertEquals("New Name", updated.getCarName());
+        assertEquals("Blue", updated.getCarColor());
+        assertEquals(5, updated.getCarQuantity());
+        assertSame(updated, carRepository.findById("id-1"));
+        assertEquals("Old Name", original.getCarName(), "Readers holding the old car must not see the update");
+    }
+
+    @Test
+    void testUpdate_StaleVersionConflicts() {
+        carRepository.create(newCar("id-1", "Old Name", "Red", 1));
+        assertFalse(carRepository.update("id-1", newCar(null, "First", "Blue", 2)).isConflict());
+
+        UpdateResult<Car> result = carRepository.update("id-1", newCar(null, "Second", "Green", 3));
+
+        assertTrue(result.isConflict());
+        assertEquals("First", result.getEntity().getCarName());
+        assertEquals(1, result.getEntity().getVersion());
+        assertSame(result.getEntity(), carRepository.findById("id-1"));
+        assertEquals(Map.of("Blue", 1), carRepository.countByColor(), "A refused update must not reach the facets");
+    }
+
+    @Test
+    void testUpdate_NotFound() {
+        assertNull(carRepository.update("non-existent-id", newCar(null, "Name", "Red", 1)));
+        assertNull(carRepository.update(null, newCar(null, "Name", "Red", 1)));
+        assertFalse(carRepository.findAll().hasNext(), "Update must not insert a missing car");
+    }
+
+    @Test
+    void testDelete() {
+        carRepository.create(newCar("id-1", "Car 1", "Red", 1));
+        carRepository.create(newCar("id-2", "Car 2", "Blue", 2));
+
+        assertTrue(carRepository.delete("id-1"));
+        assertFalse(carRepository.delete("non-existent-id"));
+        assertFalse(carRepository.delete(null));
+
+        assertNull(carRepository.findById("id-1"));
+        Iterator<Car> carIterator = carRepository.findAll();
+        assertEquals("id-2", carIterator.next().getCarId());
+        assertFalse(carIterator.hasNext());
+    }
+
+    @Test
+    void testCreateAll() {
+        List<Car> cars = List.of(newCar(null, "Car 1", "Red", 1), newCar("id-2", "Car 2", "Blue", 2));
+
+        BatchResult<Car> result = carRepository.createAll(cars);
+
+        assertTrue(result.isComplete());
+        assertNotNull(cars.get(0).getCarId());
+        assertSame(cars.get(0), carRepository.findById(cars.get(0).getCarId()));
+        assertSame(cars.get(1), carRepository.findById("id-2"));
+        assertEquals(Map.of("Blue", 1, "Red", 1), carRepository.countByColor());
+    }
+
+    @Test
+    void testCreateAll_NullCar_IsReported() {
+        List<Car> cars = new ArrayList<>();
+        cars.add(newCar("id-1", "Car 1", "Red", 1));
+        cars.add(null);
+
+        BatchResult<Car> result = carRepository.createAll(cars);
+
+        assertEquals(List.of(new BatchResult.Failure(1, "Car cannot be null.")), result.getFailures());
+        assertNotNull(carRepository.findById("id-1"));
+    }
+
+    @Test
+    void testCreate_ExistingIdIsRefused() {
+        carRepository.create(newCar("id-1", "Avanza", "Black", 3));
+        updateLatest("id-1", newCar("id-1", "Avanza", "White", 3));
+
+        assertThrows(DuplicateIdException.class, () -> carRepository.create(newCar("id-1", "Intruder", "Red", 1)));
+        Car stored = carRepository.findById("id-1");
+        assertEquals("White", stored.getCarColor());
+        assertEquals(1, stored.getVersion());
+    }
+
+    @Test
+    void testCreateAll_ReportsTakenAndRepeatedIds() {
+        carRepository.create(newCar("taken", "Existing", "Red", 1));
+
+        BatchResult<Car> result = carRepository.createAll(List.of(
+                newCar("new", "Car 1", "Blue", 1),
+                newCar("taken", "Car 2", "Blue", 2),
+                newCar("new", "Car 3", "Blue", 3)));
+
+        assertEquals(List.of("Car 1"), result.getSucceeded().stream().map(Car::getCarName).toList());
+        assertEquals(List.of(
+                new BatchResult.Failure(1, "Car with ID taken already exists."),
+                new BatchResult.Failure(2, "Car with ID new already exists.")), result.getFailures());
+        assertEquals("Existing", carRepository.findById("taken").getCarName());
+        assertEquals(Map.of("Blue", 1, "Red", 1), carRepository.countByColor());
+    }
+
+    @Test
+    void testTooLongStringsAreRefusedBeforeAnythingIsStored() {
+        String tooLong = "x".repeat(EntityCodec.MAX_STRING_BYTES + 1);
+        carRepository.create(newCar("id-1", "Avanza", "Black", 3));
+
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> carRepository.create(newCar("id-2", "Avanza", tooLong, 1)));
+        assertEquals("Car color cannot be longer than 65535 bytes.", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> carRepository.update("id-1", newCar("id-1", tooLong, "Black", 3)));
+        BatchResult<Car> result = carRepository.createAll(List.of(newCar(tooLong, "Car", "Red", 1), newCar("id-3", "Car", "Red", 1)));
+
+        assertEquals(List.of(new BatchResult.Failure(0, "Car ID cannot be longer than 65535 bytes.")), result.getFailures());
+        assertEquals("Avanza", carRepository.findById("id-1").getCarName());
+        assertEquals(Map.of("Black", 1, "Red", 1), carRepository.countByColor());
+    }
+
+    @Test
+    void testUpdateAllAndDeleteAll() {
+        carRepository.create(newCar("id-1", "Car 1", "Red", 1));
+        carRepository.create(newCar("id-2", "Car 2", "Red", 2));
+
+        BatchResult<Car> updated = carRepository.updateAll(List.of(
+                newCar("id-1", "Car 1", "Blue", 10), newCar("missing", "Car", "Blue", 1), newCar(null, "Car", "Blue", 1)));
+        assertEquals(1, updated.getSucceeded().size());
+        assertEquals(List.of(1, 2), updated.getFailures().stream().map(BatchResult.Failure::index).toList());
+        assertEquals("Blue", carRepository.findById("id-1").getCarColor());
+        assertEquals(Map.of("Blue", 1, "Red", 1), carRepository.countByColor());
+
+        BatchResult<Car> deleted = carRepository.deleteAll(Arrays.asList("id-2", "missing", null, "id-2"));
+        assertEquals(1, deleted.getSucceeded().size());
+        assertEquals(List.of(1, 2, 3), deleted.getFailures().stream().map(BatchResult.Failure::index).toList());
+        assertNull(carRepository.findById("id-2"));
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Keyset pagination
+    // ---------------------------------------------------------------------------------
+
+    private void createNumberedCars(int count) {
+        for (int i = 0; i < count; i++) {
+            carRepository.create(newCar("id-" + i, "Car " + i, "Red", i));
+        }
+    }
+
+    private List<String> idsOf(Page<Car> page) {
+        List<String> ids = new ArrayList<>();
+        page.getContent().forEach(car -> ids.add(car.getCarId()));
+        return ids;
+    }
+
+    @Test
+    void testFindPage_WalkForwardAndBack() {
+        createNumberedCars(5);
+
+        Page<Car> first = carRepository.findPage(null, null, 2);
+        assertEquals(List.of("id-0", "id-1"), idsOf(first));
+        assertFalse(first.isHasPrevious());
+        assertTrue(first.isHasNext());
+
+        Page<Car> second = carRepository.findPage(first.getNextCursor(), null, 2);
+        assertEquals(List.of("id-2", "id-3"), idsOf(second));
+
+        Page<Car> third = carRepository.findPage(second.getNextCursor(), null, 2);
+        assertEquals(List.of("id-4"), idsOf(third));
+        assertFalse(third.isHasNext());
+        assertTrue(third.isHasPrevious());
+
+        Page<Car> backToSecond = carRepository.findPage(null, third.getPreviousCursor(), 2);
+        assertEquals(List.of("id-2", "id-3"), idsOf(backToSecond));
+
+        Page<Car> backToFirst = carRepository.findPage(null, backToSecond.getPreviousCursor(), 2);
+        assertEquals(List.of("id-0", "id-1"), idsOf(backToFirst));
+        assertFalse(backToFirst.isHasPrevious());
+    }
+
+    @Test
+    void testFindPage_StableAcrossUpdatesAndInserts() {
+        createNumberedCars(4);
+        Page<Car> first = carRepository.findPage(null, null, 2);
+
+        carRepository.update("id-0", newCar(null, "Renamed", "Blue", 9));
+        carRepository.create(newCar("id-new", "Newcomer", "Red", 1));
+
+        Page<Car> second = carRepository.findPage(first.getNextCursor(), null, 2);
+        assertEquals(List.of("id-2", "id-3"), idsOf(second));
+        assertTrue(second.isHasNext(), "Cars created later are appended after the existing pages");
+    }
+
+    @Test
+    void testFindPage_Empty() {
+        Page<Car> page = carRepository.findPage(null, null, 20);
+        assertTrue(page.getContent().isEmpty());
+        assertFalse(page.isHasNext());
+        assertFalse(page.isHasPrevious());
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Color facets
+    // ---------------------------------------------------------------------------------
+
+    @Test
+    void testCountByColor_FollowsCreatesUpdatesAndDeletes() {
+        carRepository.create(newCar("id-1", "Car 1", "Red", 1));
+        carRepository.create(newCar("id-2", "Car 2", "Blue", 2));
+        carRepository.create(newCar("id-3", "Car 3", "Red", 3));
+        carRepository.create(newCar("id-4", "Car 4", null, 4));
+        assertEquals(Map.of("Blue", 1, "Red", 2), carRepository.countByColor());
+
+        carRepository.update("id-1", newCar(null, "Car 1", "Blue", 1));
+        assertEquals(Map.of("Blue", 2, "Red", 1), carRepository.countByColor());
+
+        carRepository.delete("id-3");
+        assertEquals(Map.of("Blue", 2), carRepository.countByColor());
+        assertEquals(List.of("Blue"), new ArrayList<>(carRepository.countByColor().keySet()));
+    }
+
+    @Test
+    void testFindPageByColor_WalkForwardAndBack() {
+        for (int i = 0; i < 10; i++) {
+            carRepository.create(newCar("id-" + i, "Car " + i, (i % 2 == 0) ? "Red" : "Blue", i));
+        }
+
+        Page<Car> first = carRepository.findPageByColor("Red", null, null, 2);
+        assertEquals(List.of("id-0", "id-2"), idsOf(first));
+        assertFalse(first.isHasPrevious());
+
+        Page<Car> second = carRepository.findPageByColor("Red", first.getNextCursor(), null, 2);
+        assertEquals(List.of("id-4", "id-6"), idsOf(second));
+
+        Page<Car> third = carRepository.findPageByColor("Red", second.getNextCursor(), null, 2);
+        assertEquals(List.of("id-8"), idsOf(third));
+        assertFalse(third.isHasNext());
+
+        Page<Car> backToSecond = carRepository.findPageByColor("Red", null, third.getPreviousCursor(), 2);
+        assertEquals(List.of("id-4", "id-6"), idsOf(backToSecond));
+    }
+
+    @Test
+    void testFindPageByColor_RecoloredCarMovesKeepingPosition() {
+        carRepository.create(newCar("id-1", "Car 1", "Red", 1));
+        carRepository.create(newCar("id-2", "Car 2", "Blue", 2));
+        carRepository.create(newCar("id-3", "Car 3", "Blue", 3));
+
+        carRepository.update("id-1", newCar(null, "Car 1", "Blue", 1));
+
+        assertEquals(List.of("id-1", "id-2", "id-3"), idsOf(carRepository.findPageByColor("Blue", null, null, 20)));
+        assertTrue(carRepository.findPageByColor("Red", null, null, 20).getContent().isEmpty());
+        assertTrue(carRepository.findPageByColor("Green", null, null, 20).getContent().isEmpty());
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Multi-threaded correctness
+    // ---------------------------------------------------------------------------------
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+
+    private void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Workers did not finish in time");
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @Test
+    void testConcurrentCreate_NoLostCars() throws Exception {
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                carRepository.create(newCar(null, "Car " + i, "Red", i));
+            }
+        });
+
+        int count = 0;
+        Iterator<Car> carIterator = carRepository.findAll();
+        while (carIterator.hasNext()) {
+            Car car = carIterator.next();
+            assertSame(car, carRepository.findById(car.getCarId()));
+            count++;
+        }
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, count);
+    }
+
+    @Test
+    void testConcurrentUpdate_ListReadersSeeWholeCars() throws Exception {
+        carRepository.create(newCar("hot-id", "Name 0", "Color 0", 0));
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        List<Future<?>> readerResults = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readerResults.add(readers.submit(() -> {
+                while (writing.get()) {
+                    Iterator<Car> carIterator = carRepository.findAll();
+                    while (carIterator.hasNext()) {
+                        Car car = carIterator.next();
+                        String version = String.valueOf(car.getCarQuantity());
+                        assertEquals("Name " + version, car.getCarName());
+                        assertEquals("Color " + version, car.getCarColor());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            runConcurrently(THREADS, () -> {
+                for (int i = 1; i <= OPERATIONS_PER_THREAD; i++) {
+                    updateLatest("hot-id", newCar(null, "Name " + i, "Color " + i, i));
+                }
+            });
+        } finally {
+            writing.set(false);
+            readers.shutdown();
+        }
+        for (Future<?> result : readerResults) {
+            result.get();
+        }
+        assertEquals((long) THREADS * OPERATIONS_PER_THREAD, carRepository.findById("hot-id").getVersion(),
+                "Every update must have been applied exactly once");
+    }
+
+    @Test
+    void testConcurrentRecolor_FacetCountsStayExact() throws Exception {
+        String[] colors = {"Red", "Blue", "Green"};
+        for (int i = 0; i < 100; i++) {
+            carRepository.create(newCar("id-" + i, "Car " + i, "Red", i));
+        }
+
+        runConcurrently(THREADS, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                int n = random.nextInt(100);
+                updateLatest("id-" + n, newCar(null, "Car " + n, colors[random.nextInt(colors.length)], n));
+            }
+        });
+
+        Map<String, Integer> expected = new HashMap<>();
+        carRepository.findAll().forEachRemaining(car -> expected.merge(car.getCarColor(), 1, Integer::sum));
+        assertEquals(expected, carRepository.countByColor());
+        for (String color : expected.keySet()) {
+            assertEquals(expected.get(color), carRepository.findPageByColor(color, null, null, 100).getContent().size());
+        }
+    }
+}
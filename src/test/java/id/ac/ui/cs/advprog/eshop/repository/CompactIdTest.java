@@ -0,0 +1,34 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactIdTest {
+
+    @Test
+    void testGeneratedIdsRoundTrip() {
+        for (int i = 0; i < 1_000; i++) {
+            UUID uuid = UUID.randomUUID();
+            String id = uuid.toString();
+
+            assertTrue(CompactId.isCompact(id));
+            assertEquals(uuid.getMostSignificantBits(), CompactId.high(id));
+            assertEquals(uuid.getLeastSignificantBits(), CompactId.low(id));
+            assertEquals(id, CompactId.toString(CompactId.high(id), CompactId.low(id)));
+        }
+    }
+
+    @Test
+    void testOnlyTheCanonicalFormIsCompact() {
+        assertTrue(CompactId.isCompact("eb558e9f-1c39-460e-8860-71af6af63bd6"));
+        assertFalse(CompactId.isCompact("EB558E9F-1C39-460E-8860-71AF6AF63BD6"));
+        assertFalse(CompactId.isCompact("eb558e9f1c39460e886071af6af63bd6"));
+        assertFalse(CompactId.isCompact("eb558e9f-1c39-460e-8860-71af6af63bd"));
+        assertFalse(CompactId.isCompact("eb558e9f-1c39-460e-8860_71af6af63bd6"));
+        assertFalse(CompactId.isCompact("id-1"));
+        assertFalse(CompactId.isCompact(null));
+    }
+}
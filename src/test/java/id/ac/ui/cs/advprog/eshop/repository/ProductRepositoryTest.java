@@ -1,14 +1,28 @@
 package id.ac.ui.cs.advprog.eshop.repository;
 
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Page;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -97,10 +111,37 @@ class ProductRepositoryTest {
         updatedProduct.setProductName("Updated Product");
         updatedProduct.setProductQuantity(150);
 
-        Product result = productRepository.update(updatedProduct);
-        assertNotNull(result);
-        assertEquals("Updated Product", result.getProductName());
-        assertEquals(150, result.getProductQuantity());
+        UpdateResult<Product> result = productRepository.update(updatedProduct);
+        assertFalse(result.isConflict());
+        assertEquals("Updated Product", result.getEntity().getProductName());
+        assertEquals(150, result.getEntity().getProductQuantity());
+        assertEquals(1, result.getEntity().getVersion());
+    }
+
+    @Test
+    void testUpdateProduct_StaleVersionConflicts() {
+        Product product = newProduct("Sampo Cap Bambang", 10);
+        product.setProductId("shampoo");
+        productRepository.create(product);
+
+        Product first = newProduct("Sampo Cap Usep", 10);
+        first.setProductId("shampoo");
+        Product second = newProduct("Sampo Cap Bambang", 3);
+        second.setProductId("shampoo");
+
+        assertFalse(productRepository.update(first).isConflict());
+        UpdateResult<Product> result = productRepository.update(second);
+
+        assertTrue(result.isConflict());
+        assertEquals("Sampo Cap Usep", result.getEntity().getProductName());
+        assertEquals(1, result.getEntity().getVersion());
+        assertSame(result.getEntity(), productRepository.findById("shampoo"));
+        assertEquals(List.of("shampoo"), quantityRangeIds(10, 10), "A refused update must not reach the indexes");
+
+        second.setVersion(result.getEntity().getVersion());
+        assertFalse(productRepository.update(second).isConflict());
+        assertEquals(3, productRepository.findById("shampoo").getProductQuantity());
+        assertEquals(2, productRepository.findById("shampoo").getVersion());
     }
 
     @Test
@@ -385,4 +426,635 @@ class ProductRepositoryTest {
         assertEquals("Product name cannot be empty.", exception.getMessage());
     }
 
+    // ---------------------------------------------------------------------------------
+    // Pagination
+    // ---------------------------------------------------------------------------------
+
+    @Test
+    void testCreateAll_StoresEveryProductInOrder() {
+        List<Product> products = List.of(newProduct("Product 1", 1), newProduct("Product 2", 2), newProduct("Product 3", 3));
+
+        BatchResult<Product> result = productRepository.createAll(products);
+
+        assertTrue(result.isComplete());
+        assertEquals(products, result.getSucceeded());
+        Iterator<Product> productIterator = productRepository.findAll();
+        for (Product product : products) {
+            assertNotNull(product.getProductId());
+            assertSame(product, productIterator.next());
+        }
+        assertFalse(productIterator.hasNext());
+    }
+
+    @Test
+    void testCreateAll_ReportsInvalidProductsAndStoresTheRest() {
+        List<Product> products = new ArrayList<>();
+        products.add(newProduct("Product 1", 1));
+        products.add(newProduct("", 2));
+        products.add(null);
+        products.add(newProduct("Product 4", -1));
+        products.add(newProduct("Product 5", 5));
+
+        BatchResult<Product> result = productRepository.createAll(products);
+
+        assertEquals(List.of(products.get(0), products.get(4)), result.getSucceeded());
+        assertEquals(List.of(
+                new BatchResult.Failure(1, "Product name cannot be empty."),
+                new BatchResult.Failure(2, "Product cannot be null."),
+                new BatchResult.Failure(3, "Product quantity cannot be negative.")), result.getFailures());
+        assertEquals(2, countProducts());
+    }
+
+    @Test
+    void testCreate_ExistingIdIsRefused() {
+        Product original = newProduct("Sampo Cap Bambang", 10);
+        original.setProductId("p-1");
+        productRepository.create(original);
+        Product edited = newProduct("Sampo Cap Usep", 10);
+        edited.setProductId("p-1");
+        productRepository.update(edited);
+
+        Product duplicate = newProduct("Intruder", 1);
+        duplicate.setProductId("p-1");
+        assertThrows(DuplicateIdException.class, () -> productRepository.create(duplicate));
+
+        Product stored = productRepository.findById("p-1");
+        assertEquals("Sampo Cap Usep", stored.getProductName());
+        assertEquals(1, stored.getVersion());
+        assertEquals(1, countProducts());
+    }
+
+    @Test
+    void testCreateAll_ReportsTakenAndRepeatedIds() {
+        Product existing = newProduct("Existing", 1);
+        existing.setProductId("taken");
+        productRepository.create(existing);
+
+        List<Product> products = new ArrayList<>();
+        for (String id : List.of("new", "taken", "new")) {
+            Product product = newProduct("Product " + products.size(), products.size());
+            product.setProductId(id);
+            products.add(product);
+        }
+        BatchResult<Product> result = productRepository.createAll(products);
+
+        assertEquals(List.of(products.get(0)), result.getSucceeded());
+        assertEquals(List.of(
+                new BatchResult.Failure(1, "Cannot create: Product with ID taken already exists."),
+                new BatchResult.Failure(2, "Cannot create: Product with ID new already exists.")), result.getFailures());
+        assertEquals("Existing", productRepository.findById("taken").getProductName());
+        assertEquals("Product 0", productRepository.findById("new").getProductName());
+        assertEquals(2, countProducts());
+    }
+
+    @Test
+    void testUpdateAll_ReportsUnknownAndInvalidProducts() {
+        Product existing = newProduct("Sampo Cap Bambang", 1);
+        existing.setProductId("shampoo");
+        productRepository.create(existing);
+
+        Product renamed = newProduct("Sampo Cap Usep", 2);
+        renamed.setProductId("shampoo");
+        Product unknown = newProduct("Sabun", 3);
+        unknown.setProductId("soap");
+        Product invalid = newProduct("", 4);
+        invalid.setProductId("shampoo");
+
+        BatchResult<Product> result = productRepository.updateAll(List.of(unknown, renamed, invalid));
+
+        assertEquals(1, result.getSucceeded().size());
+        assertEquals("Sampo Cap Usep", result.getSucceeded().get(0).getProductName());
+        assertEquals(1, result.getSucceeded().get(0).getVersion());
+        assertEquals(List.of(
+                new BatchResult.Failure(0, "Cannot update: Product with ID soap not found."),
+                new BatchResult.Failure(2, "Product name cannot be empty.")), result.getFailures());
+        assertEquals("Sampo Cap Usep", productRepository.findById("shampoo").getProductName());
+        assertEquals(1, countProducts());
+    }
+
+    @Test
+    void testUpdateAll_ReportsStaleAndRepeatedProducts() {
+        Product shampoo = newProduct("Sampo Cap Bambang", 1);
+        shampoo.setProductId("shampoo");
+        productRepository.create(shampoo);
+        Product soap = newProduct("Sabun Cap Usep", 1);
+        soap.setProductId("soap");
+        productRepository.create(soap);
+        Product edit = newProduct("Sabun", 2);
+        edit.setProductId("soap");
+        productRepository.update(edit);
+
+        Product stale = newProduct("Sabun Lama", 3);
+        stale.setProductId("soap");
+        Product first = newProduct("Sampo", 4);
+        first.setProductId("shampoo");
+        Product repeated = newProduct("Sampo Lagi", 5);
+        repeated.setProductId("shampoo");
+
+        BatchResult<Product> result = productRepository.updateAll(List.of(stale, first, repeated));
+
+        assertEquals(List.of("Sampo"), result.getSucceeded().stream().map(Product::getProductName).toList());
+        assertEquals(List.of(
+                new BatchResult.Failure(0, "Cannot update: Product with ID soap has been changed since version 0."),
+                new BatchResult.Failure(2, "Cannot update: Product with ID shampoo has been changed since version 0.")),
+                result.getFailures());
+        assertEquals("Sabun", productRepository.findById("soap").getProductName());
+        assertEquals("Sampo", productRepository.findById("shampoo").getProductName());
+    }
+
+    @Test
+    void testDeleteAll_ReportsUnknownEmptyAndRepeatedIds() {
+        createNamedProduct("shampoo", "Sampo Cap Bambang");
+        createNamedProduct("soap", "Sabun Cap Usep");
+        createNamedProduct("bottle", "Botol Minum");
+
+        BatchResult<Product> result = productRepository.deleteAll(Arrays.asList("soap", "", "missing", "bottle", "soap"));
+
+        assertEquals(2, result.getSucceeded().size());
+        assertEquals(List.of(1, 2, 4), result.getFailures().stream().map(BatchResult.Failure::index).toList());
+        assertEquals("Product ID cannot be empty.", result.getFailures().get(0).message());
+        assertEquals("Cannot delete: Product with ID missing not found.", result.getFailures().get(1).message());
+        assertEquals(1, countProducts());
+        assertEquals(Set.of(), searchIds("sabun"));
+    }
+
+    private void createNumberedProducts(int count) {
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setProductId("id-" + i);
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            productRepository.create(product);
+        }
+    }
+
+    private List<String> idsOf(Page<Product> page) {
+        List<String> ids = new ArrayList<>();
+        page.getContent().forEach(product -> ids.add(product.getProductId()));
+        return ids;
+    }
+
+    @Test
+    void testFindPage_ByPageNumber() {
+        createNumberedProducts(5);
+
+        Page<Product> first = productRepository.findPage(0, 2, null, null);
+        assertEquals(List.of("id-0", "id-1"), idsOf(first));
+        assertTrue(first.isHasNext());
+        assertFalse(first.isHasPrevious());
+
+        Page<Product> last = productRepository.findPage(2, 2, null, null);
+        assertEquals(List.of("id-4"), idsOf(last));
+        assertFalse(last.isHasNext());
+        assertNull(last.getNextCursor());
+        assertTrue(last.isHasPrevious());
+    }
+
+    @Test
+    void testFindPage_ByCursorFollowsPageNumbers() {
+        createNumberedProducts(5);
+
+        Page<Product> first = productRepository.findPage(0, 2, null, null);
+        Page<Product> second = productRepository.findPage(1, 2, first.getNextCursor(), null);
+        Page<Product> third = productRepository.findPage(2, 2, second.getNextCursor(), null);
+
+        assertEquals(List.of("id-2", "id-3"), idsOf(second));
+        assertEquals(List.of("id-4"), idsOf(third));
+        assertFalse(third.isHasNext());
+    }
+
+    @Test
+    void testFindPage_CursorSurvivesDeletes() {
+        createNumberedProducts(5);
+        Page<Product> first = productRepository.findPage(0, 2, null, null);
+
+        productRepository.delete("id-1");
+        productRepository.delete("id-2");
+
+        Page<Product> second = productRepository.findPage(1, 2, first.getNextCursor(), null);
+        assertEquals(List.of("id-3", "id-4"), idsOf(second));
+    }
+
+    @Test
+    void testFindPage_BeforeCursorGoesBackAPage() {
+        createNumberedProducts(5);
+        Page<Product> first = productRepository.findPage(0, 2, null, null);
+        Page<Product> second = productRepository.findPage(1, 2, first.getNextCursor(), null);
+        Page<Product> third = productRepository.findPage(2, 2, second.getNextCursor(), null);
+
+        Page<Product> backToSecond = productRepository.findPage(1, 2, null, third.getPreviousCursor());
+        assertEquals(List.of("id-2", "id-3"), idsOf(backToSecond));
+        Page<Product> backToFirst = productRepository.findPage(0, 2, null, backToSecond.getPreviousCursor());
+        assertEquals(List.of("id-0", "id-1"), idsOf(backToFirst));
+        assertFalse(backToFirst.isHasPrevious());
+    }
+
+    @Test
+    void testFindPage_PastTheEnd_IsEmpty() {
+        createNumberedProducts(2);
+
+        Page<Product> page = productRepository.findPage(5, 10, null, null);
+        assertTrue(page.getContent().isEmpty());
+        assertFalse(page.isHasNext());
+    }
+
+    @Test
+    void testFindPage_InvalidArguments_ShouldThrowException() {
+        Exception negativePage = assertThrows(IllegalArgumentException.class, () -> {
+            productRepository.findPage(-1, 10, null, null);
+        });
+        assertEquals("Page number cannot be negative.", negativePage.getMessage());
+
+        Exception zeroSize = assertThrows(IllegalArgumentException.class, () -> {
+            productRepository.findPage(0, 0, null, null);
+        });
+        assertEquals("Page size must be positive.", zeroSize.getMessage());
+    }
+
+    private Product createNamedProduct(String id, String name) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(1);
+        return productRepository.create(product);
+    }
+
+    private Set<String> searchIds(String query) {
+        Set<String> ids = new HashSet<>();
+        productRepository.search(query, 100).forEach(product -> ids.add(product.getProductId()));
+        return ids;
+    }
+
+    @Test
+    void testSearch_MatchesWordPrefixesCaseInsensitively() {
+        createNamedProduct("shampoo", "Sampo Cap Bambang");
+        createNamedProduct("soap", "Sabun Cap Usep");
+        createNamedProduct("bottle", "Botol Minum");
+
+        assertEquals(Set.of("shampoo", "soap"), searchIds("cap"));
+        assertEquals(Set.of("shampoo"), searchIds("BAMB"));
+        assertEquals(Set.of("shampoo"), searchIds("cap sam"));
+        assertEquals(Set.of(), searchIds("cap botol"));
+    }
+
+    @Test
+    void testSearch_EmptyQuery_ReturnsNothing() {
+        createNamedProduct("shampoo", "Sampo Cap Bambang");
+
+        assertTrue(productRepository.search("", 10).isEmpty());
+        assertTrue(productRepository.search(" - ", 10).isEmpty());
+        assertTrue(productRepository.search(null, 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_FollowsUpdatesAndDeletes() {
+        createNamedProduct("shampoo", "Sampo Cap Bambang");
+
+        Product renamed = new Product();
+        renamed.setProductId("shampoo");
+        renamed.setProductName("Sampo Cap Usep");
+        renamed.setProductQuantity(1);
+        productRepository.update(renamed);
+
+        assertEquals(Set.of(), searchIds("bambang"));
+        assertEquals(Set.of("shampoo"), searchIds("usep"));
+
+        productRepository.delete("shampoo");
+        assertEquals(Set.of(), searchIds("sampo"));
+    }
+
+    @Test
+    void testSearch_RespectsLimit() {
+        for (int i = 0; i < 10; i++) {
+            createNamedProduct("id-" + i, "Product " + i);
+        }
+
+        assertEquals(3, productRepository.search("prod", 3).size());
+        assertEquals(10, productRepository.search("prod", 100).size());
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            productRepository.search("prod", 0);
+        });
+        assertEquals("Search limit must be positive.", exception.getMessage());
+    }
+
+    @Test
+    void testSearch_BroadNumericPrefixStillCombinesWithOtherTerms() {
+        for (int i = 0; i < 2_000; i++) {
+            createNamedProduct("item-" + i, "Item " + i);
+        }
+        createNamedProduct("rare-1", "Rare 1");
+        createNamedProduct("rare-2", "Rare 2");
+        createNamedProduct("rare-10", "Rare 10");
+
+        assertEquals(10, productRepository.search("1", 10).size());
+        assertEquals(10, productRepository.search("item 1", 10).size());
+        Set<String> rare = new HashSet<>();
+        productRepository.search("1 rare", 10).forEach(product -> rare.add(product.getProductId()));
+        assertEquals(Set.of("rare-1", "rare-10"), rare);
+    }
+
+    private List<String> quantityRangeIds(int min, int max) {
+        List<String> ids = new ArrayList<>();
+        productRepository.findByQuantityRange(min, max, Integer.MAX_VALUE).forEach(product -> ids.add(product.getProductId()));
+        return ids;
+    }
+
+    @Test
+    void testFindByQuantityRange_SortedByQuantityAndInclusive() {
+        int[] quantities = {50, 5, 0, 20, 5};
+        for (int i = 0; i < quantities.length; i++) {
+            Product product = newProduct("Product " + i, quantities[i]);
+            product.setProductId("id-" + i);
+            productRepository.create(product);
+        }
+
+        assertEquals(List.of("id-2", "id-1", "id-4"), quantityRangeIds(0, 5));
+        assertEquals(List.of("id-1", "id-4", "id-3"), quantityRangeIds(5, 20));
+        assertEquals(List.of("id-0"), quantityRangeIds(21, Integer.MAX_VALUE));
+        assertEquals(List.of(), quantityRangeIds(6, 19));
+    }
+
+    @Test
+    void testFindByQuantityRange_FollowsUpdatesAndDeletes() {
+        Product product = newProduct("Sampo Cap Bambang", 100);
+        product.setProductId("shampoo");
+        productRepository.create(product);
+
+        Product updated = newProduct("Sampo Cap Bambang", 3);
+        updated.setProductId("shampoo");
+        productRepository.update(updated);
+        assertEquals(List.of("shampoo"), quantityRangeIds(0, 10));
+        assertEquals(List.of(), quantityRangeIds(11, 1000));
+
+        productRepository.delete("shampoo");
+        assertEquals(List.of(), quantityRangeIds(0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testFindByQuantityRange_MinAboveMax_ShouldThrowException() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            productRepository.findByQuantityRange(10, 5, 10);
+        });
+        assertEquals("Minimum quantity cannot exceed maximum quantity.", exception.getMessage());
+    }
+
+    @Test
+    void testFindByQuantityRange_StopsAtLimit() {
+        for (int i = 0; i < 10; i++) {
+            Product product = newProduct("Product " + i, 10 - i);
+            product.setProductId("id-" + i);
+            productRepository.create(product);
+        }
+
+        List<String> lowest = new ArrayList<>();
+        productRepository.findByQuantityRange(0, Integer.MAX_VALUE, 3).forEach(product -> lowest.add(product.getProductId()));
+        assertEquals(List.of("id-9", "id-8", "id-7"), lowest);
+        assertThrows(IllegalArgumentException.class, () -> productRepository.findByQuantityRange(0, 10, 0));
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Stock reservation
+    // ---------------------------------------------------------------------------------
+
+    @Test
+    void testReserveAndRelease_AdjustQuantityAndIndexes() {
+        Product product = newProduct("Sampo Cap Bambang", 10);
+        product.setProductId("shampoo");
+        productRepository.create(product);
+
+        Product reserved = productRepository.reserve("shampoo", 7);
+        assertEquals(3, reserved.getProductQuantity());
+        assertEquals(1, reserved.getVersion());
+        assertSame(reserved, productRepository.findById("shampoo"));
+        assertEquals(List.of("shampoo"), quantityRangeIds(3, 3));
+
+        Product released = productRepository.release("shampoo", 2);
+        assertEquals(5, released.getProductQuantity());
+        assertEquals(2, released.getVersion());
+        assertEquals(List.of("shampoo"), quantityRangeIds(5, 5));
+    }
+
+    @Test
+    void testReserve_NotEnoughStockLeavesProductUntouched() {
+        Product product = newProduct("Sampo Cap Bambang", 2);
+        product.setProductId("shampoo");
+        productRepository.create(product);
+
+        assertNull(productRepository.reserve("shampoo", 3));
+        assertSame(product, productRepository.findById("shampoo"));
+        assertEquals(0, productRepository.reserve("shampoo", 2).getProductQuantity());
+        assertNull(productRepository.reserve("shampoo", 1));
+    }
+
+    @Test
+    void testReserveAndRelease_InvalidArguments() {
+        Product product = newProduct("Sampo Cap Bambang", Integer.MAX_VALUE - 1);
+        product.setProductId("shampoo");
+        productRepository.create(product);
+
+        assertEquals("Quantity must be positive.",
+                assertThrows(IllegalArgumentException.class, () -> productRepository.reserve("shampoo", 0)).getMessage());
+        assertEquals("Product ID cannot be empty.",
+                assertThrows(IllegalArgumentException.class, () -> productRepository.release("", 1)).getMessage());
+        assertEquals("Cannot reserve: Product with ID missing not found.",
+                assertThrows(ProductNotFoundException.class, () -> productRepository.reserve("missing", 1)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> productRepository.release("shampoo", 2));
+        assertEquals(Integer.MAX_VALUE - 1, productRepository.findById("shampoo").getProductQuantity());
+    }
+
+    @Test
+    void testCount_FollowsCreatesAndDeletes() {
+        assertEquals(0, productRepository.count());
+        Product product = productRepository.create(newProduct("Sampo Cap Bambang", 2));
+        productRepository.create(newProduct("Sabun Cap Usep", 1));
+        assertEquals(2, productRepository.count());
+
+        productRepository.delete(product.getProductId());
+        assertEquals(1, productRepository.count());
+    }
+
+    @Test
+    void testModificationCount_ChangesOnlyWhenProductsDo() {
+        long initial = productRepository.modificationCount();
+        Product product = newProduct("Sampo Cap Bambang", 2);
+        product.setProductId("shampoo");
+        productRepository.create(product);
+        long created = productRepository.modificationCount();
+        assertTrue(created > initial);
+
+        Product stale = newProduct("Sampo Cap Usep", 2);
+        stale.setProductId("shampoo");
+        stale.setVersion(5);
+        assertTrue(productRepository.update(stale).isConflict());
+        assertNull(productRepository.reserve("shampoo", 3));
+        productRepository.findAll();
+        assertEquals(created, productRepository.modificationCount());
+
+        productRepository.reserve("shampoo", 1);
+        long reserved = productRepository.modificationCount();
+        assertTrue(reserved > created);
+        productRepository.delete("shampoo");
+        assertTrue(productRepository.modificationCount() > reserved);
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Concurrency stress tests
+    // ---------------------------------------------------------------------------------
+
+    private static final int THREADS = 8;
+    private static final int PRODUCTS_PER_THREAD = 2_000;
+
+    private List<Future<?>> runConcurrently(int threads, Runnable task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS), "Workers did not finish in time");
+        return futures;
+    }
+
+    private Product newProduct(String name, int quantity) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    @Test
+    void testConcurrentCreate_NoLostProducts() throws Exception {
+        for (Future<?> future : runConcurrently(THREADS, () -> {
+            for (int i = 0; i < PRODUCTS_PER_THREAD; i++) {
+                productRepository.create(newProduct("Product " + i, i));
+            }
+        })) {
+            future.get();
+        }
+
+        Set<String> ids = new HashSet<>();
+        Iterator<Product> iterator = productRepository.findAll();
+        while (iterator.hasNext()) {
+            Product product = iterator.next();
+            assertTrue(ids.add(product.getProductId()), "Duplicate product in findAll()");
+            assertSame(product, productRepository.findById(product.getProductId()));
+        }
+        assertEquals(THREADS * PRODUCTS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void testConcurrentCreate_SameIdOnlyOneWins() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        for (Future<?> future : runConcurrently(THREADS, () -> {
+            Product product = newProduct("Contender", 1);
+            product.setProductId("contested");
+            try {
+                productRepository.create(product);
+                created.incrementAndGet();
+            } catch (DuplicateIdException e) {
+                refused.incrementAndGet();
+            }
+        })) {
+            future.get();
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(THREADS - 1, refused.get());
+        assertEquals(0, productRepository.findById("contested").getVersion());
+    }
+
+    @Test
+    void testConcurrentCreateAndDelete_LeavesConsistentState() throws Exception {
+        List<String> survivors = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS_PER_THREAD; i++) {
+            survivors.add(productRepository.create(newProduct("Survivor " + i, i)).getProductId());
+        }
+
+        for (Future<?> future : runConcurrently(THREADS, () -> {
+            for (int i = 0; i < PRODUCTS_PER_THREAD; i++) {
+                Product product = productRepository.create(newProduct("Transient " + i, i));
+                assertTrue(productRepository.delete(product.getProductId()));
+            }
+        })) {
+            future.get();
+        }
+
+        List<String> remaining = new ArrayList<>();
+        productRepository.findAll().forEachRemaining(product -> remaining.add(product.getProductId()));
+        assertEquals(survivors, remaining, "Survivors should be intact and still in insertion order");
+    }
+
+    @Test
+    void testConcurrentUpdate_ReadersNeverSeeTornProduct() throws Exception {
+        Product product = new Product();
+        product.setProductId("hot-id");
+        product.setProductName("Version 0");
+        product.setProductQuantity(0);
+        productRepository.create(product);
+
+        for (Future<?> future : runConcurrently(THREADS, () -> {
+            for (int i = 1; i <= PRODUCTS_PER_THREAD; i++) {
+                Product updated = newProduct("Version " + i, i);
+                updated.setProductId("hot-id");
+                // Read, then compare-and-set; retry on top of whichever update got in first
+                do {
+                    updated.setVersion(productRepository.findById("hot-id").getVersion());
+                } while (productRepository.update(updated).isConflict());
+
+                Product seen = productRepository.findById("hot-id");
+                assertEquals("Version " + seen.getProductQuantity(), seen.getProductName());
+            }
+        })) {
+            future.get();
+        }
+        assertEquals(1, countProducts());
+        assertEquals((long) THREADS * PRODUCTS_PER_THREAD, productRepository.findById("hot-id").getVersion(),
+                "Every update must have been applied exactly once");
+    }
+
+    @Test
+    void testConcurrentReserve_NeverOversells() throws Exception {
+        int stock = THREADS * PRODUCTS_PER_THREAD / 2;
+        Product product = newProduct("Hot Item", stock);
+        product.setProductId("hot-id");
+        productRepository.create(product);
+        AtomicInteger reservedUnits = new AtomicInteger();
+
+        // Twice as many reservations as there are units, with a release mixed in now and then
+        for (Future<?> future : runConcurrently(THREADS, () -> {
+            for (int i = 0; i < PRODUCTS_PER_THREAD; i++) {
+                Product reserved = productRepository.reserve("hot-id", 1);
+                if (reserved != null) {
+                    assertTrue(reserved.getProductQuantity() >= 0);
+                    reservedUnits.incrementAndGet();
+                    if (i % 10 == 0) {
+                        productRepository.release("hot-id", 1);
+                        reservedUnits.decrementAndGet();
+                    }
+                }
+            }
+        })) {
+            future.get();
+        }
+        assertEquals(stock - reservedUnits.get(), productRepository.findById("hot-id").getProductQuantity(),
+                "Every unit must be either in stock or reserved, never both and never lost");
+    }
+
+    private int countProducts() {
+        int count = 0;
+        Iterator<Product> iterator = productRepository.findAll();
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
 }
@@ -0,0 +1,246 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStoreTest {
+    private static final int SHARDS = 4;
+
+    private ShardedStore<Product> store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ShardedStore<>(SHARDS, InsertionOrderedStore::new);
+    }
+
+    private static Product product(String id, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Product " + id);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    private void fill(int count) {
+        for (int i = 0; i < count; i++) {
+            store.put("p-" + i, product("p-" + i, i));
+        }
+    }
+
+    private static List<Long> positions(Iterator<Map.Entry<Long, Product>> entries) {
+        List<Long> positions = new ArrayList<>();
+        entries.forEachRemaining(entry -> positions.add(entry.getKey()));
+        return positions;
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getProductId).toList();
+    }
+
+    @Test
+    void testEntitiesSpreadOverShardsAndMergeInPositionOrder() {
+        fill(100);
+
+        assertEquals(100, store.size());
+        store.shards().forEach(shard -> assertTrue(shard.size() > 0, "every shard should hold some products"));
+        List<Long> positions = positions(store.entries());
+        assertEquals(100, positions.size());
+        for (int i = 1; i < positions.size(); i++) {
+            assertTrue(positions.get(i) > positions.get(i - 1));
+        }
+
+        // Within a shard the insertion order is kept
+        Map<Long, Integer> lastSeen = new HashMap<>();
+        store.entries().forEachRemaining(entry -> {
+            long shard = entry.getKey() % SHARDS;
+            int number = Integer.parseInt(entry.getValue().getProductId().substring(2));
+            assertTrue(lastSeen.getOrDefault(shard, -1) < number);
+            lastSeen.put(shard, number);
+        });
+        assertEquals("p-42", store.get("p-42").getProductId());
+    }
+
+    @Test
+    void testListenersSeeTheMergedPositions() {
+        Map<String, Long> seen = new HashMap<>();
+        store.addListener(new StoreListener<>() {
+            @Override
+            public void onPut(String id, long position, Product previous, Product current) {
+                seen.put(id, position);
+            }
+
+            @Override
+            public void onRemove(String id, long position, Product removed) {
+                assertEquals(position, seen.remove(id).longValue());
+            }
+        });
+        fill(20);
+
+        store.entries().forEachRemaining(entry -> assertEquals(seen.get(entry.getValue().getProductId()), entry.getKey()));
+        store.remove("p-3");
+        assertFalse(seen.containsKey("p-3"));
+    }
+
+    @Test
+    void testPagesWalkTheMergedOrder() {
+        fill(50);
+        List<String> expected = new ArrayList<>();
+        store.iterator().forEachRemaining(product -> expected.add(product.getProductId()));
+
+        List<String> forward = new ArrayList<>();
+        EntityStore.Slice<Product> page = store.skip(0, 7);
+        assertNull(page.previousCursor());
+        while (true) {
+            forward.addAll(ids(page.items()));
+            if (page.nextCursor() == null) {
+                break;
+            }
+            page = store.after(page.nextCursor(), 7);
+        }
+        assertEquals(expected, forward);
+
+        EntityStore.Slice<Product> middle = store.skip(20, 5);
+        assertEquals(expected.subList(20, 25), ids(middle.items()));
+        assertEquals(expected.subList(15, 20), ids(store.before(middle.previousCursor(), 5).items()));
+        assertNull(store.before(store.skip(0, 1).nextCursor(), 5).previousCursor());
+    }
+
+    // IDs that the shard count sends to the given shard, found by storing candidates in a scratch store
+    private static List<String> idsInShard(int shard, int count) {
+        ShardedStore<Product> scratch = new ShardedStore<>(SHARDS, InsertionOrderedStore::new);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; ids.size() < count; i++) {
+            String id = "s" + shard + "-" + i;
+            scratch.put(id, product(id, i));
+            if (scratch.shards().get(shard).contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    void testEntityInsertedIntoALaggingShardLandsBehindAnOpenCursor() {
+        for (String id : idsInShard(0, 10)) {
+            store.put(id, product(id, 1));
+        }
+        EntityStore.Slice<Product> first = store.skip(0, 5);
+        long cursor = first.nextCursor();
+
+        String late = idsInShard(1, 1).get(0);
+        store.put(late, product(late, 1));
+
+        List<String> rest = ids(store.after(cursor, 100).items());
+        assertEquals(5, rest.size());
+        assertFalse(rest.contains(late), "a lagging shard numbers its new entity below the cursor");
+        assertEquals(late, ids(store.skip(0, 100).items()).get(1));
+    }
+
+    @Test
+    void testSpliteratorSplitsByShardAndSeesEveryEntity() {
+        fill(1_000);
+
+        assertEquals(1_000, store.spliterator().estimateSize());
+        assertNotNull(store.spliterator().trySplit());
+        List<String> ids = StreamSupport.stream(store.spliterator(), true).map(Product::getProductId).toList();
+        assertEquals(1_000, ids.size());
+        assertEquals(1_000, ids.stream().distinct().count());
+        assertEquals(499_500, StreamSupport.stream(store.spliterator(), true).mapToLong(Product::getProductQuantity).sum());
+    }
+
+    @Test
+    void testBatchesAreSplitByShard() {
+        Map<String, Product> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            entries.put("p-" + i, product("p-" + i, i));
+        }
+        store.putAll(entries);
+        assertEquals(20, store.size());
+
+        Map<String, Product> replacements = new LinkedHashMap<>();
+        replacements.put("p-1", product("p-1", 100));
+        replacements.put("p-2", product("p-2", 200));
+        replacements.put("missing", product("missing", 0));
+        Map<String, Product> rejected = store.replaceAll(replacements, (current, replacement) -> !current.getProductId().equals("p-2"));
+        assertEquals(100, store.get("p-1").getProductQuantity());
+        assertEquals(2, store.get("p-2").getProductQuantity());
+        assertEquals(2, rejected.size());
+
+        Map<String, Product> taken = store.putAllIfAbsent(Map.of("p-3", product("p-3", 300), "fresh", product("fresh", 1)));
+        assertEquals(List.of("p-3"), List.copyOf(taken.keySet()));
+        assertEquals(3, store.get("p-3").getProductQuantity());
+        assertEquals(21, store.size());
+        store.remove("fresh");
+
+        Map<String, Product> removed = store.removeAll(List.of("p-1", "p-2", "missing"));
+        assertEquals(2, removed.size());
+        assertEquals(18, store.size());
+    }
+
+    @Test
+    void testRestoreKeepsPositionsUnderTheSameShardCount() {
+        fill(30);
+        store.remove("p-5");
+        Map<Long, Product> snapshot = new LinkedHashMap<>();
+        store.entries().forEachRemaining(entry -> snapshot.put(entry.getKey(), entry.getValue()));
+
+        ShardedStore<Product> same = new ShardedStore<>(SHARDS, InsertionOrderedStore::new);
+        snapshot.forEach((position, product) -> same.restore(product.getProductId(), position, product));
+        assertEquals(List.copyOf(snapshot.keySet()), positions(same.entries()));
+
+        ShardedStore<Product> resized = new ShardedStore<>(SHARDS + 3, InsertionOrderedStore::new);
+        snapshot.forEach((position, product) -> resized.restore(product.getProductId(), position, product));
+        assertEquals(29, resized.size());
+        assertEquals(29, positions(resized.entries()).stream().distinct().count());
+    }
+
+    @Test
+    void testModificationCountFollowsEveryShard() {
+        long before = store.modificationCount();
+        fill(10);
+        assertEquals(before + 10, store.modificationCount());
+        store.update("p-1", current -> current);
+        assertEquals(before + 10, store.modificationCount());
+    }
+
+    @Test
+    void testRepositoryOnShardedStore() throws Exception {
+        ProductRepository repository = new ProductRepository(store);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    Product product = new Product();
+                    product.setProductName("Sampo " + thread + " " + i);
+                    product.setProductQuantity(i);
+                    repository.create(product);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(4_000, repository.count());
+        assertEquals(8, repository.findByQuantityRange(0, 0, 100).size());
+        assertEquals(10, repository.search("sampo", 10).size());
+        assertEquals(4_000, ids(repository.findPage(0, 4_000, null, null).getContent()).stream().distinct().count());
+    }
+}
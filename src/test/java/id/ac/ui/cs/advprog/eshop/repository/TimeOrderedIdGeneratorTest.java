@@ -0,0 +1,86 @@
+package id.ac.ui.cs.advprog.eshop.repository;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    @Test
+    void testIdsAreCompactVersion7Uuids() {
+        long millis = 1_760_000_000_000L;
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> millis);
+
+        String id = generator.nextId();
+        UUID uuid = UUID.fromString(id);
+        assertTrue(CompactId.isCompact(id));
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(millis, uuid.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void testIdsIncreaseWithinAndAcrossMilliseconds() {
+        AtomicLong clock = new AtomicLong(1_760_000_000_000L);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+
+        String previous = generator.nextId();
+        // More IDs than the counter holds in one millisecond, then a clock that steps back
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(1);
+            } else if (i == 7_000) {
+                clock.addAndGet(-10);
+            }
+            String next = generator.nextId();
+            assertTrue(next.compareTo(previous) > 0, next + " should sort after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreads() throws Exception {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> 1_760_000_000_000L);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    void testRepositoriesUseTheGivenGenerator() {
+        ProductRepository productRepository = new ProductRepository(new InsertionOrderedStore<>(), () -> "fixed-product-id");
+        CarRepository carRepository = new CarRepository(new InsertionOrderedStore<>(), () -> "fixed-car-id");
+
+        Product product = new Product();
+        product.setProductName("Sampo Cap Bambang");
+        Car car = new Car();
+
+        assertEquals("fixed-product-id", productRepository.create(product).getProductId());
+        assertEquals("fixed-car-id", carRepository.create(car).getCarId());
+    }
+}
@@ -0,0 +1,377 @@
+package id.ac.ui.cs.advprog.eshop.repository.columnar;
+
+import id.ac.ui.cs.advprog.eshop.model.Page;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
+import id.ac.ui.cs.advprog.eshop.repository.DuplicateIdException;
+import id.ac.ui.cs.advprog.eshop.repository.EntityStore;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.StoreListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarProductStoreTest {
+
+    private ColumnarProductStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ColumnarProductStore();
+    }
+
+    private static Product product(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    private static List<String> ids(Iterator<Product> products) {
+        List<String> ids = new ArrayList<>();
+        products.forEachRemaining(product -> ids.add(product.getProductId()));
+        return ids;
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return ids(products.iterator());
+    }
+
+    @Test
+    void testPutAndGet_ReturnsReadOnlyCopy() {
+        Product original = product("id-1", "Sampo Cap Bambang", 100);
+        original.setVersion(3);
+        store.put("id-1", original);
+
+        Product stored = store.get("id-1");
+        assertNotSame(original, stored);
+        assertEquals("id-1", stored.getProductId());
+        assertEquals("Sampo Cap Bambang", stored.getProductName());
+        assertEquals(100, stored.getProductQuantity());
+        assertEquals(3, stored.getVersion());
+        assertThrows(UnsupportedOperationException.class, () -> stored.setProductQuantity(0));
+
+        // Later changes to the caller's object do not leak into the store
+        original.setProductName("Sabun Cap Usep");
+        assertEquals("Sampo Cap Bambang", store.get("id-1").getProductName());
+        assertNull(store.get("missing"));
+        assertFalse(store.contains("missing"));
+    }
+
+    @Test
+    void testPut_ExistingIdKeepsPosition() {
+        store.put("a", product("a", "A", 1));
+        store.put("b", product("b", "B", 2));
+        store.put("a", product("a", "A2", 3));
+
+        assertEquals(2, store.size());
+        assertEquals(List.of("a", "b"), ids(store.iterator()));
+        assertEquals("A2", store.get("a").getProductName());
+    }
+
+    @Test
+    void testNonAsciiNamesRoundTrip() {
+        store.put("ü-1", product("ü-1", "Kopi Susu ☕ Gula Aren", 1));
+
+        assertEquals("Kopi Susu ☕ Gula Aren", store.get("ü-1").getProductName());
+    }
+
+    @Test
+    void testCompactAndTextIdsLiveSideBySide() {
+        String generated = UUID.randomUUID().toString();
+        String upperCase = generated.toUpperCase();
+        store.put(generated, product(generated, "Generated", 1));
+        store.put(upperCase, product(upperCase, "Upper case", 2));
+        store.put("sku-1", product("sku-1", "Chosen", 3));
+
+        assertEquals(3, store.size());
+        assertEquals(generated, store.get(generated).getProductId());
+        assertEquals("Generated", store.get(generated).getProductName());
+        assertEquals(upperCase, store.get(upperCase).getProductId());
+        assertEquals("Upper case", store.get(upperCase).getProductName());
+        assertEquals(List.of(generated, upperCase, "sku-1"), ids(store.iterator()));
+
+        assertEquals(generated, store.remove(generated).getProductId());
+        assertNull(store.get(generated));
+        assertEquals("Upper case", store.get(upperCase).getProductName());
+    }
+
+    @Test
+    void testReplace_IsCompareAndSet() {
+        store.put("id-1", product("id-1", "Before", 1));
+        long before = store.modificationCount();
+
+        Product refused = product("id-1", "Refused", 2);
+        Product stored = store.replace("id-1", refused, (current, replacement) -> false);
+        assertNotSame(refused, stored);
+        assertEquals("Before", stored.getProductName());
+        assertEquals(before, store.modificationCount());
+
+        Product accepted = product("id-1", "After", 3);
+        assertSame(accepted, store.replace("id-1", accepted, (current, replacement) -> true));
+        assertEquals("After", store.get("id-1").getProductName());
+        assertEquals(before + 1, store.modificationCount());
+
+        assertNull(store.replace("missing", accepted, (current, replacement) -> true));
+    }
+
+    @Test
+    void testReplaceAll_ReportsRejectedIds() {
+        store.put("a", product("a", "A", 1));
+        store.put("b", product("b", "B", 2));
+
+        Map<String, Product> entries = new LinkedHashMap<>();
+        entries.put("a", product("a", "A2", 1));
+        entries.put("b", product("b", "B2", 2));
+        entries.put("missing", product("missing", "M", 3));
+        Map<String, Product> rejected = store.replaceAll(entries, (current, replacement) -> !current.getProductId().equals("b"));
+
+        assertEquals(2, rejected.size());
+        assertEquals("B", rejected.get("b").getProductName());
+        assertTrue(rejected.containsKey("missing"));
+        assertNull(rejected.get("missing"));
+        assertEquals("A2", store.get("a").getProductName());
+    }
+
+    @Test
+    void testUpdate_UnchangedProductIsNotAWrite() {
+        store.put("id-1", product("id-1", "Stock", 5));
+        long before = store.modificationCount();
+
+        Product unchanged = store.update("id-1", current -> current);
+        assertEquals(5, unchanged.getProductQuantity());
+        assertEquals(before, store.modificationCount());
+
+        Product changed = store.update("id-1", current -> product("id-1", current.getProductName(), current.getProductQuantity() - 1));
+        assertEquals(4, changed.getProductQuantity());
+        assertEquals(4, store.get("id-1").getProductQuantity());
+        assertEquals(before + 1, store.modificationCount());
+        assertNull(store.update("missing", current -> current));
+    }
+
+    @Test
+    void testRemove_ReturnsReadableProduct() {
+        store.put("a", product("a", "A", 1));
+        store.put("b", product("b", "B", 2));
+
+        Product removed = store.remove("a");
+        assertEquals("a", removed.getProductId());
+        assertEquals("A", removed.getProductName());
+        assertNull(store.remove("a"));
+        assertNull(store.get("a"));
+        assertEquals(List.of("b"), ids(store.iterator()));
+
+        Map<String, Product> removedAll = store.removeAll(List.of("b", "missing"));
+        assertEquals(List.of("b"), List.copyOf(removedAll.keySet()));
+        assertEquals(0, store.size());
+        assertFalse(store.iterator().hasNext());
+    }
+
+    @Test
+    void testRestore_KeepsLoggedPositions() {
+        store.restore("late", 7, product("late", "Late", 1));
+        store.restore("early", 3, product("early", "Early", 1));
+        store.put("next", product("next", "Next", 1));
+
+        List<Long> positions = new ArrayList<>();
+        store.entries().forEachRemaining(entry -> positions.add(entry.getKey()));
+        assertEquals(List.of(3L, 7L, 8L), positions);
+        assertEquals(List.of("early", "late", "next"), ids(store.iterator()));
+    }
+
+    @Test
+    void testRemovedRowsAreReusedBeforeTheStoreGrows() {
+        store.put("a", product("a", "A", 1));
+        store.put("b", product("b", "B", 1));
+        store.put("c", product("c", "C", 1));
+        store.remove("b");
+
+        store.put("d", product("d", "D", 1));
+        store.put("e", product("e", "E", 1));
+
+        List<Long> positions = new ArrayList<>();
+        store.entries().forEachRemaining(entry -> positions.add(entry.getKey()));
+        assertEquals(List.of(1L, 2L, 3L, 4L), positions);
+        assertEquals(List.of("a", "d", "c", "e"), ids(store.iterator()));
+    }
+
+    @Test
+    void testCreateDeleteLoop_KeepsOffHeapMemoryFlat() throws Exception {
+        store.put("keeper", product("keeper", "Keeper", 1));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // Lookups and reads must stay right while compactions move the strings under them
+        Future<?> reader = executor.submit(() -> {
+            while (!done.get()) {
+                Product keeper = store.get("keeper");
+                assertEquals("keeper", keeper.getProductId());
+                assertEquals("Keeper", keeper.getProductName());
+            }
+        });
+
+        int live = 1_000;
+        long warmedUp = 0;
+        long peak = 0;
+        for (int i = 0; i < 900_000; i++) {
+            store.put("p-" + i, product("p-" + i, "Sampo Cap Bambang ukuran besar nomor " + i, 1));
+            if (i >= live) {
+                store.remove("p-" + (i - live));
+            }
+            if (i == 300_000) {
+                warmedUp = peak;
+            }
+            peak = Math.max(peak, store.offHeapBytes());
+        }
+        done.set(true);
+        reader.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(warmedUp, peak, "direct memory should stop growing once removed rows and strings are reused");
+        assertTrue(store.garbageBytes() < peak);
+        assertEquals(live + 1, store.size());
+        assertEquals("Sampo Cap Bambang ukuran besar nomor 899999", store.get("p-899999").getProductName());
+        assertNull(store.get("p-" + (899_999 - live)));
+        assertEquals(live + 1, ids(store.iterator()).size());
+    }
+
+    @Test
+    void testPages_FollowInsertionOrderAcrossSegments() {
+        // Enough products to fill more than one segment, with the first segment emptied completely
+        int count = 70_000;
+        Map<String, Product> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put("p-" + i, product("p-" + i, "Product " + i, i));
+        }
+        store.putAll(entries);
+        List<String> firstSegment = new ArrayList<>();
+        for (int i = 0; i < 65_535; i++) {
+            firstSegment.add("p-" + i);
+        }
+        store.removeAll(firstSegment);
+
+        assertEquals(count - 65_535, store.size());
+        EntityStore.Slice<Product> first = store.skip(0, 3);
+        assertEquals(List.of("p-65535", "p-65536", "p-65537"), ids(first.items()));
+        assertNull(first.previousCursor());
+
+        EntityStore.Slice<Product> second = store.after(first.nextCursor(), 2);
+        assertEquals(List.of("p-65538", "p-65539"), ids(second.items()));
+        assertEquals(List.of("p-65536", "p-65537"), ids(store.before(second.previousCursor(), 2).items()));
+
+        EntityStore.Slice<Product> last = store.skip(store.size() - 2, 5);
+        assertEquals(List.of("p-69998", "p-69999"), ids(last.items()));
+        assertNull(last.nextCursor());
+        assertTrue(store.skip(store.size(), 5).items().isEmpty());
+    }
+
+    @Test
+    void testSpliterator_SplitsOnSegmentsAndSkipsRemovedRows() {
+        int count = 200_000;
+        Map<String, Product> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put("p-" + i, product("p-" + i, "Product " + i, 1));
+        }
+        store.putAll(entries);
+        store.removeAll(List.of("p-0", "p-70000", "p-199999"));
+
+        Spliterator<Product> whole = store.spliterator();
+        Spliterator<Product> prefix = whole.trySplit();
+        assertNotNull(prefix);
+        assertEquals(0, (prefix.estimateSize() + 1) % 65_536, "the first split should end on a segment boundary");
+        assertEquals(count - 3, StreamSupport.stream(store.spliterator(), true).mapToLong(Product::getProductQuantity).sum());
+        List<String> ids = StreamSupport.stream(store.spliterator(), true).map(Product::getProductId).toList();
+        assertEquals(ids(store.iterator()), ids);
+    }
+
+    @Test
+    void testThrowingListenerAbortsWrite() {
+        store.put("id-1", product("id-1", "Before", 1));
+        store.addListener(new StoreListener<>() {
+            @Override
+            public void onPut(String id, long position, Product previous, Product current) {
+                throw new IllegalStateException("refused");
+            }
+
+            @Override
+            public void onRemove(String id, long position, Product removed) {
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> store.put("id-1", product("id-1", "After", 2)));
+        assertThrows(IllegalStateException.class, () -> store.put("id-2", product("id-2", "New", 2)));
+        assertEquals("Before", store.get("id-1").getProductName());
+        assertNull(store.get("id-2"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testReadersNeverSeeAHalfWrittenProduct() throws Exception {
+        store.put("hot", product("hot", "0", 0));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            readers.add(executor.submit(() -> {
+                while (!done.get()) {
+                    Product product = store.get("hot");
+                    assertEquals(String.valueOf(product.getProductQuantity()), product.getProductName());
+                    assertEquals(product.getProductQuantity(), product.getVersion());
+                }
+            }));
+        }
+        for (int i = 1; i <= 20_000; i++) {
+            Product next = product("hot", String.valueOf(i), i);
+            next.setVersion(i);
+            store.put("hot", next);
+        }
+        done.set(true);
+        for (Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void testRepositoryOnColumnarStore() {
+        ProductRepository repository = new ProductRepository(new ColumnarProductStore());
+        Product product = product(null, "Sampo Cap Bambang", 10);
+        repository.create(product);
+        String id = product.getProductId();
+
+        assertEquals("Sampo Cap Bambang", repository.findById(id).getProductName());
+        assertThrows(DuplicateIdException.class, () -> repository.create(product(id, "Intruder", 1)));
+        assertEquals(List.of(id), ids(repository.search("bambang", 10)));
+        assertEquals(7, repository.reserve(id, 3).getProductQuantity());
+        assertEquals(List.of(id), ids(repository.findByQuantityRange(5, 8, 10)));
+
+        Product stale = product(id, "Stale", 1);
+        UpdateResult<Product> conflict = repository.update(stale);
+        assertTrue(conflict.isConflict());
+        Product fresh = product(id, "Sampo Cap Usep", 1);
+        fresh.setVersion(repository.findById(id).getVersion());
+        assertFalse(repository.update(fresh).isConflict());
+        assertEquals(List.of(id), ids(repository.search("usep", 10)));
+        assertTrue(repository.search("bambang", 10).isEmpty());
+
+        Page<Product> page = repository.findPage(0, 10, null, null);
+        assertEquals(List.of(id), ids(page.getContent()));
+        assertTrue(repository.delete(id));
+        assertEquals(0, repository.count());
+    }
+}
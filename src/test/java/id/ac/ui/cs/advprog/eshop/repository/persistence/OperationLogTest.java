@@ -0,0 +1,505 @@
+package id.ac.ui.cs.advprog.eshop.repository.persistence;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.DuplicateIdException;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import id.ac.ui.cs.advprog.eshop.repository.ProductNotFoundException;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.StoreListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<OperationLog<?>> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        closeAll();
+    }
+
+    private ProductRepository openProducts(boolean groupCommit) throws IOException {
+        ProductRepository repository = new ProductRepository();
+        OperationLog<Product> operationLog = OperationLog.open(directory, "products", new ProductCodec(), groupCommit);
+        repository.enablePersistence(operationLog);
+        opened.add(operationLog);
+        return repository;
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperationLog<Product> lastOpenedLog() {
+        return (OperationLog<Product>) opened.get(opened.size() - 1);
+    }
+
+    private void closeAll() throws IOException {
+        for (OperationLog<?> operationLog : opened) {
+            operationLog.close();
+        }
+        opened.clear();
+    }
+
+    private List<String> filesIn() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private Path segment(int number) {
+        return directory.resolve(String.format("products-%08d.log", number));
+    }
+
+    private Product newProduct(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return product;
+    }
+
+    private List<String> namesOf(ProductRepository repository) {
+        List<String> names = new ArrayList<>();
+        repository.findAll().forEachRemaining(product -> names.add(product.getProductName()));
+        return names;
+    }
+
+    @Test
+    void testReplayRestoresCreateUpdateAndDelete() throws IOException {
+        ProductRepository before = openProducts(true);
+        before.create(newProduct("id-1", "First", 1));
+        before.create(newProduct("id-2", "Second", 2));
+        before.create(newProduct("id-3", "Third", 3));
+        before.update(newProduct("id-2", "Second (edited)", 20));
+        before.delete("id-1");
+        closeAll();
+
+        ProductRepository after = openProducts(true);
+        assertEquals(List.of("Second (edited)", "Third"), namesOf(after));
+        assertEquals(20, after.findById("id-2").getProductQuantity());
+        assertEquals(1, after.findById("id-2").getVersion(), "Replay must keep the version, or the next edit would conflict");
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws IOException {
+        openProducts(true).create(newProduct("id-1", "Kept", 1));
+        closeAll();
+        long intactSize = Files.size(segment(1));
+        Files.write(segment(1), new byte[]{0, 0, 0, 42, 7, 7}, StandardOpenOption.APPEND);
+
+        ProductRepository recovered = openProducts(true);
+        assertEquals(intactSize, Files.size(segment(1)), "The torn record should be truncated");
+        recovered.create(newProduct("id-2", "Added after crash", 2));
+        closeAll();
+
+        assertEquals(List.of("Kept", "Added after crash"), namesOf(openProducts(true)));
+    }
+
+    @Test
+    void testCorruptedRecordStopsReplay() throws IOException {
+        ProductRepository repository = openProducts(false);
+        repository.create(newProduct("id-1", "Good", 1));
+        repository.create(newProduct("id-2", "Bad", 2));
+        closeAll();
+
+        byte[] bytes = Files.readAllBytes(segment(1));
+        bytes[bytes.length - 1] ^= 0x7F; // flip bits in the last record's payload
+        Files.write(segment(1), bytes);
+
+        assertEquals(List.of("Good"), namesOf(openProducts(false)));
+    }
+
+    @Test
+    void testConcurrentWritesWithGroupCommitAreAllDurable() throws Exception {
+        ProductRepository repository = openProducts(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    repository.create(newProduct(null, "Product " + i, i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        closeAll();
+
+        ProductRepository recovered = openProducts(true);
+        assertEquals(namesOf(repository), namesOf(recovered), "Replay should rebuild the same catalog in the same order");
+    }
+
+    @Test
+    void testVirtualThreadWritersAreAllDurable() throws Exception {
+        ProductRepository repository = new ProductRepository();
+        OperationLog<Product> operationLog = OperationLog.open(directory, "products", new ProductCodec(), true, Thread.ofVirtual());
+        repository.enablePersistence(operationLog);
+        opened.add(operationLog);
+
+        // Far more writers than carrier threads, all waiting for an fsync at the same time
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 1_000; t++) {
+                int writer = t;
+                futures.add(executor.submit(() -> repository.create(newProduct(null, "Product " + writer, writer))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        closeAll();
+
+        ProductRepository recovered = openProducts(true);
+        assertEquals(namesOf(repository), namesOf(recovered), "Replay should rebuild the same catalog in the same order");
+    }
+
+    @Test
+    void testVirtualThreadSnapshotWaitsForWritesWithoutHoldingTheCarrier() throws Exception {
+        InsertionOrderedStore<Product> store = new InsertionOrderedStore<>();
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Added before the log, so it holds each write after it was logged but before the log's afterWrite()
+        store.addListener(new StoreListener<>() {
+            @Override
+            public void onPut(String id, long position, Product previous, Product current) {
+            }
+
+            @Override
+            public void onRemove(String id, long position, Product removed) {
+            }
+
+            @Override
+            public void afterWrite() {
+                logged.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        OperationLog<Product> operationLog = OperationLog.open(directory, "products", new ProductCodec(), true);
+        operationLog.attach(store);
+        opened.add(operationLog);
+
+        // Keep every carrier thread but one busy, as if the virtual thread scheduler had a parallelism of 1
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+        AtomicBoolean hogging = new AtomicBoolean(true);
+        // Not closed with try-with-resources: a snapshot stuck on the last carrier would never let close() return
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int i = 1; i < carriers; i++) {
+                executor.submit(() -> {
+                    while (hogging.get()) {
+                        Thread.onSpinWait();
+                    }
+                });
+            }
+            Future<?> write = executor.submit(() -> store.put("id-1", newProduct("id-1", "In flight", 1)));
+            logged.await();
+            Future<?> snapshot = executor.submit(() -> {
+                operationLog.snapshot();
+                return null;
+            });
+            Thread.sleep(200); // Lets the snapshot reach the wait for the write in flight
+            release.countDown();
+
+            snapshot.get(10, TimeUnit.SECONDS);
+            write.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            hogging.set(false);
+            executor.shutdown();
+        }
+        closeAll();
+
+        assertEquals(List.of("In flight"), namesOf(openProducts(true)));
+    }
+
+    @Test
+    void testNameTooLongForTheLogIsRefusedWithoutATrace() throws IOException {
+        ProductRepository repository = openProducts(true);
+        // Three bytes per character, so this name is well over the limit while a third of it still fits
+        String tooLong = "\u20AC".repeat(EntityCodec.MAX_STRING_BYTES / 3 + 1);
+        String longest = "\u20AC".repeat(EntityCodec.MAX_STRING_BYTES / 3);
+
+        assertThrows(IllegalArgumentException.class, () -> repository.create(newProduct("id-1", tooLong + " sabun", 5)));
+        assertTrue(repository.search("sabun", 10).isEmpty());
+        assertEquals(0, repository.totalStock());
+
+        repository.create(newProduct("id-2", longest, 7));
+        closeAll();
+        ProductRepository recovered = openProducts(true);
+        assertEquals(List.of(longest), namesOf(recovered));
+        assertThrows(ProductNotFoundException.class, () -> recovered.findById("id-1"));
+    }
+
+    @Test
+    void testCarLogRoundTripsNullableFields() throws IOException {
+        CarRepository before = new CarRepository();
+        OperationLog<Car> firstLog = OperationLog.open(directory, "cars", new CarCodec(), true);
+        before.enablePersistence(firstLog);
+        opened.add(firstLog);
+        Car car = new Car();
+        car.setCarName("No Color");
+        car.setCarQuantity(4);
+        before.create(car);
+        closeAll();
+
+        CarRepository after = new CarRepository();
+        OperationLog<Car> secondLog = OperationLog.open(directory, "cars", new CarCodec(), true);
+        after.enablePersistence(secondLog);
+        opened.add(secondLog);
+        Iterator<Car> cars = after.findAll();
+        Car restored = cars.next();
+        assertEquals(car.getCarId(), restored.getCarId());
+        assertEquals("No Color", restored.getCarName());
+        assertNull(restored.getCarColor());
+        assertEquals(4, restored.getCarQuantity());
+        assertFalse(cars.hasNext());
+    }
+
+    @Test
+    void testWriteAfterCloseIsRejected() throws IOException {
+        ProductRepository repository = openProducts(true);
+        closeAll();
+
+        assertThrows(IllegalStateException.class, () -> repository.create(newProduct(null, "Too late", 1)));
+    }
+
+    @Test
+    void testWriteRefusedByTheLogLeavesTheIndexesUntouched() throws IOException {
+        ProductRepository repository = openProducts(true);
+        repository.create(newProduct("id-1", "Sabun Cap Bambang", 5));
+        closeAll();
+
+        assertThrows(IllegalStateException.class, () -> repository.create(newProduct("id-2", "Sabun Cap Usep", 7)));
+        Product renamed = newProduct("id-1", "Sampo Cap Usep", 9);
+        assertThrows(IllegalStateException.class, () -> repository.update(renamed));
+        assertThrows(IllegalStateException.class, () -> repository.delete("id-1"));
+
+        assertEquals(List.of("Sabun Cap Bambang"), namesOf(repository));
+        assertEquals(List.of("id-1"), repository.search("sabun", 10).stream().map(Product::getProductId).toList());
+        assertTrue(repository.search("usep", 10).isEmpty());
+        assertEquals(List.of("id-1"), repository.findByQuantityRange(0, 10, 10).stream().map(Product::getProductId).toList());
+        assertEquals(5, repository.totalStock());
+    }
+
+    @Test
+    void testWriteFailingAfterItWasLoggedDoesNotStallSnapshots() throws Exception {
+        InsertionOrderedStore<Product> store = new InsertionOrderedStore<>();
+        ProductRepository repository = new ProductRepository(store);
+        OperationLog<Product> operationLog = OperationLog.open(directory, "products", new ProductCodec(), true);
+        repository.enablePersistence(operationLog);
+        opened.add(operationLog);
+        // Added after the log, so its refusal comes once the write is already logged and in flight
+        store.addListener(new StoreListener<>() {
+            @Override
+            public void onPut(String id, long position, Product previous, Product current) {
+                if (current.getProductName().equals("Refused")) {
+                    throw new IllegalStateException("refused");
+                }
+            }
+
+            @Override
+            public void onRemove(String id, long position, Product removed) {
+            }
+        });
+        repository.create(newProduct("id-1", "Accepted", 1));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // A thread that writes nothing afterwards, so no later write of its own settles what it left in flight
+            Thread refused = new Thread(() -> assertThrows(IllegalStateException.class,
+                    () -> repository.create(newProduct("id-2", "Refused", 2))));
+            refused.start();
+            refused.join();
+            Future<?> snapshot = executor.submit(() -> {
+                operationLog.snapshot();
+                return null;
+            });
+            snapshot.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(Files.exists(directory.resolve("products-00000002.snapshot")));
+    }
+
+    // ---------------------------------------------------------------------------------
+    // Snapshots and compaction
+    // ---------------------------------------------------------------------------------
+
+    @Test
+    void testSnapshotCompactsLogAndRestartLoadsIt() throws IOException {
+        ProductRepository repository = openProducts(true);
+        for (int i = 0; i < 100; i++) {
+            repository.create(newProduct("id-" + i, "Product " + i, i));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            repository.delete("id-" + i);
+        }
+        lastOpenedLog().snapshot();
+        repository.update(newProduct("id-1", "Edited after snapshot", 1));
+        closeAll();
+
+        assertEquals(List.of("products-00000002.log", "products-00000002.snapshot"), filesIn(),
+                "The first segment should be deleted once the snapshot covers it");
+
+        ProductRepository recovered = openProducts(true);
+        assertEquals(namesOf(repository), namesOf(recovered));
+        assertEquals("Edited after snapshot", recovered.findById("id-1").getProductName());
+    }
+
+    @Test
+    void testSnapshotIsSkippedWhenNothingChanged() throws IOException {
+        ProductRepository repository = openProducts(true);
+        repository.create(newProduct("id-1", "Only", 1));
+        lastOpenedLog().snapshot();
+        List<String> afterFirstSnapshot = filesIn();
+
+        lastOpenedLog().snapshot();
+        assertEquals(afterFirstSnapshot, filesIn());
+    }
+
+    @Test
+    void testCorruptSnapshotIsRefusedBeforeAnythingIsRestored() throws IOException {
+        ProductRepository repository = openProducts(true);
+        for (int i = 0; i < 10; i++) {
+            repository.create(newProduct("id-" + i, "Product " + i, i));
+        }
+        lastOpenedLog().snapshot();
+        closeAll();
+        Path snapshot = directory.resolve("products-00000002.snapshot");
+        corruptLastEntity(snapshot);
+
+        List<Product> restored = new ArrayList<>();
+        assertThrows(IOException.class, () -> SnapshotFile.read(snapshot, new ProductCodec(), (product, position) -> restored.add(product)));
+        assertTrue(restored.isEmpty(), "No entity may be applied before the footer is checked");
+    }
+
+    @Test
+    void testCorruptNewestSnapshotFallsBackToTheOlderOne() throws IOException {
+        ProductRepository repository = openProducts(true);
+        repository.create(newProduct("id-1", "Before first snapshot", 1));
+        lastOpenedLog().snapshot();
+        repository.create(newProduct("id-2", "Between snapshots", 2));
+        // What a crash right after the second snapshot's rename would leave behind
+        Path olderSnapshot = directory.resolve("products-00000002.snapshot");
+        byte[] olderSnapshotBytes = Files.readAllBytes(olderSnapshot);
+        byte[] olderSegmentBytes = Files.readAllBytes(segment(2));
+        lastOpenedLog().snapshot();
+        repository.create(newProduct("id-3", "After second snapshot", 3));
+        closeAll();
+        Files.write(olderSnapshot, olderSnapshotBytes);
+        Files.write(segment(2), olderSegmentBytes);
+        corruptLastEntity(directory.resolve("products-00000003.snapshot"));
+
+        ProductRepository recovered = openProducts(true);
+        assertEquals(List.of("Before first snapshot", "Between snapshots", "After second snapshot"), namesOf(recovered));
+    }
+
+    @Test
+    void testMangledRecordLengthIsReportedAsCorruption() throws IOException {
+        ProductRepository repository = openProducts(true);
+        for (int i = 0; i < 10; i++) {
+            repository.create(newProduct("id-" + i, "Product " + i, i));
+        }
+        lastOpenedLog().snapshot();
+        closeAll();
+        Path snapshot = directory.resolve("products-00000002.snapshot");
+        byte[] intact = Files.readAllBytes(snapshot);
+
+        for (int length : new int[] {-2, Integer.MIN_VALUE, intact.length, Integer.MAX_VALUE}) {
+            // The first record's length follows the 8-byte header
+            byte[] mangled = intact.clone();
+            ByteBuffer.wrap(mangled).putInt(8, length);
+            Files.write(snapshot, mangled);
+
+            IOException refused = assertThrows(IOException.class,
+                    () -> SnapshotFile.read(snapshot, new ProductCodec(), (product, position) -> { }));
+            assertEquals("Snapshot is corrupt.", refused.getMessage());
+        }
+    }
+
+    // Flips a byte of the last entity, which lies just before the 16-byte footer
+    private static void corruptLastEntity(Path snapshot) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 17] ^= 0x5A;
+        Files.write(snapshot, bytes);
+    }
+
+    @Test
+    void testSnapshotDuringConcurrentWritesLosesNothing() throws Exception {
+        ProductRepository repository = openProducts(true);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String prefix = "thread-" + t + "-";
+            futures.add(executor.submit(() -> {
+                int i = 0;
+                while (writing.get()) {
+                    i++;
+                    String id = prefix + (i % 20);
+                    Product product = newProduct(id, "Version " + i, i);
+                    try {
+                        repository.create(product);
+                    } catch (DuplicateIdException e) {
+                        // Each thread owns its IDs, so the version read here is still the current one
+                        product.setVersion(repository.findById(id).getVersion());
+                        repository.update(product);
+                    }
+                    if (i % 5 == 0) {
+                        repository.delete(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int s = 0; s < 3; s++) {
+            Thread.sleep(50);
+            lastOpenedLog().snapshot();
+        }
+        writing.set(false);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<String> expected = new ArrayList<>();
+        repository.findAll().forEachRemaining(product ->
+                expected.add(product.getProductId() + "=" + product.getProductName()));
+        closeAll();
+
+        List<String> actual = new ArrayList<>();
+        openProducts(true).findAll().forEachRemaining(product ->
+                actual.add(product.getProductId() + "=" + product.getProductName()));
+        assertEquals(expected.stream().sorted().toList(), actual.stream().sorted().toList());
+    }
+}
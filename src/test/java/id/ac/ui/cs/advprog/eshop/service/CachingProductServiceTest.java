@@ -0,0 +1,137 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.ProductNotFoundException;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingProductServiceTest {
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private ProductRepository productRepository;
+    private CachingProductService cachingService;
+    private final AtomicLong clock = new AtomicLong();
+
+    @BeforeEach
+    void setUp() throws ReflectiveOperationException {
+        productRepository = new ProductRepository();
+        ProductServiceImpl productService = new ProductServiceImpl();
+        var field = ProductServiceImpl.class.getDeclaredField("productRepository");
+        field.setAccessible(true);
+        field.set(productService, productRepository);
+
+        Cache<String, Product> cache = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(TTL)
+                .ticker(clock::get)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        cachingService = new CachingProductService(productService, cache);
+    }
+
+    private Product createProduct(String id, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return cachingService.create(product);
+    }
+
+    @Test
+    void testFindById_SecondLookupIsAHit() {
+        Product product = createProduct("shampoo", "Sampo Cap Bambang", 10);
+
+        assertSame(product, cachingService.findById("shampoo"));
+        assertSame(product, cachingService.findById("shampoo"));
+
+        assertEquals(1, cachingService.stats().missCount());
+        assertEquals(1, cachingService.stats().hitCount());
+    }
+
+    @Test
+    void testFindById_MissingProductIsNotCached() {
+        assertThrows(ProductNotFoundException.class, () -> cachingService.findById("missing"));
+        createProduct("missing", "Found Later", 1);
+
+        assertEquals("Found Later", cachingService.findById("missing").getProductName());
+    }
+
+    @Test
+    void testWrites_InvalidateTheCachedProduct() {
+        createProduct("shampoo", "Sampo Cap Bambang", 10);
+        cachingService.findById("shampoo");
+
+        Product edit = new Product();
+        edit.setProductId("shampoo");
+        edit.setProductName("Sampo Cap Usep");
+        edit.setProductQuantity(10);
+        cachingService.update(edit);
+        assertEquals("Sampo Cap Usep", cachingService.findById("shampoo").getProductName());
+
+        cachingService.reserve("shampoo", 4);
+        assertEquals(6, cachingService.findById("shampoo").getProductQuantity());
+
+        cachingService.release("shampoo", 1);
+        assertEquals(7, cachingService.findById("shampoo").getProductQuantity());
+
+        cachingService.delete("shampoo");
+        assertThrows(ProductNotFoundException.class, () -> cachingService.findById("shampoo"));
+    }
+
+    @Test
+    void testBatchWrites_InvalidateEverySucceededProduct() {
+        createProduct("shampoo", "Sampo Cap Bambang", 1);
+        createProduct("soap", "Sabun Cap Usep", 1);
+        Product shampoo = cachingService.findById("shampoo");
+        cachingService.findById("soap");
+
+        Product edit = new Product();
+        edit.setProductId("shampoo");
+        edit.setProductName("Sampo");
+        edit.setProductQuantity(2);
+        edit.setVersion(shampoo.getVersion());
+        cachingService.updateAll(List.of(edit));
+        assertEquals("Sampo", cachingService.findById("shampoo").getProductName());
+
+        BatchResult<Product> deleted = cachingService.deleteAll(List.of("soap"));
+        assertEquals(1, deleted.getSucceeded().size());
+        assertThrows(ProductNotFoundException.class, () -> cachingService.findById("soap"));
+    }
+
+    @Test
+    void testFindById_EntriesExpireAfterTheTtl() {
+        createProduct("shampoo", "Sampo Cap Bambang", 10);
+        cachingService.findById("shampoo");
+
+        // A write that bypasses the cache is only seen once the entry expires
+        Product edit = new Product();
+        edit.setProductId("shampoo");
+        edit.setProductName("Sampo Cap Usep");
+        edit.setProductQuantity(10);
+        productRepository.update(edit);
+        assertEquals("Sampo Cap Bambang", cachingService.findById("shampoo").getProductName());
+
+        clock.addAndGet(TTL.toNanos());
+        assertEquals("Sampo Cap Usep", cachingService.findById("shampoo").getProductName());
+    }
+
+    @Test
+    void testFindById_CacheStaysWithinItsMaximumSize() {
+        for (int i = 0; i < 300; i++) {
+            createProduct("id-" + i, "Product " + i, i);
+            cachingService.findById("id-" + i);
+        }
+        assertTrue(cachingService.size() <= 100);
+    }
+}
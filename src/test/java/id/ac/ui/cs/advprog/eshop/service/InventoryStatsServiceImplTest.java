@@ -0,0 +1,153 @@
+package id.ac.ui.cs.advprog.eshop.service;
+
+import id.ac.ui.cs.advprog.eshop.model.Car;
+import id.ac.ui.cs.advprog.eshop.model.InventoryStats;
+import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.repository.CarRepository;
+import id.ac.ui.cs.advprog.eshop.repository.InsertionOrderedStore;
+import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
+import id.ac.ui.cs.advprog.eshop.repository.ShardedStore;
+import id.ac.ui.cs.advprog.eshop.repository.columnar.ColumnarProductStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryStatsServiceImplTest {
+
+    private InventoryStatsServiceImpl statsService;
+    private ProductRepository productRepository;
+    private CarRepository carRepository;
+
+    @BeforeEach
+    void setUp() {
+        use(new ProductRepository(new ShardedStore<>(4, InsertionOrderedStore::new)),
+                new CarRepository(new ShardedStore<>(4, InsertionOrderedStore::new)));
+    }
+
+    // The repository fields are private, so they are injected by reflection
+    private void use(ProductRepository products, CarRepository cars) {
+        productRepository = products;
+        carRepository = cars;
+        statsService = new InventoryStatsServiceImpl();
+        try {
+            var productField = InventoryStatsServiceImpl.class.getDeclaredField("productRepository");
+            productField.setAccessible(true);
+            productField.set(statsService, products);
+            var carField = InventoryStatsServiceImpl.class.getDeclaredField("carRepository");
+            carField.setAccessible(true);
+            carField.set(statsService, cars);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            fail("Failed to set up test due to reflection error: " + e.getMessage());
+        }
+    }
+
+    private Product createProduct(String name, int quantity) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setProductQuantity(quantity);
+        return productRepository.create(product);
+    }
+
+    private Car createCar(String color, int quantity) {
+        Car car = new Car();
+        car.setCarName("Car " + color);
+        car.setCarColor(color);
+        car.setCarQuantity(quantity);
+        return carRepository.create(car);
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getProductName).toList();
+    }
+
+    private static long[] histogram(InventoryStats stats) {
+        return stats.getQuantityHistogram().stream().mapToLong(InventoryStats.QuantityBucket::products).toArray();
+    }
+
+    private static void assertSameFigures(InventoryStats expected, InventoryStats actual) {
+        assertEquals(expected.getProductCount(), actual.getProductCount());
+        assertEquals(expected.getProductStock(), actual.getProductStock());
+        assertArrayEquals(histogram(expected), histogram(actual));
+        assertEquals(names(expected.getTopProducts()), names(actual.getTopProducts()));
+        assertEquals(expected.getCarCount(), actual.getCarCount());
+        assertEquals(expected.getCarStock(), actual.getCarStock());
+        assertEquals(expected.getCarStockByColor(), actual.getCarStockByColor());
+    }
+
+    @Test
+    void testStatsFollowEveryWrite() {
+        createProduct("Empty", 0);
+        createProduct("Few", 7);
+        Product some = createProduct("Some", 42);
+        createProduct("Many", 1_500);
+        createCar("Red", 3);
+        Car blue = createCar("Blue", 5);
+        createCar("Red", 4);
+        createCar(null, 2);
+
+        InventoryStats stats = statsService.stats(2);
+        assertEquals(4, stats.getProductCount());
+        assertEquals(1_549, stats.getProductStock());
+        assertEquals(List.of("Many", "Some"), names(stats.getTopProducts()));
+        InventoryStats.QuantityBucket tens = stats.getQuantityHistogram().get(2);
+        assertEquals(10, tens.min());
+        assertEquals(99, tens.max());
+        assertEquals(1, tens.products());
+        assertArrayEquals(new long[]{1, 1, 1, 0, 1, 0, 0, 0, 0, 0, 0}, histogram(stats));
+        assertEquals(4, stats.getCarCount());
+        assertEquals(14, stats.getCarStock());
+        assertEquals(Map.of("Blue", 5L, "Red", 7L), stats.getCarStockByColor());
+
+        productRepository.reserve(some.getProductId(), 40);
+        carRepository.delete(blue.getCarId());
+        stats = statsService.stats(2);
+        assertEquals(1_509, stats.getProductStock());
+        assertEquals(List.of("Many", "Few"), names(stats.getTopProducts()));
+        assertEquals(0, histogram(stats)[2]);
+        assertEquals(2, histogram(stats)[1]);
+        assertEquals(Map.of("Red", 7L), stats.getCarStockByColor());
+        assertEquals(9, stats.getCarStock());
+    }
+
+    @Test
+    void testRecountMatchesTheRunningFigures() {
+        for (int i = 0; i < 5_000; i++) {
+            createProduct("Product " + i, (i * 7919) % 20_000);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            createCar(List.of("Red", "Blue", "Green").get(i % 3), i % 17);
+        }
+
+        InventoryStats recounted = statsService.recount(10);
+        assertEquals(5_000, recounted.getProductCount());
+        assertEquals(10, recounted.getTopProducts().size());
+        assertSameFigures(statsService.stats(10), recounted);
+    }
+
+    @Test
+    void testRecountOverColumnarShards() {
+        use(new ProductRepository(new ShardedStore<>(3, ColumnarProductStore::new)), new CarRepository());
+        for (int i = 0; i < 20_000; i++) {
+            createProduct("Product " + i, i);
+        }
+
+        InventoryStats recounted = statsService.recount(3);
+        assertEquals(20_000, recounted.getProductCount());
+        assertEquals(List.of("Product 19999", "Product 19998", "Product 19997"), names(recounted.getTopProducts()));
+        assertSameFigures(statsService.stats(3), recounted);
+    }
+
+    @Test
+    void testTopIsCapped() {
+        createProduct("Only", 1);
+
+        assertTrue(statsService.stats(0).getTopProducts().isEmpty());
+        assertTrue(statsService.recount(-5).getTopProducts().isEmpty());
+        assertEquals(1, statsService.stats(InventoryStatsServiceImpl.MAX_TOP + 1).getTopProducts().size());
+        assertEquals(1, statsService.recount(InventoryStatsServiceImpl.MAX_TOP + 1).getTopProducts().size());
+    }
+}
@@ -1,10 +1,16 @@
 package id.ac.ui.cs.advprog.eshop.service;
 
+import id.ac.ui.cs.advprog.eshop.model.BatchResult;
+import id.ac.ui.cs.advprog.eshop.model.ImportReport;
+import id.ac.ui.cs.advprog.eshop.model.Page;
 import id.ac.ui.cs.advprog.eshop.model.Product;
+import id.ac.ui.cs.advprog.eshop.model.UpdateResult;
 import id.ac.ui.cs.advprog.eshop.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -100,12 +106,37 @@ class ProductServiceImplTest {
         product.setProductName("After Update");
         product.setProductQuantity(99);
 
-        Product updated = productService.update(product);
-        assertNotNull(updated);
+        UpdateResult<Product> result = productService.update(product);
+        assertFalse(result.isConflict());
+        Product updated = result.getEntity();
         assertEquals("After Update", updated.getProductName());
         assertEquals(99, updated.getProductQuantity());
     }
 
+    @Test
+    void testUpdate_StaleVersionReturnsConflict() {
+        Product product = new Product();
+        product.setProductName("Before Update");
+        product.setProductQuantity(1);
+        productService.create(product);
+
+        Product first = new Product();
+        first.setProductId(product.getProductId());
+        first.setProductName("First");
+        first.setProductQuantity(2);
+        Product second = new Product();
+        second.setProductId(product.getProductId());
+        second.setProductName("Second");
+        second.setProductQuantity(3);
+
+        assertFalse(productService.update(first).isConflict());
+        UpdateResult<Product> result = productService.update(second);
+
+        assertTrue(result.isConflict());
+        assertEquals("First", result.getEntity().getProductName());
+        assertEquals("First", productService.findById(product.getProductId()).getProductName());
+    }
+
     @Test
     void testUpdate_Failure() {
         Product product = new Product();
@@ -143,4 +174,169 @@ class ProductServiceImplTest {
         });
         assertTrue(ex.getMessage().contains("Cannot delete"));
     }
+
+    @Test
+    void testFindPage() {
+        for (int i = 0; i < 3; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            productService.create(product);
+        }
+
+        Page<Product> first = productService.findPage(0, 2, null, null);
+        assertEquals(2, first.getContent().size());
+        assertTrue(first.isHasNext());
+
+        Page<Product> second = productService.findPage(1, 2, first.getNextCursor(), null);
+        assertEquals(1, second.getContent().size());
+        assertEquals("Product 2", second.getContent().get(0).getProductName());
+    }
+
+    @Test
+    void testFindPage_ClampsPageSize() {
+        for (int i = 0; i < ProductServiceImpl.MAX_PAGE_SIZE + 5; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            productService.create(product);
+        }
+
+        Page<Product> page = productService.findPage(0, 1_000, null, null);
+        assertEquals(ProductServiceImpl.MAX_PAGE_SIZE, page.getContent().size());
+        assertEquals(ProductServiceImpl.MAX_PAGE_SIZE, page.getSize());
+    }
+
+    @Test
+    void testFindPage_ClampsNonPositiveSizeAndPage() {
+        for (int i = 0; i < 3; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            productService.create(product);
+        }
+
+        assertEquals(1, productService.findPage(0, 0, null, null).getContent().size());
+        assertEquals(1, productService.findPage(0, -5, null, null).getSize());
+        assertEquals("Product 0", productService.findPage(-1, 1, null, null).getContent().get(0).getProductName());
+    }
+
+    @Test
+    void testSearch() {
+        Product product = new Product();
+        product.setProductName("Sampo Cap Bambang");
+        product.setProductQuantity(100);
+        productService.create(product);
+
+        List<Product> results = productService.search("bambang", 10);
+        assertEquals(1, results.size());
+        assertEquals(product.getProductId(), results.get(0).getProductId());
+        assertTrue(productService.search("usep", 10).isEmpty());
+    }
+
+    @Test
+    void testFindByQuantityRange() {
+        for (int quantity : new int[]{30, 2, 15}) {
+            Product product = new Product();
+            product.setProductName("Product " + quantity);
+            product.setProductQuantity(quantity);
+            productService.create(product);
+        }
+
+        List<Product> lowStock = productService.findByQuantityRange(0, 20, 10);
+        assertEquals(2, lowStock.size());
+        assertEquals(2, lowStock.get(0).getProductQuantity());
+        assertEquals(15, lowStock.get(1).getProductQuantity());
+        assertEquals(1, productService.findByQuantityRange(0, 20, 0).size());
+        assertEquals(3, productService.findByQuantityRange(0, Integer.MAX_VALUE, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void testImportProducts_InBatches() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ProductServiceImpl.IMPORT_BATCH_SIZE + 5; i++) {
+            Product product = new Product();
+            product.setProductName("Product " + i);
+            product.setProductQuantity(i);
+            products.add(product);
+        }
+
+        ImportReport report = productService.importProducts(products.iterator());
+        assertEquals(products.size(), report.getImported());
+        assertEquals(0, report.getRejected());
+        assertEquals(products.size(), productService.findAll().size());
+    }
+
+    @Test
+    void testImportProducts_ReportsRejectedRecordsAndContinues() {
+        int invalidIndex = ProductServiceImpl.IMPORT_BATCH_SIZE + 2;
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < ProductServiceImpl.IMPORT_BATCH_SIZE + 5; i++) {
+            Product product = new Product();
+            product.setProductName(i == invalidIndex ? "" : "Product " + i);
+            product.setProductQuantity(i);
+            products.add(product);
+        }
+
+        ImportReport report = productService.importProducts(products.iterator());
+        assertEquals(products.size() - 1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(List.of(new BatchResult.Failure(invalidIndex, "Product name cannot be empty.")), report.getFailures());
+        assertEquals(products.size() - 1, productService.findAll().size());
+    }
+
+    @Test
+    void testImportProducts_MalformedRecordAfterFullBatchIsRejectedAlone() {
+        int total = ProductServiceImpl.IMPORT_BATCH_SIZE + 10;
+        int malformedIndex = ProductServiceImpl.IMPORT_BATCH_SIZE + 3;
+        Iterator<Product> products = new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < total;
+            }
+
+            @Override
+            public Product next() {
+                int index = next++;
+                if (index == malformedIndex) {
+                    throw new IllegalArgumentException("Record " + (index + 1) + " is malformed: broken");
+                }
+                Product product = new Product();
+                product.setProductName("Product " + index);
+                product.setProductQuantity(index);
+                return product;
+            }
+        };
+
+        ImportReport report = productService.importProducts(products);
+        assertEquals(total - 1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(List.of(new BatchResult.Failure(malformedIndex, "Record " + (malformedIndex + 1) + " is malformed: broken")),
+                report.getFailures());
+        assertEquals(total - 1, productService.findAll().size());
+        assertEquals("Product " + (total - 1), productService.findAll().get(total - 2).getProductName());
+    }
+
+    @Test
+    void testBatchMethods() {
+        Product first = new Product();
+        first.setProductName("Sampo Cap Bambang");
+        first.setProductQuantity(1);
+        Product second = new Product();
+        second.setProductName("Sabun Cap Usep");
+        second.setProductQuantity(2);
+        assertTrue(productService.createAll(List.of(first, second)).isComplete());
+
+        Product renamed = new Product();
+        renamed.setProductId(first.getProductId());
+        renamed.setProductName("Sampo Cap Usep");
+        renamed.setProductQuantity(3);
+        assertTrue(productService.updateAll(List.of(renamed)).isComplete());
+        assertEquals("Sampo Cap Usep", productService.findById(first.getProductId()).getProductName());
+
+        assertEquals(2, productService.deleteAll(List.of(first.getProductId(), second.getProductId())).getSucceeded().size());
+        assertTrue(productService.findAll().isEmpty());
+    }
 }